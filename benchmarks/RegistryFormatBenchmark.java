@@ -0,0 +1,110 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares load time and file size of the json and smile registry formats on a synthetic registry.
+ * Run it through registry-format.sh, which builds the classpath for you
+ * */
+public class RegistryFormatBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) throws IOException {
+        int services = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Path dir = Files.createTempDirectory("qs-format-bench");
+
+        ObjectMapper json = ObjectMapperConfig.getJsonMapper();
+        ObjectMapper smile = ObjectMapperConfig.getSmileMapper();
+        ObjectNode registry = syntheticRegistry(json, services);
+
+        Path jsonFile = dir.resolve("registry.json");
+        Path smileFile = dir.resolve("registry.smile");
+        json.writeValue(jsonFile.toFile(), registry);
+        smile.writeValue(smileFile.toFile(), registry);
+
+        System.out.printf("%d services%n%n", services);
+        System.out.printf("%-8s %12s %14s %14s %14s%n", "format", "size", "full load", "key scan", "single lookup");
+        report("json", json, jsonFile, services);
+        report("smile", smile, smileFile, services);
+
+        Files.delete(jsonFile);
+        Files.delete(smileFile);
+        Files.delete(dir);
+    }
+
+    private static void report(String name, ObjectMapper mapper, Path file, int services) throws IOException {
+        String last = "service-" + (services - 1);
+        double full = time(() -> mapper.readTree(file.toFile()).size());
+        double keys = time(() -> scan(mapper, file, null));
+        double lookup = time(() -> scan(mapper, file, last));
+
+        System.out.printf("%-8s %9.2f MB %11.1f ms %11.1f ms %11.1f ms%n",
+                name, Files.size(file) / (1024.0 * 1024.0), full, keys, lookup);
+    }
+
+    /**
+     * Mirrors how the single file store streams the registry, bodies of unwanted services are skipped, not parsed
+     * */
+    private static int scan(ObjectMapper mapper, Path file, String wanted) throws IOException {
+        int seen = 0;
+        try (JsonParser parser = mapper.createParser(file.toFile())) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (name.equals(wanted)) {
+                    JsonNode node = mapper.readTree(parser);
+                    return node.size();
+                }
+                parser.skipChildren();
+                seen++;
+            }
+        }
+        return seen;
+    }
+
+    private static double time(Task task) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+    }
+
+    private static ObjectNode syntheticRegistry(ObjectMapper mapper, int services) {
+        ObjectNode registry = mapper.createObjectNode();
+        for (int i = 0; i < services; i++) {
+            ObjectNode service = registry.putObject("service-" + i);
+            service.put("image", "registry.example.com/team-" + (i % 50) + "/app-" + i + ":1." + (i % 10));
+            service.put("container_name", "container-" + i);
+            service.put("restart", "unless-stopped");
+            service.putArray("ports").add((8000 + i % 1000) + ":80").add((9000 + i % 1000) + ":443");
+            service.putArray("volumes").add("./data-" + i + ":/var/lib/app").add("logs:/var/log/app");
+            ObjectNode env = service.putObject("environment");
+            env.put("SPRING_PROFILES_ACTIVE", "prod");
+            env.put("DATABASE_URL", "jdbc:postgresql://db-" + (i % 20) + ":5432/app");
+            env.put("SERVICE_INDEX", String.valueOf(i));
+            service.putArray("depends_on").add("service-" + Math.max(0, i - 1));
+            service.putObject("labels").put("team", "team-" + (i % 50));
+        }
+        return registry;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        int run() throws IOException;
+    }
+}
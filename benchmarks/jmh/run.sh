@@ -0,0 +1,27 @@
+#!/bin/bash
+# Runs the JMH benchmarks and compares the results with the committed baseline.
+#
+# Usage:
+#   ./benchmarks/jmh/run.sh                      run every benchmark, results go to benchmarks/jmh/target/results.json
+#   ./benchmarks/jmh/run.sh -p size=10,1000 Load  extra arguments are passed to JMH, i.e. to narrow the run
+#   UPDATE_BASELINE=1 ./benchmarks/jmh/run.sh    replace benchmarks/jmh/baseline.json with this run
+#
+# Exits with 1 when a benchmark is slower than the baseline by more than THRESHOLD percent (10 by default).
+# Only compare runs made on the same machine, the numbers mean nothing across hardware.
+
+set -e
+ROOT=$(cd "$(dirname "$0")/../.." && pwd)
+JMH="$ROOT/benchmarks/jmh"
+RESULTS="$JMH/target/results.json"
+
+(cd "$ROOT" && mvn -B -q install -DskipTests)
+(cd "$JMH" && mvn -B -q package)
+
+java -jar "$JMH/target/benchmarks.jar" -rf json -rff "$RESULTS" "$@"
+
+if [ -n "$UPDATE_BASELINE" ]; then
+    cp "$RESULTS" "$JMH/baseline.json"
+    echo "baseline updated"
+elif [ -f "$JMH/baseline.json" ]; then
+    java -cp "$JMH/target/benchmarks.jar" org.quickstart.benchmarks.ReportDiff "$JMH/baseline.json" "$RESULTS" "${THRESHOLD:-10}"
+fi
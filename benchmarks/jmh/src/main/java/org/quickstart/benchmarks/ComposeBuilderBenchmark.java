@@ -0,0 +1,42 @@
+package org.quickstart.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.*;
+import org.quickstart.compose.ComposeBuilder;
+import org.quickstart.registry.GeneratedRegistry;
+import org.quickstart.registry.RegistryFormat;
+import org.quickstart.registry.RegistryLayout;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a compose document out of every service in the registry, which runs `buildVolumes` once per service
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComposeBuilderBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int size;
+
+    private Map<String, JsonNode> services;
+    private Set<String> names;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        services = GeneratedRegistry.create(size, RegistryLayout.FILE, RegistryFormat.JSON, false).services();
+        names = services.keySet();
+    }
+
+    @Benchmark
+    public Map<String, Object> buildVolumes() throws IOException {
+        return ComposeBuilder.create().buildServices(services, names).serviceVolumes();
+    }
+}
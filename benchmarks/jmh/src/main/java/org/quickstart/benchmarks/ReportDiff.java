@@ -0,0 +1,89 @@
+package org.quickstart.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compares two JMH json reports, i.e. the committed baseline against a run of the current tree.
+ * Prints one line per benchmark and exits with 1 when any benchmark got slower by more than the threshold
+ *
+ * Usage: ReportDiff baseline.json current.json [threshold percent, 10 by default]
+ * */
+public final class ReportDiff {
+
+    private ReportDiff() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ReportDiff <baseline.json> <current.json> [threshold %]");
+            System.exit(2);
+        }
+
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (String key : new TreeSet<>(current.keySet())) {
+            Score now = current.get(key);
+            Score then = baseline.get(key);
+            if (then == null) {
+                System.out.printf("%-90s %14s %14s %9s%n", key, "-", now, "new");
+                continue;
+            }
+
+            //Every benchmark here reports time per operation, so a higher score is slower
+            double change = (now.value() - then.value()) / then.value() * 100;
+            boolean regressed = change > threshold;
+            regressions += regressed ? 1 : 0;
+            System.out.printf("%-90s %14s %14s %+8.1f%%%s%n", key, then, now, change, regressed ? "  REGRESSION" : "");
+        }
+
+        for (String key : new TreeSet<>(baseline.keySet())) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-90s %14s %14s %9s%n", key, baseline.get(key), "-", "removed");
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    //Keys each result by benchmark name and params, i.e. `RegistryLoadBenchmark.readAll format=JSON size=1000`
+    private static Map<String, Score> read(File report) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(report)) {
+            String benchmark = result.get("benchmark").asText();
+            StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+
+            JsonNode params = result.get("params");
+            if (params != null) {
+                TreeSet<String> names = new TreeSet<>();
+                params.fieldNames().forEachRemaining(names::add);
+                names.forEach(name -> key.append(' ').append(name).append('=').append(params.get(name).asText()));
+            }
+
+            JsonNode metric = result.get("primaryMetric");
+            scores.put(key.toString(), new Score(metric.get("score").asDouble(), metric.get("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private record Score(double value, String unit) {
+        @Override
+        public String toString() {
+            return String.format("%.3f %s", value, unit);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.quickstart.constants.QuickStartConstants.BASE_PATH;
+import static org.quickstart.constants.QuickStartConstants.PROFILE_BASE_PATH;
+import static org.quickstart.constants.QuickStartConstants.USER_DIR;
+import static org.quickstart.constants.QuickStartConstants.YML_EXTENSION;
+
+/**
+ * A throwaway ~/.quickstart filled with generated services and profiles.
+ * Creating one points user.home at a temp directory, so it has to happen before anything reads QuickStartConstants.
+ * Every benchmark forks a fresh JVM per trial, which makes that safe
+ * */
+public final class GeneratedRegistry {
+
+    private static final String[] WORDS = {
+            "api", "auth", "billing", "cache", "db", "gateway", "kafka", "mongo",
+            "nginx", "orders", "payments", "postgres", "redis", "search", "users", "worker"
+    };
+
+    /**
+     * Services in the compose file used to benchmark imports, a typical compose file rather than the whole registry
+     * */
+    public static final int IMPORT_SIZE = 100;
+
+    private final Map<String, JsonNode> services;
+    private final Path composeFile;
+
+    private GeneratedRegistry(Map<String, JsonNode> services, Path composeFile) {
+        this.services = services;
+        this.composeFile = composeFile;
+    }
+
+    /**
+     * @param size The number of services, and profiles when they're wanted
+     * @param layout How the registry is laid out
+     * @param format How the registry is encoded
+     * @param withProfiles Also create a profile per service
+     * */
+    public static GeneratedRegistry create(int size, RegistryLayout layout, RegistryFormat format, boolean withProfiles) throws IOException {
+        Path home = Files.createTempDirectory("qs-bench-" + size);
+        System.setProperty("user.home", home.toString());
+
+        ObjectMapper mapper = ObjectMapperConfig.getJsonMapper();
+        Map<String, JsonNode> services = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            services.put(name(i), service(mapper, i));
+        }
+
+        QuickStartInitializer.initQuickStart(layout, format);
+        new RegistryConfig(layout, format).openStore().write(services);
+
+        if (withProfiles) {
+            for (int i = 0; i < size; i++) {
+                Files.createFile(PROFILE_BASE_PATH.resolve(name(i) + YML_EXTENSION));
+            }
+        }
+
+        ObjectNode compose = mapper.createObjectNode();
+        ObjectNode composeServices = compose.putObject("services");
+        for (int i = 0; i < IMPORT_SIZE; i++) {
+            composeServices.set("imported-" + name(i), service(mapper, i));
+        }
+        Path composeFile = BASE_PATH.resolve("generated-compose.yml");
+        ObjectMapperConfig.getYAMLMapper().writeValue(composeFile.toFile(), compose);
+
+        return new GeneratedRegistry(services, composeFile);
+    }
+
+    /**
+     * @return a service name in the shape of real ones, i.e. `payments-redis-42`
+     * */
+    public static String name(int i) {
+        return WORDS[i % WORDS.length] + "-" + WORDS[(i / WORDS.length) % WORDS.length] + "-" + i;
+    }
+
+    /**
+     * @return names that aren't in the registry but are one or two edits away from names that are
+     * */
+    public static List<String> typos(int size, int count) {
+        List<String> typos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = name((int) ((long) i * size / count));
+            typos.add(name.substring(1) + "x");
+        }
+        return typos;
+    }
+
+    public Map<String, JsonNode> services() {
+        return services;
+    }
+
+    /**
+     * @return the generated compose file relative to the working directory, the way `qs add -f` receives it
+     * */
+    public String composeFile() {
+        return USER_DIR.relativize(composeFile).toString();
+    }
+
+    private static ObjectNode service(ObjectMapper mapper, int i) {
+        ObjectNode service = mapper.createObjectNode();
+        service.put("image", "registry.example.com/" + WORDS[i % WORDS.length] + ":1." + (i % 10));
+        service.put("container_name", "container-" + i);
+        service.put("restart", "unless-stopped");
+        service.putArray("ports").add((8000 + i % 1000) + ":80");
+        service.putArray("volumes").add("data-" + i + ":/var/lib/app").add("./config-" + i + ":/etc/app");
+        ObjectNode env = service.putObject("environment");
+        env.put("SPRING_PROFILES_ACTIVE", "prod");
+        env.put("SERVICE_INDEX", String.valueOf(i));
+        service.putObject("labels").put("team", WORDS[(i / WORDS.length) % WORDS.length]);
+        return service;
+    }
+}
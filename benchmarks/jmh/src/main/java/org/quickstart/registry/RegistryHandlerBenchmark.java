@@ -0,0 +1,57 @@
+package org.quickstart.registry;
+
+import org.openjdk.jmh.annotations.*;
+import org.quickstart.dtos.RegistryExport;
+import org.quickstart.dtos.RegistryImport;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports and exports through {@link RegistryHandler}, the same calls `qs add -f` and `qs show` make
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryHandlerBenchmark {
+
+    private static final int EXPORT_SIZE = 10;
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int size;
+
+    private RegistryHandler handler;
+    private String composeFile;
+    private Set<String> exported;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        GeneratedRegistry registry = GeneratedRegistry.create(size, RegistryLayout.FILE, RegistryFormat.JSON, false);
+        handler = RegistryHandler.getInstance();
+        composeFile = registry.composeFile();
+
+        exported = new LinkedHashSet<>();
+        for (int i = 0; i < Math.min(EXPORT_SIZE, size); i++) {
+            exported.add(GeneratedRegistry.name(i * (size / Math.min(EXPORT_SIZE, size))));
+        }
+    }
+
+    /**
+     * Imports a compose file of {@link GeneratedRegistry#IMPORT_SIZE} services into the registry, overwriting them
+     * after the first invocation so the registry size stays the same
+     * */
+    @Benchmark
+    public RegistryImport importToRegistryFromYaml() {
+        return handler.importToRegistryFromYaml(composeFile, Set.of(), true);
+    }
+
+    @Benchmark
+    public RegistryExport exportFromRegistryAsText() {
+        return handler.exportFromRegistryAsText(exported);
+    }
+}
@@ -0,0 +1,52 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the registry the way a fresh CLI run does, every invocation opens a new store so nothing is cached
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryLoadBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int size;
+
+    @Param({"JSON", "SMILE"})
+    private RegistryFormat format;
+
+    private RegistryConfig config;
+    private String lastService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        GeneratedRegistry.create(size, RegistryLayout.FILE, format, false);
+        config = new RegistryConfig(RegistryLayout.FILE, format);
+        lastService = GeneratedRegistry.name(size - 1);
+    }
+
+    @Benchmark
+    public Map<String, JsonNode> readAll() {
+        return config.openStore().readAll();
+    }
+
+    @Benchmark
+    public Set<String> serviceNames() {
+        return config.openStore().serviceNames();
+    }
+
+    @Benchmark
+    public JsonNode readOne() {
+        return config.openStore().read(lastService);
+    }
+}
@@ -0,0 +1,70 @@
+package org.quickstart.registry;
+
+import org.openjdk.jmh.annotations.*;
+import org.quickstart.compose.ComposeBuilder;
+import org.quickstart.exceptions.ProfileException;
+import org.quickstart.profiles.ProfileHandler;
+import org.quickstart.similarity.NameIndex;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.quickstart.constants.QuickStartConstants.SERVICE_INDEX_PATH;
+
+/**
+ * "Did you mean" lookups for services and profiles that don't exist, against warm name indexes
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarityBenchmark {
+
+    private static final int TYPOS = 10;
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int size;
+
+    private RegistryStore store;
+    private NameIndex nameIndex;
+    private Set<String> missingServices;
+    private String missingProfile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        GeneratedRegistry.create(size, RegistryLayout.FILE, RegistryFormat.JSON, true);
+        store = new RegistryConfig(RegistryLayout.FILE, RegistryFormat.JSON).openStore();
+        nameIndex = new NameIndex(SERVICE_INDEX_PATH);
+        missingServices = new LinkedHashSet<>(GeneratedRegistry.typos(size, TYPOS));
+        missingProfile = GeneratedRegistry.typos(size, 1).get(0);
+    }
+
+    /**
+     * Suggestions for {@value TYPOS} missing services
+     * */
+    @Benchmark
+    public Map<String, String> mapAbsentServicesToSimilarServices() throws IOException {
+        return ComposeBuilder.create()
+                .buildServices(Map.of(), missingServices)
+                .mapAbsentServicesToSimilarServices(RegistryIOUtils.similarServices(store, nameIndex))
+                .absentServices();
+    }
+
+    /**
+     * Suggestions for a missing profile, which is how `findSimilarProfiles` is reached
+     * */
+    @Benchmark
+    public String findSimilarProfiles() {
+        try {
+            ProfileHandler.getInstance().ensureProfileExists(missingProfile);
+            throw new IllegalStateException(missingProfile + " should not exist");
+        } catch (ProfileException e) {
+            return e.serviceError().hint();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+#!/bin/bash
+# Compares load time and file size of the json and smile registry formats on a synthetic registry.
+#
+# Usage:
+#   mvn compile
+#   ./benchmarks/registry-format.sh [services]
+#
+# Defaults to 10000 services. Runs RegistryFormatBenchmark.java straight from source against target/classes.
+
+SERVICES=${1:-10000}
+DEPS=$(mktemp)
+trap 'rm -f "$DEPS"' EXIT
+
+if [ ! -d "target/classes" ]; then
+    echo "[ERROR] target/classes not found, run 'mvn compile' first"
+    exit 1
+fi
+
+mvn -q dependency:build-classpath -Dmdep.outputFile="$DEPS" > /dev/null || exit 1
+java -cp "target/classes:$(cat "$DEPS")" benchmarks/RegistryFormatBenchmark.java "$SERVICES"
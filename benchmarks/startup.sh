@@ -0,0 +1,62 @@
+#!/bin/bash
+# Compares the startup time of the shaded jar against the native executable.
+#
+# Usage:
+#   mvn clean package && mvn -Pnative package
+#   ./benchmarks/startup.sh [runs]
+#
+# Uses hyperfine when it's installed, otherwise falls back to timing a plain loop.
+# Both binaries run against the same throwaway ~/.quickstart so the numbers aren't skewed by your real registry.
+
+RUNS=${1:-20}
+JAR="target/quickstart.jar"
+NATIVE="target/qs"
+
+if [ ! -f "$JAR" ]; then
+    echo "[ERROR] $JAR not found, run 'mvn clean package' first"
+    exit 1
+fi
+
+BENCH_HOME=$(mktemp -d)
+trap 'rm -rf "$BENCH_HOME"' EXIT
+
+export QS_NO_DAEMON=1
+JAR_CMD="java -Duser.home=$BENCH_HOME -jar $JAR"
+NATIVE_CMD="$NATIVE -Duser.home=$BENCH_HOME"
+
+$JAR_CMD init > /dev/null
+$JAR_CMD add -f qs-test.yaml > /dev/null
+
+COMMANDS=("ls" "exist db")
+
+time_loop() {
+    local start end
+    start=$(date +%s%N)
+    for ((i = 0; i < RUNS; i++)); do
+        $1 > /dev/null 2>&1
+    done
+    end=$(date +%s%N)
+    echo $(( (end - start) / RUNS / 1000000 ))
+}
+
+for cmd in "${COMMANDS[@]}"; do
+    if command -v hyperfine &> /dev/null; then
+        if [ -x "$NATIVE" ]; then
+            hyperfine --warmup 3 --runs "$RUNS" "$JAR_CMD $cmd" "$NATIVE_CMD $cmd"
+        else
+            hyperfine --warmup 3 --runs "$RUNS" "$JAR_CMD $cmd"
+        fi
+        continue
+    fi
+
+    printf "qs %-10s jar: %5d ms" "$cmd" "$(time_loop "$JAR_CMD $cmd")"
+    if [ -x "$NATIVE" ]; then
+        printf "    native: %5d ms" "$(time_loop "$NATIVE_CMD $cmd")"
+    fi
+    echo ""
+done
+
+if [ ! -x "$NATIVE" ]; then
+    echo ""
+    echo "[INFO] $NATIVE not found, build it with 'mvn -Pnative package' (requires GraalVM 21) to compare"
+fi
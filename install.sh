@@ -6,8 +6,18 @@ echo "  QuickStart Installer (Unix/Linux/macOS)"
 echo "============================================"
 echo ""
 
+# Prefer the native executable (built with 'mvn -Pnative package'), it doesn't need Java and starts much faster
+NATIVE_PATH=""
+if [ -f "qs" ] && [ -x "qs" ]; then
+    NATIVE_PATH="qs"
+    echo "[INFO] Found native qs executable in current directory"
+elif [ -f "target/qs" ] && [ -x "target/qs" ]; then
+    NATIVE_PATH="target/qs"
+    echo "[INFO] Found native qs executable in target directory"
+fi
+
 # Check if Java is installed
-if ! command -v java &> /dev/null; then
+if [ -z "$NATIVE_PATH" ] && ! command -v java &> /dev/null; then
     echo "[ERROR] Java is not installed or not in PATH."
     echo "Please install Java 21 or higher and try again."
     echo ""
@@ -16,7 +26,9 @@ fi
 
 # Check if quickstart.jar exists in multiple locations
 JAR_PATH=""
-if [ -f "quickstart.jar" ]; then
+if [ -n "$NATIVE_PATH" ]; then
+    :
+elif [ -f "quickstart.jar" ]; then
     JAR_PATH="quickstart.jar"
     echo "[INFO] Found quickstart.jar in current directory"
 elif [ -f "target/quickstart.jar" ]; then
@@ -27,7 +39,7 @@ else
     echo ""
     echo "Please either:"
     echo "  1. Download quickstart.jar from GitHub releases and place it here"
-    echo "  2. Build from source with 'mvn clean package'"
+    echo "  2. Build from source with 'mvn clean package' (or 'mvn -Pnative package' for a native executable)"
     echo ""
     exit 1
 fi
@@ -35,20 +47,34 @@ fi
 echo "[1/4] Creating QuickStart directory..."
 mkdir -p ~/.quickstart
 
-echo "[2/4] Copying JAR file..."
-# Remove old jar if it exists
-if [ -f ~/.quickstart/quickstart.jar ]; then
-    echo "   > Removing old jar..."
-    rm -f ~/.quickstart/quickstart.jar
-fi
-cp "$JAR_PATH" ~/.quickstart/quickstart.jar
+if [ -n "$NATIVE_PATH" ]; then
+    echo "[2/4] Copying native executable..."
+    # Remove the old jar and wrapper if they exist
+    if [ -f ~/.quickstart/quickstart.jar ]; then
+        echo "   > Removing old jar..."
+        rm -f ~/.quickstart/quickstart.jar
+    fi
+    rm -f ~/.quickstart/qs
+    cp "$NATIVE_PATH" ~/.quickstart/qs
 
-echo "[3/4] Creating command wrapper..."
-# Create short alias
-cat > ~/.quickstart/qs << 'EOF'
+    echo "[3/4] Skipping command wrapper, the native executable is the command"
+else
+    echo "[2/4] Copying JAR file..."
+    # Remove old jar if it exists
+    if [ -f ~/.quickstart/quickstart.jar ]; then
+        echo "   > Removing old jar..."
+        rm -f ~/.quickstart/quickstart.jar
+    fi
+    cp "$JAR_PATH" ~/.quickstart/quickstart.jar
+
+    echo "[3/4] Creating command wrapper..."
+    # Create short alias, replacing a previously installed native executable
+    rm -f ~/.quickstart/qs
+    cat > ~/.quickstart/qs << 'EOF'
 #!/bin/bash
 java -jar ~/.quickstart/quickstart.jar "$@"
 EOF
+fi
 
 chmod +x ~/.quickstart/qs
 
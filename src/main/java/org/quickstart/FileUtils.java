@@ -1,10 +1,16 @@
 package org.quickstart;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.UUID;
 
 import static org.quickstart.constants.QuickStartConstants.*;
@@ -45,5 +51,53 @@ public class FileUtils {
         return path;
     }
 
+    /**
+     * Replaces a file without anyone ever seeing it half written. The content goes to a temp file next to the target,
+     * is flushed to disk, then moved over the target in one step, so readers see either the old or the new file and a
+     * crash leaves the old one in place
+     * @param target The file to replace or create
+     * @param content Writes the new content, it may close the stream
+     * */
+    public static void writeAtomically(Path target, ContentWriter content) throws IOException {
+        //Not Files.createTempFile, its files are only readable by us and the target would end up that way too
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try{
+            try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))){
+                content.writeTo(out);
+            }
+
+            //The rename can reach the disk before the data does, which would leave an empty file after a power loss
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)){
+                channel.force(true);
+            }
+
+            try{
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }catch (AtomicMoveNotSupportedException e){
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    //Identifies a version of a file by its modification time and size, returns null if the file doesn't exist
+    public static String fileStamp(Path filePath) {
+        try{
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+        }catch (IOException e){
+            return null;
+        }
+    }
+
+    /**
+     * Writes the content of a file
+     * */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
 
 }
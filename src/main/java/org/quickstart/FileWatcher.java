@@ -0,0 +1,90 @@
+package org.quickstart;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for a file to change. The watch is registered on the file's directory, editors often save by replacing the file
+ * rather than writing to it, which a watch on the file itself wouldn't survive.
+ * A save shows up as a burst of events, so a change is only reported once the file was left alone for a while, and
+ * every event of the burst is coalesced into that one change
+ * */
+public final class FileWatcher implements AutoCloseable {
+
+    private final Path file;
+    private final Duration quietPeriod;
+    private final WatchService watchService;
+
+    /**
+     * @param file The file to watch, as an absolute path. It doesn't have to exist yet, its directory does
+     * @param quietPeriod How long the file has to be left alone after an event before the change is reported
+     * */
+    public FileWatcher(Path file, Duration quietPeriod) throws IOException {
+        this.file = file;
+        this.quietPeriod = quietPeriod;
+        this.watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * Blocks until the file changed and was then left alone for the quiet period
+     * @return false once the file can't be watched anymore, i.e. its directory was deleted or the watcher was closed
+     * */
+    public boolean awaitChange() throws InterruptedException {
+        try{
+            //Until the first event for the file, other files of the directory don't matter
+            boolean touched = false;
+            while(!touched){
+                WatchKey key = watchService.take();
+                touched = touchesFile(key);
+                if(!key.reset()){
+                    return false;
+                }
+            }
+
+            //Only events for the file push the deadline back, a busy directory can't hold the change back forever
+            long deadline = System.nanoTime() + quietPeriod.toNanos();
+            for(long left = quietPeriod.toNanos(); left > 0; left = deadline - System.nanoTime()){
+                WatchKey key = watchService.poll(left, TimeUnit.NANOSECONDS);
+                if(key == null){
+                    break;
+                }
+                if(touchesFile(key)){
+                    deadline = System.nanoTime() + quietPeriod.toNanos();
+                }
+                if(!key.reset()){
+                    return false;
+                }
+            }
+            return true;
+        }catch (ClosedWatchServiceException e){
+            return false;
+        }
+    }
+
+    //Drains the events of a key, an overflow means events were lost so the file may have changed
+    private boolean touchesFile(WatchKey key) {
+        boolean touched = false;
+        for(WatchEvent<?> event : key.pollEvents()){
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())){
+                touched = true;
+            }
+        }
+        return touched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
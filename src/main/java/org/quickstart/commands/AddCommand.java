@@ -1,7 +1,9 @@
 package org.quickstart.commands;
 
+import org.quickstart.dtos.DirectoryImport;
 import org.quickstart.dtos.RegistryImport;
 import org.quickstart.exceptions.RegistryException;
+import org.quickstart.exceptions.ServiceError;
 import org.quickstart.registry.RegistryHandler;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -13,7 +15,7 @@ import java.util.Set;
 
 @Command(
         name = "add",
-        description = "Add services from a YAML file to registry",
+        description = "Add services from a YAML file, or a directory of them, to registry",
         mixinStandardHelpOptions = true,
         version = "1.0"
 )
@@ -33,11 +35,34 @@ final class AddCommand implements Runnable {
 
     @Option(
             names = {"-f", "--file"},
-            description = "YAML file to import from",
-            required = true
+            description = "YAML file to import from"
     )
     private String fileName;
 
+    @Option(
+            names = {"--dir"},
+            description = "Directory of YAML files to import from in a single registry write"
+    )
+    private String directory;
+
+    @Option(
+            names = {"--glob"},
+            description = "Files of `--dir` to import, matched against their path in it (default: *.{yml,yaml})"
+    )
+    private String glob;
+
+    @Option(
+            names = {"--watch"},
+            description = "Keep running and import the file again each time it's saved, only changed services are written"
+    )
+    private boolean watch = false;
+
+    @Option(
+            names = {"--up"},
+            description = "With `--watch`, bring up again the `qs up` projects running a service that changed"
+    )
+    private boolean up = false;
+
     @ParentCommand
     private QuickStartCommand quickStartCommand;
 
@@ -45,6 +70,42 @@ final class AddCommand implements Runnable {
     public void run() {
         boolean verbose = quickStartCommand.verbose;
         try{
+            if((fileName == null) == (directory == null)){
+                throw new RegistryException(
+                        new ServiceError("pass either a file or a directory to import", "use `-f <file>` or `--dir <directory>`")
+                );
+            }
+
+            if(glob != null && directory == null){
+                throw new RegistryException(
+                        new ServiceError("`--glob` only applies to `--dir`", "drop `--glob` or import a directory")
+                );
+            }
+
+            if(watch && fileName == null){
+                throw new RegistryException(
+                        new ServiceError("`--watch` only applies to `-f`", "watch a single file with `-f <file> --watch`")
+                );
+            }
+
+            if(up && !watch){
+                throw new RegistryException(
+                        new ServiceError("`--up` only applies to `--watch`", "add `--watch`, or run `qs up` after the import")
+                );
+            }
+
+            if(watch){
+                RegistryHandler.getInstance().watchComposeFile(fileName, excludedServices, force, up,
+                        System.out::println, error -> System.err.println(error.toString(verbose)));
+                return;
+            }
+
+            if(directory != null){
+                DirectoryImport imported = RegistryHandler.getInstance().importToRegistryFromDirectory(directory, glob, excludedServices, force);
+                System.out.println(imported);
+                return;
+            }
+
             RegistryImport imported = RegistryHandler.getInstance().importToRegistryFromYaml(fileName, excludedServices, force);
             System.out.println(imported);
         }catch(RegistryException e){
@@ -0,0 +1,174 @@
+package org.quickstart.commands;
+
+import org.quickstart.daemon.DaemonClient;
+import org.quickstart.daemon.DaemonServer;
+import org.quickstart.exceptions.QuickStartException;
+import org.quickstart.exceptions.ServiceError;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.quickstart.constants.QuickStartConstants.DAEMON_LOG_PATH;
+import static org.quickstart.constants.QuickStartConstants.USER_HOME;
+
+@CommandLine.Command(
+        name = "daemon",
+        description = "Manage the background daemon that keeps the registry loaded between commands",
+        version = "1.0.0",
+        mixinStandardHelpOptions = true
+)
+final class DaemonCommand implements Runnable {
+
+    private final static int START_TIMEOUT_MILLIS = 10_000;
+    private final static int START_POLL_MILLIS = 50;
+
+    @CommandLine.Parameters(
+            description = "One of: start, stop, status, run (runs the daemon in the foreground)",
+            completionCandidates = Actions.class
+    )
+    private String action;
+
+    @CommandLine.ParentCommand
+    private QuickStartCommand quickStartCommand;
+
+    @Override
+    public void run() {
+        boolean verbose = quickStartCommand.verbose;
+        try{
+            switch (action) {
+                case "start" -> start();
+                case "stop" -> stop();
+                case "status" -> status();
+                case "run" -> runInForeground();
+                default -> throw new QuickStartException(
+                        new ServiceError(
+                                String.format("unknown daemon action '%s'", action),
+                                "use one of: start, stop, status"
+                        )
+                );
+            }
+        }catch(QuickStartException e){
+            System.err.println(e.serviceError().toString(verbose));
+        }
+    }
+
+    private void start() {
+        DaemonServer daemon = DaemonServer.current();
+        if(daemon != null){
+            System.out.printf("daemon already running (pid %d)\n", daemon.pid());
+            return;
+        }
+        if(DaemonClient.isRunning()){
+            //QS_NO_DAEMON ran us in-process, a second daemon would take the socket over from the running one
+            status();
+            return;
+        }
+
+        try{
+            new ProcessBuilder(daemonCommand())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.appendTo(DAEMON_LOG_PATH.toFile()))
+                    .start();
+
+            //Wait for the socket so the very next command already goes through the daemon
+            for(int waited = 0; waited < START_TIMEOUT_MILLIS; waited += START_POLL_MILLIS){
+                if(DaemonClient.isRunning()){
+                    System.out.println("daemon started");
+                    return;
+                }
+                Thread.sleep(START_POLL_MILLIS);
+            }
+        }catch(IOException e){
+            throw new QuickStartException(
+                    new ServiceError(
+                            "cannot start the daemon",
+                            "run `qs daemon run` to see why it fails to start",
+                            e)
+            );
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        throw new QuickStartException(
+                new ServiceError(
+                        "daemon did not start in time",
+                        String.format("check %s for errors", DAEMON_LOG_PATH)
+                )
+        );
+    }
+
+    //Pass our home along so the daemon serves the same ~/.quickstart we were started against
+    private List<String> daemonCommand() {
+        String executable = ProcessHandle.current().info().command().orElse("java");
+
+        //A native image is its own launcher, there is no classpath to pass
+        if(System.getProperty("org.graalvm.nativeimage.imagecode") != null){
+            return List.of(executable, "-Duser.home=" + USER_HOME, "daemon", "run");
+        }
+
+        return List.of(executable, "-Duser.home=" + USER_HOME, "-cp", System.getProperty("java.class.path"),
+                QuickStartCommand.class.getName(), "daemon", "run");
+    }
+
+    private void stop() {
+        DaemonServer daemon = DaemonServer.current();
+        if(daemon == null){
+            //Running in-process despite a live daemon means QS_NO_DAEMON bypassed it, so ask the daemon itself
+            if(DaemonClient.send(new String[]{"daemon", "stop"}) == null){
+                System.out.println("daemon is not running");
+            }
+            return;
+        }
+
+        daemon.stop();
+        System.out.println("daemon stopped");
+    }
+
+    private void status() {
+        DaemonServer daemon = DaemonServer.current();
+        if(daemon == null){
+            //We only get here with a live daemon when QS_NO_DAEMON bypassed it, the daemon reports its own pid
+            if(DaemonClient.send(new String[]{"daemon", "status"}) == null){
+                System.out.println("daemon is not running");
+            }
+        }else{
+            System.out.printf("daemon running (pid %d)\n", daemon.pid());
+        }
+    }
+
+    private void runInForeground() {
+        if(DaemonServer.current() != null){
+            System.out.printf("daemon already running (pid %d)\n", DaemonServer.current().pid());
+            return;
+        }
+        if(DaemonClient.isRunning()){
+            status();
+            return;
+        }
+
+        try{
+            new DaemonServer(args -> QuickStartCommand.commandLine().execute(args)).serve();
+        }catch(IOException e){
+            throw new QuickStartException(
+                    new ServiceError(
+                            "daemon failed",
+                            "check that ~/.quickstart/ exists and no other daemon is bound to its socket",
+                            e)
+            );
+        }
+    }
+
+    //An Iterable rather than a list subclass, which would drag in Serializable for nothing
+    static class Actions implements Iterable<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return List.of("start", "stop", "status", "run").iterator();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new CommandLine(new DaemonCommand()).execute(args);
+    }
+}
@@ -0,0 +1,67 @@
+package org.quickstart.commands;
+
+import org.quickstart.dtos.ComposeDown;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.registry.RegistryHandler;
+import picocli.CommandLine;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+@CommandLine.Command(
+        name = "down",
+        description = "Stop and remove the containers of services started with `qs up`",
+        version = "1.0.0",
+        mixinStandardHelpOptions = true
+)
+final class DownCommand implements Callable<Integer> {
+
+    @CommandLine.Parameters(
+            arity = "0..*",
+            description = "The services given to `qs up`, in any order"
+    )
+    private Set<String> services = new HashSet<>();
+
+    @CommandLine.Option(
+            names = {"-p", "--project"},
+            description = "Stop this project instead, i.e. one given to `qs up --project` or a profile name"
+    )
+    private String project;
+
+    @CommandLine.Option(
+            names = "--all",
+            description = "Stop every project started by `qs up` and `qs profile up`"
+    )
+    private boolean all;
+
+    @CommandLine.Option(
+            names = "--volumes",
+            description = "Also remove the named volumes of the projects"
+    )
+    private boolean removeVolumes;
+
+    @CommandLine.ParentCommand
+    private QuickStartCommand command;
+
+    /**
+     * @return 0 if every project was stopped, 1 if docker-compose failed to stop any of them or the projects couldn't
+     * be picked
+     * */
+    @Override
+    public Integer call() {
+        boolean verbose = command.verbose;
+        try{
+            ComposeDown down = RegistryHandler.getInstance().stopProjects(services, project, all, removeVolumes);
+            System.out.println(down);
+            return down.failed().isEmpty() ? 0 : 1;
+        }catch(RegistryException e){
+            System.err.println(e.serviceError().toString(verbose));
+            return 1;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new CommandLine(new DownCommand()).execute(args);
+    }
+}
@@ -3,8 +3,11 @@ package org.quickstart.commands;
 import org.quickstart.exceptions.QuickStartException;
 import org.quickstart.exceptions.ServiceError;
 import org.quickstart.registry.QuickStartInitializer;
+import org.quickstart.registry.RegistryFormat;
+import org.quickstart.registry.RegistryLayout;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.ParentCommand;
 @Command(
         name = "init",
@@ -14,6 +17,18 @@ import picocli.CommandLine.ParentCommand;
 )
 final class InitCommand implements Runnable {
 
+    @Option(
+            names = {"--layout"},
+            description = "Registry layout: ${COMPLETION-CANDIDATES}. `directory` stores one file per service, "
+                    + "`journal` appends each change to a journal instead of rewriting the registry"
+    )
+    private RegistryLayout layout;
+
+    @Option(
+            names = {"--format"},
+            description = "Registry format: ${COMPLETION-CANDIDATES}. `smile` is a compact binary format that loads faster"
+    )
+    private RegistryFormat format;
 
     @ParentCommand
     private QuickStartCommand quickStartCommand;
@@ -23,7 +38,7 @@ final class InitCommand implements Runnable {
     public void run() {
         boolean verbose = quickStartCommand.verbose;
         try{
-            QuickStartInitializer.initQuickStart();
+            QuickStartInitializer.initQuickStart(layout, format);
             System.out.println("initialized quickstart at ~/.quickstart/");
         }catch(QuickStartException e){
             ServiceError error = e.serviceError();
@@ -1,5 +1,6 @@
 package org.quickstart.commands;
 
+import org.quickstart.dtos.RegistryStats;
 import org.quickstart.exceptions.RegistryException;
 import org.quickstart.registry.RegistryHandler;
 import picocli.CommandLine;
@@ -16,6 +17,12 @@ final class ListCommand implements Runnable {
     @CommandLine.ParentCommand
     private QuickStartCommand command;
 
+    @CommandLine.Option(
+            names = {"--stats"},
+            description = "Show how much the registry saves by keeping blocks services have in common once"
+    )
+    private boolean stats = false;
+
     public static void  main(String[] args) {
         new CommandLine(new ListCommand()).execute(args);
     }
@@ -25,6 +32,12 @@ final class ListCommand implements Runnable {
     public void run() {
         boolean verbose = command.verbose;
         try{
+            if(stats){
+                RegistryStats registryStats = RegistryHandler.getInstance().registryStats();
+                System.out.println(registryStats);
+                return;
+            }
+
             String str = RegistryHandler.getInstance().listAllServicesInRegistry();
             System.out.println(str);
         }catch (RegistryException e){
@@ -0,0 +1,62 @@
+package org.quickstart.commands;
+
+import org.quickstart.dtos.RegistryMigration;
+import org.quickstart.exceptions.QuickStartException;
+import org.quickstart.exceptions.ServiceError;
+import org.quickstart.registry.RegistryFormat;
+import org.quickstart.registry.RegistryHandler;
+import org.quickstart.registry.RegistryLayout;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = "migrate",
+        description = "Move all services to a different registry layout or format",
+        version = "1.0.0",
+        mixinStandardHelpOptions = true
+)
+final class MigrateCommand implements Runnable {
+
+    @CommandLine.Option(
+            names = {"--layout"},
+            description = "Registry layout to migrate to: ${COMPLETION-CANDIDATES}"
+    )
+    private RegistryLayout layout;
+
+    @CommandLine.Option(
+            names = {"--format"},
+            description = "Registry format to migrate to: ${COMPLETION-CANDIDATES}"
+    )
+    private RegistryFormat format;
+
+    @CommandLine.Option(
+            names = {"--shared-blocks"},
+            negatable = true,
+            description = "Store blocks several services have in common once, in the file and journal layouts. " +
+                    "`--no-shared-blocks` writes every service in full again"
+    )
+    private Boolean sharedBlocks;
+
+    @CommandLine.ParentCommand
+    private QuickStartCommand quickStartCommand;
+
+    @Override
+    public void run() {
+        boolean verbose = quickStartCommand.verbose;
+        try{
+            if(layout == null && format == null && sharedBlocks == null){
+                throw new QuickStartException(
+                        new ServiceError("nothing to migrate to", "provide --layout, --format, --[no-]shared-blocks or a combination")
+                );
+            }
+
+            RegistryMigration migration = RegistryHandler.getInstance().migrateRegistry(layout, format, sharedBlocks);
+            System.out.println(migration);
+        }catch(QuickStartException e){
+            System.err.println(e.serviceError().toString(verbose));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new CommandLine(new MigrateCommand()).execute(args);
+    }
+}
@@ -1,8 +1,19 @@
 package org.quickstart.commands;
 
 import org.quickstart.compose.TempDirCleaner;
+import org.quickstart.daemon.ClientContext;
+import org.quickstart.daemon.DaemonClient;
+import org.quickstart.dtos.CommandTimings;
+import org.quickstart.exceptions.ServiceError;
+import org.quickstart.timings.Timings;
 import picocli.CommandLine;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.quickstart.constants.QuickStartConstants.TIMINGS_PATH;
 import static picocli.CommandLine.ScopeType.INHERIT;
 
 @CommandLine.Command(
@@ -15,11 +26,15 @@ import static picocli.CommandLine.ScopeType.INHERIT;
                 AddCommand.class,
                 RemoveCommand.class,
                 UpCommand.class,
+                DownCommand.class,
                 ShowCommand.class,
                 ListCommand.class,
                 ProfileCommand.class,
                 ExportCommand.class,
-                ExistCommand.class
+                ExistCommand.class,
+                DaemonCommand.class,
+                MigrateCommand.class,
+                SearchCommand.class
         }
 )
 final class QuickStartCommand implements Runnable {
@@ -31,15 +46,103 @@ final class QuickStartCommand implements Runnable {
     )
     public boolean verbose = false;
 
+    @CommandLine.Option(
+            names = {"--timings"},
+            description = "Print how long each phase of the command took",
+            scope = INHERIT
+    )
+    public boolean timings = false;
+
+    @CommandLine.Option(
+            names = {"--timings-file"},
+            arity = "0..1",
+            fallbackValue = "",
+            paramLabel = "<file>",
+            description = "Append the timings of the command to a json lines file, ~/.quickstart/timings.jsonl by default",
+            scope = INHERIT
+    )
+    public String timingsFile;
+
     @Override
     public void run() {
         // Show help when qs command is called without subcommands
         new CommandLine(this).usage(System.out);
     }
 
+    //Builds the command line used both in-process and by the daemon
+    static CommandLine commandLine() {
+        return new CommandLine(new QuickStartCommand())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .setExecutionStrategy(QuickStartCommand::executeTimed);
+    }
+
+    //Runs the command like picocli would, then reports its timings if they were asked for
+    private static int executeTimed(CommandLine.ParseResult parseResult) {
+        QuickStartCommand root = parseResult.commandSpec().commandLine().getCommand();
+        Timings.command(commandName(parseResult));
+
+        int exitCode = 1;
+        try{
+            exitCode = new CommandLine.RunLast().execute(parseResult);
+            return exitCode;
+        }finally {
+            root.reportTimings(exitCode);
+        }
+    }
+
+    private void reportTimings(int exitCode) {
+        if(!timings && timingsFile == null){
+            return;
+        }
+
+        CommandTimings summary = Timings.summary(exitCode);
+        if(timings){
+            //stderr keeps the command's own output untouched for scripts
+            System.err.println(summary);
+        }
+
+        if(timingsFile != null){
+            Path file = timingsFile.isEmpty() ? TIMINGS_PATH : ClientContext.workingDir().resolve(timingsFile);
+            try{
+                Timings.append(file, summary);
+            }catch (IOException e){
+                System.err.println(new ServiceError(
+                        String.format("cannot append timings to `%s`", file),
+                        "check the file path and directory permissions",
+                        e).toString(verbose));
+            }
+        }
+    }
+
+    //The subcommands that ran, i.e. `profile up`
+    private static String commandName(CommandLine.ParseResult parseResult) {
+        List<String> names = new ArrayList<>();
+        for(CommandLine.ParseResult sub = parseResult.subcommand(); sub != null; sub = sub.subcommand()){
+            names.add(sub.commandSpec().name());
+        }
+        return String.join(" ", names);
+    }
+
     public static void main(String[] args) throws Exception {
-        TempDirCleaner.getInstance().checkForTempFiles();
-        new CommandLine(new QuickStartCommand()).execute(args);
+        Timings.recordStartup();
+
+        //Hand the command to the daemon if one is running, it already has everything below loaded
+        Integer forwarded = DaemonClient.forward(args);
+        if(forwarded != null){
+            exit(forwarded);
+            return;
+        }
+
+        //Off the critical path, the command never waits for it
+        TempDirCleaner.getInstance().cleanInBackground();
+        exit(commandLine().execute(args));
+    }
+
+    //Only failures exit right away, a clean return lets background work such as journal compaction finish
+    private static void exit(int exitCode) {
+        if(exitCode != 0){
+            System.exit(exitCode);
+        }
     }
 
 }
\ No newline at end of file
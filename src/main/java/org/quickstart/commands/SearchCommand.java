@@ -0,0 +1,45 @@
+package org.quickstart.commands;
+
+import org.quickstart.dtos.SearchResult;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.registry.RegistryHandler;
+import picocli.CommandLine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@CommandLine.Command(
+        name = "search",
+        version = "1.0.0",
+        description = "Find services by image, tag, host port, env key, label or volume name",
+        mixinStandardHelpOptions = true
+
+)
+final class SearchCommand implements Runnable {
+
+    @CommandLine.ParentCommand
+    private QuickStartCommand quickStartCommand;
+
+    @CommandLine.Parameters(
+            description = "Terms every service found must match, i.e. `postgres:15`, `port:5432` or `env:REDIS_*`",
+            arity = "1..*"
+    )
+    private List<String> queries = new ArrayList<>();
+
+    @Override
+    public void run() {
+        boolean verbose = quickStartCommand.verbose;
+
+        try{
+            SearchResult result = RegistryHandler.getInstance().searchServices(queries);
+            System.out.println(result);
+        }catch(RegistryException e){
+            System.err.println(e.serviceError().toString(verbose));
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        new CommandLine(new SearchCommand()).execute(args);
+    }
+}
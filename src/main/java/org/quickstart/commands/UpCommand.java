@@ -1,13 +1,21 @@
 package org.quickstart.commands;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.daemon.ClientContext;
 import org.quickstart.dtos.RegistryExport;
+import org.quickstart.dtos.UpOptions;
+import org.quickstart.dtos.UpResult;
+import org.quickstart.exceptions.ComposeException;
 import org.quickstart.exceptions.RegistryException;
 import org.quickstart.exceptions.ServiceError;
 import org.quickstart.registry.RegistryHandler;
 import picocli.CommandLine;
 
+import java.io.PrintStream;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import static picocli.CommandLine.Command;
 
@@ -17,7 +25,7 @@ import static picocli.CommandLine.Command;
         mixinStandardHelpOptions = true,
         version = "1.0"
 )
-final class UpCommand implements Runnable {
+final class UpCommand implements Callable<Integer> {
 
     @CommandLine.Parameters(
             description = "Services to start",
@@ -25,19 +33,112 @@ final class UpCommand implements Runnable {
     )
     private Set<String> services = new HashSet<>();
 
+    @CommandLine.Option(
+            names = {"--temp-file"},
+            description = "Write the compose file to ~/.quickstart/temp instead of piping it to docker-compose"
+    )
+    private boolean useTempFile;
+
+    @CommandLine.Option(
+            names = {"--ordered"},
+            description = "Start services level by level following depends_on, pulling in dependencies that weren't listed"
+    )
+    private boolean ordered;
+
+    @CommandLine.Option(
+            names = {"-p", "--project"},
+            description = "Compose project to run the services under, named after the services by default"
+    )
+    private String project;
+
+    @CommandLine.Option(
+            names = {"--pull"},
+            description = "Pull missing images side by side before docker-compose runs"
+    )
+    private boolean pull;
+
+    @CommandLine.Option(
+            names = {"--pull-parallel"},
+            description = "Maximum number of images pulled at the same time with `--pull` (default: ${DEFAULT-VALUE})",
+            defaultValue = "4"
+    )
+    private int pullParallel;
+
+    @CommandLine.Option(
+            names = {"--force"},
+            description = "Run docker-compose even if the services are running with the same config as the last `qs up`"
+    )
+    private boolean force;
+
+    @CommandLine.Option(
+            names = {"--json"},
+            description = "Print how the run went as json, docker-compose output goes to stderr"
+    )
+    private boolean json;
+
     @CommandLine.ParentCommand
     private QuickStartCommand quickStartCommand;
 
+    /**
+     * @return 0 if the services started or were up to date, the exit code of docker-compose if it failed, or 1 if
+     * it didn't get to run
+     * */
     @Override
-    public void run() {
+    public Integer call() {
         boolean verbose = quickStartCommand.verbose;
 
+        //With `--json` stdout holds nothing but the result, docker-compose and progress are moved to stderr
+        PrintStream stdout = json ? ClientContext.redirectOut(ClientContext.err()) : ClientContext.out();
+
         try{
-            RegistryExport ex = RegistryHandler.getInstance().buildFromRegistryAndRun(services);
-            System.out.println(ex.toString("started services"));
+            if(ordered && useTempFile){
+                throw new RegistryException(
+                        new ServiceError("`--ordered` can't be combined with `--temp-file`", "drop one of the two options")
+                );
+            }
+
+            if(pull && pullParallel < 1){
+                throw new RegistryException(
+                        new ServiceError("pull parallelism must be at least 1", "pass a positive number to `--pull-parallel`")
+                );
+            }
+
+            UpOptions options = new UpOptions(project, useTempFile, force, pull ? pullParallel : 0);
+            RegistryExport ex = ordered
+                    ? RegistryHandler.getInstance().buildFromRegistryAndRunInOrder(services, options, System.out::println)
+                    : RegistryHandler.getInstance().buildFromRegistryAndRun(services, options, System.out::println);
+            if(json){
+                return printJson(stdout, UpResult.of(ex), 0);
+            }
+            stdout.println(ex.toString(ex.unchanged() ? "services are up to date" : "started services"));
+            return 0;
+        }catch(ComposeException e){
+            int exitCode = e.result().exitCode() != 0 ? e.result().exitCode() : 1;
+            if(json){
+                return printJson(stdout, UpResult.failed(e.serviceError(), e.project(), e.result()), exitCode);
+            }
+            System.err.println(e.serviceError().toString(verbose));
+            return exitCode;
         }catch(RegistryException e){
             ServiceError error = e.serviceError();
+            if(json){
+                return printJson(stdout, UpResult.failed(error, project, null), 1);
+            }
             System.err.println(error.toString(verbose));
+            return 1;
+        }finally {
+            ClientContext.redirectOut(stdout);
+        }
+    }
+
+    private int printJson(PrintStream stdout, UpResult result, int exitCode) {
+        try{
+            stdout.println(ObjectMapperConfig.getJsonMapper().writeValueAsString(result));
+            return exitCode;
+        }catch (JsonProcessingException e){
+            System.err.println(new ServiceError("cannot write the result as json", "run again without `--json`", e)
+                    .toString(quickStartCommand.verbose));
+            return 1;
         }
     }
 
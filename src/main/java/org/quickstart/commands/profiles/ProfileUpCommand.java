@@ -1,42 +1,112 @@
 package org.quickstart.commands.profiles;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.quickstart.commands.ProfileCommand;
-import org.quickstart.dtos.ProfileDto;
+import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.daemon.ClientContext;
+import org.quickstart.dtos.ProfileRunSummary;
 import org.quickstart.exceptions.ProfileException;
+import org.quickstart.exceptions.ServiceError;
 import org.quickstart.profiles.ProfileHandler;
 import picocli.CommandLine;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 
 @CommandLine.Command(
         name = "up",
-        description = "Start all services in a profile",
+        description = "Start all services in one or more profiles",
         mixinStandardHelpOptions = true,
         version = "1.0"
 )
-public final class ProfileUpCommand implements Runnable {
+public final class ProfileUpCommand implements Callable<Integer> {
 
     @CommandLine.Parameters(
-            description = "Profile name to start"
+            description = "Profile names to start",
+            arity = "1..*"
+    )
+    private List<String> names = new ArrayList<>();
+
+    @CommandLine.Option(
+            names = {"--parallel"},
+            description = "Maximum number of profiles to start at the same time (default: ${DEFAULT-VALUE})",
+            defaultValue = "1"
+    )
+    private int parallel;
+
+    @CommandLine.Option(
+            names = {"--force"},
+            description = "Run docker-compose even for profiles running with the same content as the last `qs profile up`"
     )
-    private String name;
+    private boolean force;
+
+    @CommandLine.Option(
+            names = {"--json"},
+            description = "Print how each profile went as json, docker-compose output goes to stderr"
+    )
+    private boolean json;
 
     @CommandLine.ParentCommand
     private ProfileCommand parent;
 
+    /**
+     * @return 0 if every profile started or was up to date, 1 otherwise
+     * */
     @Override
-    public void run() {
+    public Integer call() {
         boolean verbose = parent.verbose();
-        ProfileDto dto = null;
+
+        if(json){
+            return runAsJson(verbose);
+        }
+
+        //A single profile keeps its output untouched, several profiles get prefixed output and a summary
+        if(names.size() > 1){
+            try{
+                ProfileRunSummary summary = ProfileHandler.getInstance().runProfiles(names, parallel, force);
+                System.out.println(summary);
+                return summary.allStarted() ? 0 : 1;
+            }catch(ProfileException e){
+                System.err.println(e.serviceError().toString(verbose));
+                return 1;
+            }
+        }
+
+        String name = names.get(0);
+        try{
+            boolean started = ProfileHandler.getInstance().runProfile(name, force);
+            System.out.printf(started ? "started profile '%s'\n" : "profile '%s' is already up to date\n", name);
+            return 0;
+        }catch(ProfileException e){
+            System.err.println(e.serviceError().toString(verbose));
+            return 1;
+        }
+    }
+
+    //Every profile goes through the summary, even a single one, so the json has the same shape whatever was asked for
+    private int runAsJson(boolean verbose) {
+        //stdout holds nothing but the summary, docker-compose output is moved to stderr
+        PrintStream stdout = ClientContext.redirectOut(ClientContext.err());
         try{
-            dto = ProfileHandler.getInstance().runProfile(name);
-            System.out.printf("started profile '%s'\n", name);
+            ProfileRunSummary summary = ProfileHandler.getInstance().runProfiles(names, parallel, force);
+            stdout.println(ObjectMapperConfig.getJsonMapper().writeValueAsString(summary));
+            return summary.allStarted() ? 0 : 1;
         }catch(ProfileException e){
             System.err.println(e.serviceError().toString(verbose));
-            System.out.println(dto == null ? null : dto.toString());
+            return 1;
+        }catch(JsonProcessingException e){
+            System.err.println(new ServiceError("cannot write the summary as json", "run again without `--json`", e)
+                    .toString(verbose));
+            return 1;
+        }finally {
+            ClientContext.redirectOut(stdout);
         }
     }
 
     public static void main(String[] args)  {
         new CommandLine(new ProfileUpCommand()).execute(args);
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,10 @@
 package org.quickstart.compose;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.apache.commons.text.similarity.LevenshteinDistance;
 
 import java.io.IOException;
 import java.util.*;
 
-import static org.quickstart.constants.QuickStartConstants.SIMILARITY_DISTANCE;
-
 
 public class ComposeBuilder {
 
@@ -21,13 +18,31 @@ public class ComposeBuilder {
      * Maps an unfound service name to what the user potentially meant (a similar service name).
      */
     private final Map<String, String> absentServices;
-    private final static LevenshteinDistance levenshteinDistance = LevenshteinDistance.getDefaultInstance();
+
+    /**
+     * Services found in the registry that were asked to be deleted.
+     */
+    private final Set<String> deletedServices;
+
+    /**
+     * Maps an absent service to the service that depends on it, for absent services the user didn't ask for.
+     */
+    private final Map<String, String> requiredBy;
+
+    /**
+     * Dependency cycles and services that can't start because of them or because of absent services.
+     */
+    private final List<String> dependencyErrors;
     private final static int MAX_SERVICE_SIMILARITY_COUNT = 3;
 
     private ComposeBuilder() {
-        this.serviceVolumes = new HashMap<>();
-        this.absentServices = new HashMap<>();
-        this.presentServices = new HashMap<>();
+        //Sorted so the same services always render to the same bytes, `qs up` compares documents by their hash
+        this.serviceVolumes = new TreeMap<>();
+        this.absentServices = new LinkedHashMap<>();
+        this.presentServices = new TreeMap<>();
+        this.deletedServices = new LinkedHashSet<>();
+        this.requiredBy = new LinkedHashMap<>();
+        this.dependencyErrors = new ArrayList<>();
     }
 
     /**
@@ -40,23 +55,20 @@ public class ComposeBuilder {
     }
 
     /**
-     * Builds the compose builder by populating present and absent services based on a root node and expected services.
+     * Builds the compose builder by populating present and absent services based on the registry services found and expected services.
      *
-     * @param rootNode The root JSON node containing available services.
+     * @param registryServices The expected services found in the registry, mapped to their JSON nodes.
      * @param expectedServices The set of service names expected to be present.
      * @return The current ComposeBuilder instance.
      * @throws IOException If an I/O error occurs (though not explicitly thrown by this method's body, kept for signature).
      */
-    public ComposeBuilder buildServices(JsonNode rootNode, Set<String> expectedServices) throws IOException {
-        if (rootNode.isEmpty()) {
-            return this;
-        }
-
+    public ComposeBuilder buildServices(Map<String, JsonNode> registryServices, Set<String> expectedServices) throws IOException {
         for (String service : expectedServices) {
-            if (!rootNode.has(service)) {
+            JsonNode serviceNode = registryServices.get(service);
+            if (serviceNode == null) {
                 absentServices.put(service, "");
             }else{
-                presentServices.put(service, rootNode.get(service));
+                presentServices.put(service, serviceNode);
                 buildVolumes(service);
             }
         }
@@ -65,6 +77,34 @@ public class ComposeBuilder {
     }
 
 
+    /**
+     * Builds the compose builder from a dependency graph. Dependencies the user didn't ask for are present services
+     * like any other, dependencies that aren't in the registry are absent services, and cycles along with the services
+     * that can't start because of them are reported next to the absent services.
+     *
+     * @param graph The resolved dependencies of the expected services.
+     * @return The current ComposeBuilder instance.
+     */
+    public ComposeBuilder buildServices(DependencyGraph graph) {
+        graph.services().forEach((service, serviceNode) -> {
+            presentServices.put(service, serviceNode);
+            buildVolumes(service);
+        });
+
+        graph.missing().forEach((service, dependent) -> {
+            absentServices.put(service, "");
+            if (dependent != null) {
+                requiredBy.put(service, dependent);
+            }
+        });
+
+        graph.cycles().forEach(cycle -> dependencyErrors.add("dependency cycle: " + String.join(" -> ", cycle)));
+        graph.blocked().forEach((service, cause) ->
+                dependencyErrors.add(String.format("service not started: %s (depends on %s)", service, cause)));
+        return this;
+    }
+
+
     /**
      * Ensure services with volumes are properly mapped in the yaml file, so they can be mounted when the user runs them
      * @param service The name of the service
@@ -102,52 +142,33 @@ public class ComposeBuilder {
 
 
     /**
-     * Adds services from a registry and deletes a specified set of services.
+     * Splits a set of services to delete into those found in the registry and those that are absent.
      *
-     * @param registryServices A map of existing services to add to presentServices.
+     * @param registryServices The set of all service names in the registry.
      * @param servicesToDelete The set of service names to delete.
      * @return The current ComposeBuilder instance.
      */
-    public ComposeBuilder delete(Map<String, JsonNode> registryServices, Set<String> servicesToDelete) {
-        this.presentServices.putAll(registryServices);
+    public ComposeBuilder delete(Set<String> registryServices, Set<String> servicesToDelete) {
         servicesToDelete.forEach((service) -> {
-            if (!registryServices.containsKey(service)) {
+            if (!registryServices.contains(service)) {
                 absentServices.put(service, "");
             }else {
-                presentServices.remove(service);
+                deletedServices.add(service);
             }
         });
         return this;
     }
 
     /**
-     * Maps each absent service to the most similar service string in the registry
-     * based on Levenshtein distance (distance <= 1).
+     * Maps each absent service to the most similar service names in the registry.
      *
-     * @param registryServices The set of all available service names in the registry.
+     * @param similarServices Looks up the registry services similar to a name, closest first.
      * @return The current ComposeBuilder instance.
      */
-    public ComposeBuilder mapAbsentServicesToSimilarServices(Set<String> registryServices) {
-        int dist; //Similarity with the service
-
+    public ComposeBuilder mapAbsentServicesToSimilarServices(SimilarServices similarServices) {
         for (String absentService : absentServices.keySet()) {
-            StringBuilder similarServices = new StringBuilder();
-            int count = 0;
-
-            for(String service : registryServices) {
-                dist = levenshteinDistance.apply(service, absentService);
-
-                if(dist <= SIMILARITY_DISTANCE){
-                    similarServices.append(service).append(" ");
-                    count++;
-                }
-
-                if (count >= MAX_SERVICE_SIMILARITY_COUNT) {
-                    break;
-                }
-            }
-
-            absentServices.put(absentService, similarServices.toString().trim());
+            List<String> similar = similarServices.find(absentService, MAX_SERVICE_SIMILARITY_COUNT);
+            absentServices.put(absentService, String.join(" ", similar));
         }
         return this;
     }
@@ -164,7 +185,7 @@ public class ComposeBuilder {
      * @return A string detailing absent services.
      */
     public String absentServicesToString(){
-        if(absentServices.isEmpty()) {
+        if(absentServices.isEmpty() && dependencyErrors.isEmpty()) {
             return "";
         }
 
@@ -173,10 +194,11 @@ public class ComposeBuilder {
         List<String> noMatches = new ArrayList<>();
 
         absentServices.forEach((key, value) -> {
+            String service = requiredBy.containsKey(key) ? key + " (required by " + requiredBy.get(key) + ")" : key;
             if(value.isEmpty()){
-                noMatches.add(key);
+                noMatches.add(service);
             } else {
-                withSuggestions.add(key + " (did you mean: " + value.trim() + "?)");
+                withSuggestions.add(service + " (did you mean: " + value.trim() + "?)");
             }
         });
 
@@ -193,6 +215,8 @@ public class ComposeBuilder {
             sb.append("\n");
         }
 
+        dependencyErrors.forEach(error -> sb.append(error).append("\n"));
+
         return sb.toString().trim();
     }
 
@@ -205,6 +229,15 @@ public class ComposeBuilder {
         return presentServices;
     }
 
+    /**
+     * Returns the services found in the registry that were asked to be deleted.
+     *
+     * @return A set of service names to delete.
+     */
+    public Set<String> deletedServices() {
+        return deletedServices;
+    }
+
     /**
      * Returns the map of service's volumes.
      *
@@ -223,5 +256,18 @@ public class ComposeBuilder {
         return absentServices;
     }
 
+    /**
+     * Looks up the services similar to a service that wasn't found
+     */
+    @FunctionalInterface
+    public interface SimilarServices {
+        /**
+         * @param service The name that wasn't found
+         * @param limit The maximum number of names to return
+         * @return the similar service names, closest first
+         */
+        List<String> find(String service, int limit);
+    }
+
 
 }
\ No newline at end of file
@@ -1,11 +1,20 @@
 package org.quickstart.compose;
 
 import org.quickstart.FileUtils;
+import org.quickstart.dtos.ProcessResult;
 import org.quickstart.processes.ProcessStarter;
+import org.quickstart.timings.Timings;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.quickstart.constants.QuickStartConstants.TEMP_BASE_PATH;
 
 public final class ComposeFile implements AutoCloseable{
 
@@ -14,8 +23,19 @@ public final class ComposeFile implements AutoCloseable{
     private final static String START_COMMAND = "up";
     private final static String DETACH_COMMAND = "-d";
     private final static String PROJECT_NAME_COMMAND = "-p";
+    private final static String PROJECT_DIRECTORY_COMMAND = "--project-directory";
+    private final static String STDIN_FILE = "-";
+    private final static String NO_DEPS_COMMAND = "--no-deps";
+    private final static String WAIT_COMMAND = "--wait";
+    private final static String PS_COMMAND = "ps";
+    private final static String SERVICES_COMMAND = "--services";
+    private final static String FILTER_COMMAND = "--filter";
+    private final static String RUNNING_FILTER = "status=running";
+    private final static String DOWN_COMMAND = "down";
+    private final static String VOLUMES_COMMAND = "--volumes";
     private final Path tempFilePath;
     private final String tempFileName;
+    private final String projectName;
     private final String yamlContent;
     private boolean isProfile = false;
 
@@ -23,6 +43,7 @@ public final class ComposeFile implements AutoCloseable{
         this.yamlContent = readSource(source);
         this.tempFilePath = source;
         this.tempFileName = tempFileName;
+        this.projectName = tempFileName;
         this.isProfile = isProfile;
     }
 
@@ -31,13 +52,26 @@ public final class ComposeFile implements AutoCloseable{
     }
 
     public ComposeFile(String yamlContent, String tempFileName) throws IOException {
+        this(yamlContent, tempFileName, tempFileName);
+    }
+
+    /**
+     * Writes a compose document to a temp file
+     * @param yamlContent The compose document
+     * @param tempFileName The name of the temp file, unique so concurrent runs of the same project don't collide
+     * @param projectName The compose project name
+     * */
+    public ComposeFile(String yamlContent, String tempFileName, String projectName) throws IOException {
         this.yamlContent = yamlContent;
         this.tempFileName = tempFileName;
+        this.projectName = projectName;
         this.tempFilePath = createTempFile(this.tempFileName , yamlContent);
     }
 
     private Path createTempFile(String fileName, String source) throws IOException {
-        return FileUtils.createAndWriteToTempFile(fileName, source);
+        try(Timings.Phase ignored = Timings.start("temp file write")){
+            return FileUtils.createAndWriteToTempFile(fileName, source);
+        }
     }
 
     //Reads content from the acc file
@@ -50,18 +84,120 @@ public final class ComposeFile implements AutoCloseable{
     }
 
     //Starts the docker command for a temp file
-    public void runTempFile() throws IllegalArgumentException, IOException, InterruptedException {
+    public ProcessResult runTempFile() throws IllegalArgumentException, IOException, InterruptedException {
+        return runTempFile(null);
+    }
+
+    /**
+     * Starts the docker command for a temp file
+     * @param outputPrefix Prepended to every line docker prints, null to pass its output through untouched
+     * @return the exit code of docker-compose and the tail of its output
+     * */
+    public ProcessResult runTempFile(String outputPrefix) throws IllegalArgumentException, IOException, InterruptedException {
 
         if(tempFilePath == null || !Files.exists(tempFilePath)){
             throw new IllegalStateException("temp file does not exist");
         }
 
 
-        String[] arr = {BASE_COMMAND, PROJECT_NAME_COMMAND, tempFileName ,FILE_COMMAND, tempFilePath.toAbsolutePath().toString(), START_COMMAND, DETACH_COMMAND};
-        ProcessStarter.startProcess(arr);
+        String[] arr = {BASE_COMMAND, PROJECT_NAME_COMMAND, projectName ,FILE_COMMAND, tempFilePath.toAbsolutePath().toString(), START_COMMAND, DETACH_COMMAND};
+        return ProcessStarter.execute(outputPrefix, null, ProcessStarter.defaultTimeout(), arr);
+    }
+
+    /**
+     * Streams a compose document straight into docker-compose's stdin (`-f -`), so nothing is written to disk or held
+     * as a string. Relative paths resolve against the temp directory, the same place they would for a temp file
+     * @param projectName The compose project name
+     * @param content Writes the compose document
+     * @return the exit code of docker-compose and the tail of its output
+     * */
+    public static ProcessResult runFromStdin(String projectName, ProcessStarter.InputWriter content) throws IOException, InterruptedException {
+        return ProcessStarter.execute(null, content, ProcessStarter.defaultTimeout(), stdinCommand(projectName).toArray(String[]::new));
+    }
+
+    /**
+     * Starts some of the services of a compose document streamed over stdin, leaving their dependencies alone, and waits
+     * until they're running, or healthy for services with a health check
+     * @param projectName The compose project name, the same for every batch of services in the document
+     * @param content Writes the compose document
+     * @param services The services to start, docker-compose starts them concurrently
+     * @return the exit code of docker-compose and the tail of its output
+     * */
+    public static ProcessResult runServicesFromStdin(String projectName, ProcessStarter.InputWriter content, Collection<String> services) throws IOException, InterruptedException {
+        List<String> command = stdinCommand(projectName);
+        command.add(NO_DEPS_COMMAND);
+        command.add(WAIT_COMMAND);
+        command.addAll(services);
+        return ProcessStarter.execute(null, content, ProcessStarter.defaultTimeout(), command.toArray(String[]::new));
+    }
+
+    /**
+     * Asks docker-compose which services of a project are running, the document is streamed over stdin
+     * @param projectName The compose project name
+     * @param content Writes the compose document
+     * @return the running services, or null if docker-compose couldn't tell
+     * */
+    public static Set<String> runningServices(String projectName, ProcessStarter.InputWriter content) throws IOException, InterruptedException {
+        return runningServices(content,
+                PROJECT_NAME_COMMAND, projectName,
+                PROJECT_DIRECTORY_COMMAND, TEMP_BASE_PATH.toAbsolutePath().toString(),
+                FILE_COMMAND, STDIN_FILE);
+    }
+
+    /**
+     * Asks docker-compose which services of a project are running
+     * @param projectName The compose project name
+     * @param file The compose file, read in place so its relative paths resolve the way they do on `up`
+     * @return the running services, or null if docker-compose couldn't tell
+     * */
+    public static Set<String> runningServices(String projectName, Path file) throws IOException, InterruptedException {
+        return runningServices(null,
+                PROJECT_NAME_COMMAND, projectName,
+                FILE_COMMAND, file.toAbsolutePath().toString());
+    }
+
+    private static Set<String> runningServices(ProcessStarter.InputWriter content, String... projectArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(BASE_COMMAND);
+        command.addAll(List.of(projectArgs));
+        command.addAll(List.of(PS_COMMAND, SERVICES_COMMAND, FILTER_COMMAND, RUNNING_FILTER));
 
+        String output = ProcessStarter.readOutput(content, command.toArray(String[]::new));
+        if(output == null){
+            return null;
+        }
+        return output.lines().map(String::trim).filter(line -> !line.isEmpty()).collect(Collectors.toSet());
+    }
 
+    /**
+     * Stops and removes the containers and network of a project. docker-compose v2 finds them by project name alone,
+     * so the document they were started from isn't needed. It runs against the temp directory like `qs up`, a compose
+     * file in the user's directory would otherwise be loaded and the project's containers left running as orphans
+     * @param projectName The compose project name
+     * @param removeVolumes Also removes the project's named volumes
+     * @return the exit code of docker-compose
+     * */
+    public static int down(String projectName, boolean removeVolumes) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                BASE_COMMAND,
+                PROJECT_NAME_COMMAND, projectName,
+                PROJECT_DIRECTORY_COMMAND, TEMP_BASE_PATH.toAbsolutePath().toString(),
+                DOWN_COMMAND
+        ));
+        if(removeVolumes){
+            command.add(VOLUMES_COMMAND);
+        }
+        return ProcessStarter.startProcess(command.toArray(String[]::new));
+    }
 
+    private static List<String> stdinCommand(String projectName) {
+        return new ArrayList<>(List.of(
+                BASE_COMMAND,
+                PROJECT_NAME_COMMAND, projectName,
+                PROJECT_DIRECTORY_COMMAND, TEMP_BASE_PATH.toAbsolutePath().toString(),
+                FILE_COMMAND, STDIN_FILE,
+                START_COMMAND, DETACH_COMMAND
+        ));
     }
 
     @Override
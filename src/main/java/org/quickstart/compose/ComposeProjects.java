@@ -0,0 +1,205 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.quickstart.FileUtils;
+import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.dtos.ComposeProject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.quickstart.constants.QuickStartConstants.PROJECTS_PATH;
+
+/**
+ * Names the compose projects `qs up` creates and remembers what each one was last brought up with, so bringing up the
+ * same services again is skipped when nothing changed and they're still running.
+ * A project is identified by the sorted set of services asked for, or by the profile name, and its state is the hash of
+ * the compose document, which {@link ComposeBuilder} keeps byte for byte the same as long as the services are
+ * */
+public final class ComposeProjects {
+
+    private final static String PROJECT_PREFIX = "qs-";
+    private final static int MAX_READABLE_LENGTH = 40;
+    private final static int DIGEST_LENGTH = 8;
+    private final static String EXTENSION = ".json";
+    private final static Pattern VALID_NAME = Pattern.compile("[a-z0-9][a-z0-9_-]*");
+
+    private ComposeProjects() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Names the project of a set of services the same way on every run, i.e. `qs-postgres-redis-1b2c3d4e`. The names
+     * are kept readable when they fit, the digest of the whole set tells apart sets that only differ past that
+     * @param services The services asked for, in any order
+     * @return a valid compose project name
+     * */
+    public static String projectName(Collection<String> services) {
+        List<String> sorted = services.stream().sorted().toList();
+
+        String readable = sorted.stream()
+                .map(service -> service.toLowerCase().replaceAll("[^a-z0-9_-]", ""))
+                .filter(service -> !service.isEmpty())
+                .collect(Collectors.joining("-"));
+        if (readable.length() > MAX_READABLE_LENGTH) {
+            readable = readable.substring(0, MAX_READABLE_LENGTH);
+        }
+
+        String digest = hash(out -> out.write(String.join("\n", sorted).getBytes(StandardCharsets.UTF_8)));
+        return PROJECT_PREFIX + (readable.isEmpty() ? "" : readable + "-") + digest.substring(0, DIGEST_LENGTH);
+    }
+
+    /**
+     * @param project A project name given by the user
+     * @return true if docker-compose accepts it as a project name
+     * */
+    public static boolean isValidName(String project) {
+        return VALID_NAME.matcher(project).matches();
+    }
+
+    /**
+     * Hashes a document as it's written, without holding it in memory
+     * @param content Writes the document
+     * @return the SHA-256 of the document in hex, or null if it couldn't be written
+     * */
+    public static String hash(FileUtils.ContentWriter content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+                content.writeTo(out);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tells whether bringing up a project again would change nothing: it was last brought up with the same document and
+     * every one of its services is still running. docker-compose is only asked when the document matches
+     * @param project The compose project name
+     * @param hash The hash of the document about to be brought up
+     * @param services The services in that document
+     * @param runningServices Asks docker-compose which services of the project are running, null if it can't tell
+     * @return true if the `up` can be skipped
+     * */
+    public static boolean isUpToDate(String project, String hash, Collection<String> services, RunningServices runningServices) {
+        if (hash == null || services.isEmpty()) {
+            return false;
+        }
+
+        ComposeProject last = read(project);
+        if (last == null || !hash.equals(last.hash())) {
+            return false;
+        }
+
+        try {
+            Set<String> running = runningServices.find();
+            return running != null && running.containsAll(services);
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Remembers the document a project was just brought up with. Failing to write it only costs a skipped `up` later
+     * @param project The compose project name
+     * @param hash The hash of the document
+     * @param services The services in that document
+     * */
+    public static void record(String project, String hash, Collection<String> services) {
+        if (hash == null) {
+            return;
+        }
+
+        ComposeProject state = new ComposeProject(project, hash, services.stream().sorted().toList(), Instant.now().toString());
+        try {
+            Files.createDirectories(PROJECTS_PATH);
+            ObjectMapper mapper = ObjectMapperConfig.getJsonMapper();
+            FileUtils.writeAtomically(stateFile(project), out -> mapper.writeValue(out, state));
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    /**
+     * @param project The compose project name
+     * @return what the project was last brought up with, or null if `qs up` never brought it up
+     * */
+    public static ComposeProject read(String project) {
+        Path file = stateFile(project);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try {
+            return ObjectMapperConfig.getJsonMapper().readValue(file.toFile(), ComposeProject.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return every project `qs up` or `qs profile up` brought up and `qs down` hasn't stopped since, by name
+     * */
+    public static List<ComposeProject> recorded() {
+        if (!Files.isDirectory(PROJECTS_PATH)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(PROJECTS_PATH)) {
+            return files.map(Path::getFileName)
+                    .map(Path::toString)
+                    .filter(file -> file.endsWith(EXTENSION))
+                    .map(file -> read(file.substring(0, file.length() - EXTENSION.length())))
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(ComposeProject::name))
+                    .toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Forgets what a project was brought up with, once it's been stopped
+     * @param project The compose project name
+     * */
+    public static void forget(String project) {
+        try {
+            Files.deleteIfExists(stateFile(project));
+        } catch (IOException ignored) {
+
+        }
+    }
+
+    private static Path stateFile(String project) {
+        return PROJECTS_PATH.resolve(project + EXTENSION);
+    }
+
+    /**
+     * Asks docker-compose which services of a project are running, see {@link ComposeFile#runningServices}
+     * */
+    @FunctionalInterface
+    public interface RunningServices {
+        Set<String> find() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,92 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Reads the `services` section of a compose file one service at a time, straight off the parser. Only the service being
+ * read is ever held as a tree, everything outside `services` and every service that isn't wanted is skipped over
+ * without being built
+ * */
+public final class ComposeServiceReader {
+
+    private static final String SERVICES = "services";
+
+    private ComposeServiceReader() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @param file The compose file
+     * @param mapper Builds each service's tree, {@link org.quickstart.configurations.ObjectMapperConfig#getComposeYAMLMapper()}
+     * @param wanted Decides from its name whether a service is built at all
+     * @param consumer Takes each wanted service as soon as it's read, in the order of the file
+     * @return whether the file had any services
+     * */
+    public static Outcome read(Path file, ObjectMapper mapper, Predicate<String> wanted, BiConsumer<String, JsonNode> consumer) throws IOException {
+        try(JsonParser parser = mapper.createParser(file.toFile())){
+            if(parser.nextToken() != JsonToken.START_OBJECT){
+                return Outcome.EMPTY;
+            }
+
+            Outcome outcome = Outcome.EMPTY;
+            while(parser.nextToken() == JsonToken.FIELD_NAME){
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                outcome = Outcome.NO_SERVICES;
+
+                if(!SERVICES.equals(field) || value != JsonToken.START_OBJECT){
+                    parser.skipChildren();
+                    continue;
+                }
+
+                if(readServices(parser, mapper, wanted, consumer)){
+                    return Outcome.READ;
+                }
+            }
+            return outcome;
+        }
+    }
+
+    //Reads the entries of the services object, the parser is left on its end
+    private static boolean readServices(JsonParser parser, ObjectMapper mapper, Predicate<String> wanted, BiConsumer<String, JsonNode> consumer) throws IOException {
+        boolean any = false;
+        while(parser.nextToken() == JsonToken.FIELD_NAME){
+            String service = parser.currentName();
+            parser.nextToken();
+            any = true;
+
+            if(wanted.test(service)){
+                consumer.accept(service, mapper.readTree(parser));
+            }else{
+                parser.skipChildren();
+            }
+        }
+        return any;
+    }
+
+    /**
+     * What a compose file held
+     * */
+    public enum Outcome {
+        /**
+         * Nothing, or something other than a mapping
+         * */
+        EMPTY,
+        /**
+         * A mapping without services
+         * */
+        NO_SERVICES,
+        /**
+         * At least one service, whether or not it was wanted
+         * */
+        READ
+    }
+}
@@ -0,0 +1,266 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+
+/**
+ * The services needed to start a set of services, ordered by their `depends_on` entries.
+ * Dependencies the user didn't ask for are pulled in from the registry, then every service is placed in a level so
+ * a service only depends on services in earlier levels. Services in the same level don't depend on each other and can
+ * start at the same time
+ * */
+public final class DependencyGraph {
+
+    private final static String DEPENDS_ON = "depends_on";
+
+    /**
+     * Startable services mapped to their config, in the order they were found
+     */
+    private final Map<String, JsonNode> services;
+
+    /**
+     * Maps each service's dependencies, only holds dependencies found in the registry
+     */
+    private final Map<String, Set<String>> dependencies;
+
+    /**
+     * Maps a dependency that isn't in the registry to the service that needs it, requested services map to null
+     */
+    private final Map<String, String> missing;
+
+    private final List<List<String>> levels;
+    private final List<List<String>> cycles;
+
+    /**
+     * Maps a service that can't start to the dependency that stops it
+     */
+    private final Map<String, String> blocked;
+
+    private DependencyGraph() {
+        this.services = new LinkedHashMap<>();
+        this.dependencies = new LinkedHashMap<>();
+        this.missing = new LinkedHashMap<>();
+        this.levels = new ArrayList<>();
+        this.cycles = new ArrayList<>();
+        this.blocked = new LinkedHashMap<>();
+    }
+
+    /**
+     * Reads the requested services and everything they depend on, one batch of reads per layer of dependencies
+     *
+     * @param requested The services the user asked for
+     * @param loader Reads a set of services from the registry, services not found are left out
+     * @return the resolved graph
+     */
+    public static DependencyGraph resolve(Set<String> requested, ServiceLoader loader) {
+        DependencyGraph graph = new DependencyGraph();
+        Map<String, JsonNode> found = new LinkedHashMap<>();
+        Map<String, String> requiredBy = new LinkedHashMap<>();
+        requested.forEach(service -> requiredBy.put(service, null));
+
+        Set<String> frontier = new LinkedHashSet<>(requested);
+        while (!frontier.isEmpty()) {
+            Map<String, JsonNode> batch = loader.load(frontier);
+            Set<String> next = new LinkedHashSet<>();
+
+            for (String service : frontier) {
+                JsonNode node = batch.get(service);
+                if (node == null) {
+                    graph.missing.put(service, requiredBy.get(service));
+                    continue;
+                }
+
+                found.put(service, node);
+                for (String dependency : dependenciesOf(node)) {
+                    if (!requiredBy.containsKey(dependency)) {
+                        requiredBy.put(dependency, service);
+                        next.add(dependency);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        found.forEach((service, node) -> {
+            Set<String> deps = new LinkedHashSet<>();
+            for (String dependency : dependenciesOf(node)) {
+                if (found.containsKey(dependency)) {
+                    deps.add(dependency);
+                }
+            }
+            graph.dependencies.put(service, deps);
+        });
+
+        graph.sort(found);
+        return graph;
+    }
+
+    /**
+     * Reads `depends_on`, which compose allows as either a list of names or a map of names to conditions
+     */
+    static Set<String> dependenciesOf(JsonNode service) {
+        Set<String> names = new LinkedHashSet<>();
+        JsonNode dependsOn = service == null ? null : service.get(DEPENDS_ON);
+        if (dependsOn == null) {
+            return names;
+        }
+
+        if (dependsOn.isArray()) {
+            dependsOn.forEach(name -> names.add(name.asText()));
+        } else if (dependsOn.isObject()) {
+            dependsOn.fieldNames().forEachRemaining(names::add);
+        } else if (dependsOn.isTextual()) {
+            names.add(dependsOn.asText());
+        }
+        return names;
+    }
+
+    //Kahn's algorithm, one level per round. Whatever is left once no service is ready sits in or behind a cycle
+    private void sort(Map<String, JsonNode> found) {
+        //A service with a missing dependency can't start, and neither can anything that depends on it
+        Set<String> unavailable = new HashSet<>();
+        missing.forEach((dependency, service) -> {
+            if (service != null) {
+                block(service, dependency, unavailable);
+            }
+        });
+
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        dependencies.forEach((service, deps) -> {
+            if (!unavailable.contains(service)) {
+                pending.put(service, deps.size());
+            }
+        });
+
+        Set<String> placed = new HashSet<>();
+        while (true) {
+            List<String> level = new ArrayList<>();
+            pending.forEach((service, count) -> {
+                if (count == 0) {
+                    level.add(service);
+                }
+            });
+
+            if (level.isEmpty()) {
+                break;
+            }
+
+            level.forEach(pending::remove);
+            placed.addAll(level);
+            pending.replaceAll((service, count) -> (int) dependencies.get(service).stream().filter(d -> !placed.contains(d)).count());
+            levels.add(level);
+        }
+
+        if (!pending.isEmpty()) {
+            recordCycles(pending.keySet(), unavailable);
+        }
+
+        found.forEach((service, node) -> {
+            if (placed.contains(service)) {
+                services.put(service, node);
+            }
+        });
+    }
+
+    //Marks a service and every service depending on it as unable to start
+    private void block(String service, String cause, Set<String> unavailable) {
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(service);
+        blocked.putIfAbsent(service, cause);
+        unavailable.add(service);
+
+        while (!pending.isEmpty()) {
+            String current = pending.pop();
+            dependencies.forEach((dependent, deps) -> {
+                if (deps.contains(current) && unavailable.add(dependent)) {
+                    blocked.putIfAbsent(dependent, current);
+                    pending.push(dependent);
+                }
+            });
+        }
+    }
+
+    //Finds a cycle among the services that were never placed, those not on a cycle are only blocked behind one
+    private void recordCycles(Set<String> unplaced, Set<String> unavailable) {
+        Set<String> remaining = new LinkedHashSet<>(unplaced);
+        Set<String> onCycle = new HashSet<>();
+
+        for (String start : unplaced) {
+            if (onCycle.contains(start)) {
+                continue;
+            }
+
+            //Walk unplaced dependencies until a service repeats, every unplaced service has at least one
+            List<String> path = new ArrayList<>();
+            Map<String, Integer> seenAt = new HashMap<>();
+            String current = start;
+            while (current != null && !seenAt.containsKey(current)) {
+                seenAt.put(current, path.size());
+                path.add(current);
+                current = dependencies.get(current).stream().filter(remaining::contains).findFirst().orElse(null);
+            }
+
+            if (current == null) {
+                continue;
+            }
+
+            List<String> cycle = new ArrayList<>(path.subList(seenAt.get(current), path.size()));
+            if (cycle.stream().noneMatch(onCycle::contains)) {
+                onCycle.addAll(cycle);
+                cycle.add(current);
+                cycles.add(cycle);
+            }
+        }
+
+        for (String service : unplaced) {
+            if (!onCycle.contains(service) && !unavailable.contains(service)) {
+                String cause = dependencies.get(service).stream().filter(remaining::contains).findFirst().orElse(null);
+                blocked.put(service, cause);
+            }
+        }
+    }
+
+    /**
+     * @return the startable services mapped to their config
+     */
+    public Map<String, JsonNode> services() {
+        return services;
+    }
+
+    /**
+     * @return the startable services in levels, every service only depends on services in earlier levels
+     */
+    public List<List<String>> levels() {
+        return levels;
+    }
+
+    /**
+     * @return services that weren't found, mapped to the service that depends on them or null if the user asked for them
+     */
+    public Map<String, String> missing() {
+        return missing;
+    }
+
+    /**
+     * @return every dependency cycle found, each cycle ends with the service it starts with
+     */
+    public List<List<String>> cycles() {
+        return cycles;
+    }
+
+    /**
+     * @return services that can't start because of a missing, cyclic or blocked dependency, mapped to that dependency
+     */
+    public Map<String, String> blocked() {
+        return blocked;
+    }
+
+    /**
+     * Reads services from the registry
+     */
+    @FunctionalInterface
+    public interface ServiceLoader {
+        Map<String, JsonNode> load(Set<String> services);
+    }
+}
@@ -0,0 +1,131 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.quickstart.daemon.ClientContext;
+import org.quickstart.dtos.ImagePullSummary;
+import org.quickstart.processes.ProcessStarter;
+import org.quickstart.timings.Timings;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pulls the images of a compose document before docker-compose runs it. docker-compose pulls as part of `up`, which
+ * dominates cold starts of stacks with many services, here the distinct images are pulled side by side on virtual
+ * threads and images already present locally are skipped. Failed pulls are only reported, docker-compose pulls them
+ * again and fails with its own error
+ * */
+public final class ImagePuller {
+
+    private final static String DOCKER = "docker";
+    private final static String IMAGE = "image";
+    private final static String BUILD = "build";
+
+    private ImagePuller() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @param services The service configs of a compose document
+     * @return the distinct images of the services, sorted. Services built from source are left out, docker-compose
+     * builds them and their `image` only names the result
+     * */
+    public static Set<String> images(Collection<JsonNode> services) {
+        Set<String> images = new TreeSet<>();
+        for (JsonNode service : services) {
+            JsonNode image = service == null ? null : service.get(IMAGE);
+            if (image != null && image.isTextual() && !image.asText().isBlank() && !service.has(BUILD)) {
+                images.add(image.asText().trim());
+            }
+        }
+        return images;
+    }
+
+    /**
+     * Pulls the images of the services that aren't present locally
+     * @param services The service configs of a compose document
+     * @param parallelism The maximum number of images checked or pulled at the same time
+     * @param progress Told about each image once it's done
+     * @return which images were pulled, already present or failed
+     * */
+    public static ImagePullSummary pullMissing(Collection<JsonNode> services, int parallelism, Consumer<String> progress) {
+        List<String> images = List.copyOf(images(services));
+        List<String> pulled = Collections.synchronizedList(new ArrayList<>());
+        List<String> present = Collections.synchronizedList(new ArrayList<>());
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicInteger done = new AtomicInteger();
+        long start = System.nanoTime();
+
+        try(Timings.Phase ignored = Timings.start("image pull");
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()){
+            for(String image : images){
+                executor.submit(ClientContext.propagate(() -> {
+                    permits.acquire();
+                    try{
+                        long imageStart = System.nanoTime();
+                        String outcome;
+                        if(isPresent(image)){
+                            present.add(image);
+                            outcome = "present";
+                        }else if(pull(image)){
+                            pulled.add(image);
+                            outcome = "pulled ";
+                        }else{
+                            failed.add(image);
+                            outcome = "failed ";
+                        }
+                        //Counted and reported together so the counts come out in order
+                        synchronized (done){
+                            progress.accept(String.format("[%d/%d] %s %s (%.1fs)",
+                                    done.incrementAndGet(), images.size(), outcome, image, elapsedMillis(imageStart) / 1000.0));
+                        }
+                    }finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+        } //Closing the executor waits for every pull
+
+        return new ImagePullSummary(sorted(pulled), sorted(present), sorted(failed), elapsedMillis(start));
+    }
+
+    private static boolean isPresent(String image) throws InterruptedException {
+        try{
+            return ProcessStarter.readOutput(null, DOCKER, IMAGE, "inspect", "--format", "{{.Id}}", image) != null;
+        }catch (IOException e){
+            return false;
+        }
+    }
+
+    private static boolean pull(String image) throws InterruptedException {
+        try{
+            return ProcessStarter.readOutput(null, DOCKER, "pull", "--quiet", image) != null;
+        }catch (IOException e){
+            return false;
+        }
+    }
+
+    private static List<String> sorted(List<String> images) {
+        synchronized (images){
+            return images.stream().sorted().toList();
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
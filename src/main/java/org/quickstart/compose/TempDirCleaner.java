@@ -1,31 +1,98 @@
 package org.quickstart.compose;
 
 import org.quickstart.constants.QuickStartConstants;
+import org.quickstart.timings.Timings;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.stream.Stream;
 
+/**
+ * Deletes temp compose files left behind by runs that didn't get to delete their own, i.e. because they were killed.
+ * Only files older than {@link #maxAge()} are deleted, so a file another `qs up` is still handing to docker is never
+ * touched. A marker file records the last cleanup, the directory is only walked again once files could have gone stale
+ * */
 public final class TempDirCleaner {
 
+    /**
+     * How old a temp file has to be, in minutes, before it's deleted
+     * */
+    public static final String MAX_AGE_ENV = "QS_TEMP_MAX_AGE";
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofHours(1);
+    private static final String MARKER = ".last-cleanup";
+
     private TempDirCleaner() {
 
     }
 
-    public void checkForTempFiles(){
-        try(Stream<Path> paths = Files.walk(QuickStartConstants.TEMP_BASE_PATH)){
+    /**
+     * Cleans the temp directory on a virtual thread, which never keeps the JVM alive. A cleanup cut short by the
+     * command exiting is picked up by the next one
+     * */
+    public void cleanInBackground(){
+        Thread.ofVirtual().name("temp-cleaner").start(this::cleanIfDue);
+    }
 
+    /**
+     * Deletes stale temp files unless the directory was cleaned less than {@link #maxAge()} ago
+     * */
+    public void cleanIfDue(){
+        Duration maxAge = maxAge();
+        Path marker = QuickStartConstants.TEMP_BASE_PATH.resolve(MARKER);
+        Instant now = Instant.now();
+
+        try{
+            //Any file old enough to delete now was already there, and young enough to keep, at the last cleanup
+            if(Files.getLastModifiedTime(marker).toInstant().plus(maxAge).isAfter(now)){
+                return;
+            }
+        }catch (IOException ignored){
+            //Never cleaned before
+        }
+
+        try(Timings.Phase ignored = Timings.start("temp cleanup")){
+            deleteOlderThan(now.minus(maxAge), marker);
+            Files.write(marker, new byte[0]);
+            Files.setLastModifiedTime(marker, FileTime.from(now));
+        }catch (IOException ignored){
+            //The temp directory is missing, `qs init` creates it
+        }
+    }
+
+    private void deleteOlderThan(Instant cutoff, Path marker) throws IOException {
+        try(Stream<Path> paths = Files.walk(QuickStartConstants.TEMP_BASE_PATH)){
             paths.filter(Files::isRegularFile)
+                    .filter(p -> !p.equals(marker))
                     .forEach(p-> {
                 try{
-                    Files.deleteIfExists(p);
+                    if(Files.getLastModifiedTime(p).toInstant().isBefore(cutoff)){
+                        Files.deleteIfExists(p);
+                    }
                 }catch (IOException ignored){
 
                 }
             });
-        }catch (IOException ignored){
+        }
+    }
+
+    /**
+     * @return how old a temp file has to be before it's deleted, from {@value MAX_AGE_ENV} or an hour by default
+     * */
+    public Duration maxAge(){
+        String minutes = System.getenv(MAX_AGE_ENV);
+        if(minutes == null){
+            return DEFAULT_MAX_AGE;
+        }
 
+        try{
+            long value = Long.parseLong(minutes.trim());
+            return value < 0 ? DEFAULT_MAX_AGE : Duration.ofMinutes(value);
+        }catch (NumberFormatException e){
+            return DEFAULT_MAX_AGE;
         }
     }
 
@@ -3,12 +3,20 @@ package org.quickstart.configurations;
 import com.fasterxml.jackson.core.StreamReadFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import org.yaml.snakeyaml.LoaderOptions;
 
 public final class ObjectMapperConfig {
 
+    /**
+     * The most characters a compose file read by {@link #getComposeYAMLMapper()} may hold, far past SnakeYAML's
+     * default of 3 MB but still a bound on what a runaway file can cost
+     * */
+    public static final int COMPOSE_CODE_POINT_LIMIT = 256 * 1024 * 1024;
+
     private ObjectMapperConfig() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
     }
@@ -17,19 +25,48 @@ public final class ObjectMapperConfig {
         return ObjectMapperHolder.YAML_MAPPER;
     }
 
+    /**
+     * @return a YAML mapper for compose files read a service at a time, which may be much larger than anything
+     * read whole, see {@link #COMPOSE_CODE_POINT_LIMIT}
+     * */
+    public static YAMLMapper getComposeYAMLMapper() {
+        return ComposeMapperHolder.COMPOSE_YAML_MAPPER;
+    }
+
     public static ObjectMapper getJsonMapper() {
         return ObjectMapperHolder.JSON_MAPPER;
     }
 
+    public static ObjectMapper getSmileMapper() {
+        return SmileMapperHolder.SMILE_MAPPER;
+    }
+
     protected static class ObjectMapperHolder{
         private final static ObjectMapper JSON_MAPPER = new ObjectMapper()
                 .enable(SerializationFeature.INDENT_OUTPUT)
                 .enable(StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION.mappedFeature());
-        private final static YAMLMapper YAML_MAPPER = new YAMLMapper(configureYamlFactory());
+        private final static YAMLMapper YAML_MAPPER = new YAMLMapper(configureYamlFactory(new LoaderOptions()));
+    }
+
+    protected static class ComposeMapperHolder{
+        private final static YAMLMapper COMPOSE_YAML_MAPPER = new YAMLMapper(configureYamlFactory(composeLoaderOptions()));
+    }
+
+    //Kept apart from the other mappers so json registries never load the smile codec
+    protected static class SmileMapperHolder{
+        private final static SmileMapper SMILE_MAPPER = new SmileMapper();
+    }
+
+    //Imports are streamed, so generated compose files far past SnakeYAML's default 3 MB limit are fine to read
+    private static LoaderOptions composeLoaderOptions(){
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit(COMPOSE_CODE_POINT_LIMIT);
+        return loaderOptions;
     }
 
-    private static YAMLFactory configureYamlFactory(){
+    private static YAMLFactory configureYamlFactory(LoaderOptions loaderOptions){
         return YAMLFactory.builder()
+                .loaderOptions(loaderOptions)
                 .enable(YAMLGenerator.Feature.INDENT_ARRAYS_WITH_INDICATOR)//Ensure arrays are always indented
                 .enable(YAMLGenerator.Feature.LITERAL_BLOCK_STYLE)
                 .enable(StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION)
@@ -10,8 +10,22 @@ public class QuickStartConstants {
     public static final String USER_HOME = System.getProperty("user.home");
     public static final Path BASE_PATH = Paths.get(USER_HOME, QUICK_START_FOLDER).normalize();
     public static final Path REGISTRY_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "registry.json").normalize();
+    public static final Path REGISTRY_DIR_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "registry").normalize();
+    public static final Path REGISTRY_JOURNAL_DIR_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "journal").normalize();
+    public static final Path CONFIG_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "config.json").normalize();
+    public static final Path REGISTRY_LOCK_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "registry.lock").normalize();
+    public static final Path REGISTRY_VERSION_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "registry.version").normalize();
     public static final Path PROFILE_BASE_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "profiles").normalize();
     public static final Path TEMP_BASE_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "temp").normalize();
+    public static final Path PROJECTS_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "projects").normalize();
+    public static final Path DAEMON_DIR_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "daemon").normalize();
+    public static final Path DAEMON_SOCKET_PATH = DAEMON_DIR_PATH.resolve("qs.sock");
+    public static final Path SOURCES_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "sources.json").normalize();
+    public static final Path SERVICE_INDEX_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "services.idx").normalize();
+    public static final Path SEARCH_INDEX_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "search.idx").normalize();
+    public static final Path PROFILE_INDEX_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "profiles.idx").normalize();
+    public static final Path DAEMON_LOG_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "daemon.log").normalize();
+    public static final Path TIMINGS_PATH = Path.of(USER_HOME, QUICK_START_FOLDER, "timings.jsonl").normalize();
     public static final Path USER_DIR = Path.of("").toAbsolutePath();
     public static final String YML_EXTENSION = ".yml";
     public static final int SIMILARITY_DISTANCE = 2;
@@ -0,0 +1,151 @@
+package org.quickstart.daemon;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.quickstart.constants.QuickStartConstants.USER_DIR;
+
+/**
+ * Holds the working directory, environment and output streams of the client a command is running for.
+ * When a command runs in-process these are simply the current process' values, when it runs inside the daemon they are
+ * the values the thin client sent along with its arguments, and the streams relaying output back to it
+ * */
+public final class ClientContext {
+
+    private static final ThreadLocal<Client> CURRENT = new ThreadLocal<>();
+
+    //The streams the process started with, this class is loaded before any command moves them
+    private static final PrintStream PROCESS_OUT = System.out;
+    private static final PrintStream PROCESS_ERR = System.err;
+
+    private ClientContext() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @return the directory relative file names given by the user should be resolved against
+     * */
+    public static Path workingDir() {
+        Client client = CURRENT.get();
+        return client == null ? USER_DIR : client.request().workingDir();
+    }
+
+    /**
+     * @return the environment child processes (docker-compose) should be started with
+     * */
+    public static Map<String, String> environment() {
+        Client client = CURRENT.get();
+        return client == null ? System.getenv() : client.request().environment();
+    }
+
+    /**
+     * Inside the daemon {@link System#out} already routes to this stream, threads that print for a command without
+     * running in its context, i.e. the pumps relaying docker-compose's output, need the stream itself
+     * @return the stream the command's output goes to
+     * */
+    public static PrintStream out() {
+        Client client = CURRENT.get();
+        return client == null ? System.out : client.out();
+    }
+
+    /**
+     * @return the stream the command's errors go to, see {@link #out()}
+     * */
+    public static PrintStream err() {
+        Client client = CURRENT.get();
+        return client == null ? System.err : client.err();
+    }
+
+    /**
+     * Sends the command's output somewhere else, i.e. to stderr so stdout only holds json. Inside the daemon only the
+     * calling command's output moves, in-process this is {@link System#setOut(PrintStream)}
+     * @param out The stream the command's output should go to
+     * @return the stream it went to before, to restore it with
+     * */
+    public static PrintStream redirectOut(PrintStream out) {
+        Client client = CURRENT.get();
+        if (client == null) {
+            PrintStream previous = System.out;
+            System.setOut(out);
+            return previous;
+        }
+
+        CURRENT.set(new Client(client.request(), out, client.err()));
+        return client.out();
+    }
+
+    /**
+     * @return true when the command is running inside the daemon on behalf of a thin client
+     * */
+    public static boolean isRemote() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @return true if the command's output goes to the streams this process started with, so a child process can
+     * write to them itself. False inside the daemon and once the output was moved, i.e. by `--json`
+     * */
+    public static boolean writesToProcessStreams() {
+        return !isRemote() && System.out == PROCESS_OUT && System.err == PROCESS_ERR;
+    }
+
+    /**
+     * Wraps a task so it runs with the caller's client context on whatever thread picks it up, the context is thread
+     * local and isn't inherited by pooled or virtual threads
+     * */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        Client client = CURRENT.get();
+        return () -> {
+            Client previous = CURRENT.get();
+            CURRENT.set(client);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    static void set(ClientRequest request, PrintStream out, PrintStream err) {
+        CURRENT.set(new Client(request, out, err));
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @param err Routes to the client's stderr instead of its stdout
+     * @param fallback Takes what threads without a client print, i.e. the daemon's own log
+     * @return a stream to install as {@link System#out} or {@link System#err}, passing what each thread prints on to
+     * the client it's running a command for
+     * */
+    static PrintStream routing(boolean err, PrintStream fallback) {
+        return new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                target().write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                target().flush();
+            }
+
+            private PrintStream target() {
+                Client client = CURRENT.get();
+                return client == null ? fallback : err ? client.err() : client.out();
+            }
+        }, false);
+    }
+
+    private record Client(ClientRequest request, PrintStream out, PrintStream err) {}
+}
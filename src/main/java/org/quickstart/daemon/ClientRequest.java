@@ -0,0 +1,72 @@
+package org.quickstart.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A command sent from the thin client to the daemon
+ * @param workingDir The directory the client was invoked from
+ * @param environment The client's environment variables
+ * @param args The raw command line arguments
+ * */
+record ClientRequest(Path workingDir, Map<String, String> environment, String[] args) {
+
+    void writeTo(DataOutputStream out) throws IOException {
+        writeString(out, workingDir.toString());
+
+        out.writeInt(environment.size());
+        for (Map.Entry<String, String> e : environment.entrySet()) {
+            writeString(out, e.getKey());
+            writeString(out, e.getValue());
+        }
+
+        out.writeInt(args.length);
+        for (String arg : args) {
+            writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    static ClientRequest readFrom(DataInputStream in) throws IOException {
+        Path workingDir = Path.of(readString(in));
+
+        int envSize = in.readInt();
+        Map<String, String> environment = new HashMap<>(envSize);
+        for (int i = 0; i < envSize; i++) {
+            environment.put(readString(in), readString(in));
+        }
+
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = readString(in);
+        }
+
+        return new ClientRequest(workingDir, environment, args);
+    }
+
+    //Length-prefixed utf-8 rather than writeUTF, which can't hold more than 64 KiB and an argument or variable can
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("invalid string length " + length);
+        }
+
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
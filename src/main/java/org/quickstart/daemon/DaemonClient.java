@@ -0,0 +1,126 @@
+package org.quickstart.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.quickstart.constants.QuickStartConstants.DAEMON_SOCKET_PATH;
+import static org.quickstart.constants.QuickStartConstants.USER_DIR;
+
+/**
+ * The thin client side of the daemon. This class is loaded before picocli or jackson so it must stay free of both
+ * */
+public final class DaemonClient {
+
+    /**
+     * Set this environment variable to always run commands in-process, even when a daemon is running
+     * */
+    public static final String NO_DAEMON_ENV = "QS_NO_DAEMON";
+
+    /**
+     * Commands with this flag run until they're stopped, which only reaches a command running in-process
+     * */
+    private static final String WATCH_FLAG = "--watch";
+
+    private DaemonClient() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Forwards a command to the daemon if one is running and replays its output
+     * @param args The raw command line arguments
+     * @return the exit code of the command or null if no daemon is reachable, in which case the caller should run
+     * the command in-process
+     * */
+    public static Integer forward(String[] args) {
+        if (System.getenv(NO_DAEMON_ENV) != null || Arrays.asList(args).contains(WATCH_FLAG)) {
+            return null;
+        }
+        return send(args);
+    }
+
+    /**
+     * Sends a command to the daemon even when {@value NO_DAEMON_ENV} is set, for the commands managing the daemon itself
+     * @param args The raw command line arguments
+     * @return the exit code of the command or null if no daemon is reachable
+     * */
+    public static Integer send(String[] args) {
+        if (!Files.exists(DAEMON_SOCKET_PATH)) {
+            return null;
+        }
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(DAEMON_SOCKET_PATH));
+        } catch (IOException e) {
+            return null; //Stale socket file, the daemon isn't running
+        }
+
+        try (channel) {
+            //The daemon only runs a command once it read the whole request, so until then we can still run it ourselves
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                new ClientRequest(USER_DIR, System.getenv(), args).writeTo(out);
+            } catch (IOException e) {
+                return null;
+            }
+
+            //Once the request is sent we can't fall back anymore, the daemon might have already run the command
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            return replay(in);
+        } catch (IOException e) {
+            System.err.printf("""
+                    error: (lost connection to the quickstart daemon),
+                    help: (run `qs daemon stop` or delete %s and try again)
+                    %n""", DAEMON_SOCKET_PATH);
+            return 1;
+        }
+    }
+
+    /**
+     * @return true if a daemon is accepting connections
+     * */
+    public static boolean isRunning() {
+        if (!Files.exists(DAEMON_SOCKET_PATH)) {
+            return false;
+        }
+
+        try (SocketChannel ignored = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            return ignored.connect(UnixDomainSocketAddress.of(DAEMON_SOCKET_PATH));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    //Writes each frame to the matching stream until the daemon sends the exit code
+    private static int replay(DataInputStream in) throws IOException {
+        while (true) {
+            byte type = in.readByte();
+            int length = in.readInt();
+
+            if (type == FrameOutputStream.EXIT) {
+                System.out.flush();
+                System.err.flush();
+                return length;
+            }
+
+            byte[] payload = in.readNBytes(length);
+            if (payload.length != length) {
+                throw new EOFException();
+            }
+
+            PrintStream target = type == FrameOutputStream.STDERR ? System.err : System.out;
+            target.write(payload, 0, payload.length);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.quickstart.daemon;
+
+import org.quickstart.compose.TempDirCleaner;
+import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.profiles.ProfileHandler;
+import org.quickstart.registry.RegistryHandler;
+import org.quickstart.timings.Timings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.quickstart.constants.QuickStartConstants.DAEMON_DIR_PATH;
+import static org.quickstart.constants.QuickStartConstants.DAEMON_SOCKET_PATH;
+
+/**
+ * A long-lived process that keeps the registry, profile handler and object mappers warm and runs commands sent by
+ * {@link DaemonClient} over a unix domain socket. Every client is served on its own virtual thread, so a long `qs up`
+ * doesn't hold up the commands sent meanwhile. {@link System#out} and {@link System#err} are replaced once for the whole
+ * daemon by streams routing what each thread prints to its client, see {@link ClientContext}
+ * */
+public final class DaemonServer {
+
+    private static volatile DaemonServer current;
+
+    private final Function<String[], Integer> dispatcher;
+    private volatile boolean running = true;
+    private volatile ServerSocketChannel server;
+
+    /**
+     * @param dispatcher Runs a command line and returns its exit code
+     * */
+    public DaemonServer(Function<String[], Integer> dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * @return the daemon running in this process, or null when commands are running in-process
+     * */
+    public static DaemonServer current() {
+        return current;
+    }
+
+    /**
+     * Binds the socket and serves commands until {@link #stop()} is called. This method blocks
+     * */
+    public void serve() throws IOException {
+        createPrivateDirectory();
+        Files.deleteIfExists(DAEMON_SOCKET_PATH);
+
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+
+        //Closing the executor waits for the clients still being served, it's closed before the server
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(UnixDomainSocketAddress.of(DAEMON_SOCKET_PATH));
+            Runtime.getRuntime().addShutdownHook(new Thread(this::deleteSocket));
+
+            System.setOut(ClientContext.routing(false, originalOut));
+            System.setErr(ClientContext.routing(true, originalErr));
+            warmUp();
+            this.server = server;
+            current = this;
+
+            while (running) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    break; //Closed by stop()
+                }
+                clients.submit(() -> serveClient(channel));
+            }
+        } finally {
+            current = null;
+            deleteSocket();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+    }
+
+    /**
+     * Stops accepting clients, the daemon exits once the commands being served have returned
+     * */
+    public void stop() {
+        this.running = false;
+        try {
+            ServerSocketChannel bound = server;
+            if (bound != null) {
+                bound.close();
+            }
+        } catch (IOException ignored) {
+            //Already closed
+        }
+    }
+
+    public long pid() {
+        return ProcessHandle.current().pid();
+    }
+
+    private void serveClient(SocketChannel channel) {
+        try (channel) {
+            handle(channel);
+        } catch (EOFException ignored) {
+            //A liveness probe from DaemonClient.isRunning(), nothing to run
+        } catch (IOException e) {
+            System.err.println("daemon: failed to serve client: " + e.getMessage());
+        }
+    }
+
+    private void handle(SocketChannel channel) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        ClientRequest request = ClientRequest.readFrom(in);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        PrintStream stdout = new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, FrameOutputStream.STDOUT)), false);
+        PrintStream stderr = new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, FrameOutputStream.STDERR)), false);
+
+        int exitCode;
+
+        try {
+            ClientContext.set(request, stdout, stderr);
+            Timings.reset();
+            refreshRegistry();
+            exitCode = dispatcher.apply(request.args());
+        } catch (RuntimeException e) {
+            e.printStackTrace(stderr);
+            exitCode = 1;
+        } finally {
+            ClientContext.clear();
+            stdout.flush();
+            stderr.flush();
+        }
+
+        FrameOutputStream.writeExit(out, exitCode);
+    }
+
+    //Loads everything a command would otherwise pay for on each JVM start
+    private void warmUp() {
+        TempDirCleaner.getInstance().cleanInBackground();
+        ObjectMapperConfig.getJsonMapper();
+        ObjectMapperConfig.getYAMLMapper();
+        ProfileHandler.getInstance();
+        try {
+            RegistryHandler.getInstance();
+        } catch (RegistryException e) {
+            System.err.println("daemon: registry not loaded: " + e.serviceError().message());
+        }
+    }
+
+    //Other processes can write to the registry while the daemon is up, so make sure we never serve a stale snapshot
+    private void refreshRegistry() {
+        try {
+            RegistryHandler.getInstance().reloadIfChanged();
+        } catch (RegistryException ignored) {
+            //The command itself will surface the registry error
+        }
+    }
+
+    //The socket is bound inside a directory only the user can enter, so no one else can ever connect to it, not even
+    //between binding and changing the socket's own permissions
+    private void createPrivateDirectory() throws IOException {
+        if (!DAEMON_DIR_PATH.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(DAEMON_DIR_PATH); //Not a posix file system, the socket lives in the user's home directory anyway
+            return;
+        }
+
+        Set<PosixFilePermission> owner = PosixFilePermissions.fromString("rwx------");
+        Files.createDirectories(DAEMON_DIR_PATH, PosixFilePermissions.asFileAttribute(owner));
+        Files.setPosixFilePermissions(DAEMON_DIR_PATH, owner); //It may be left from a daemon started with other permissions
+    }
+
+    private void deleteSocket() {
+        try {
+            Files.deleteIfExists(DAEMON_SOCKET_PATH);
+        } catch (IOException ignored) {
+
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * Where the time of a command went, printed by `--timings` and appended to the metrics file by `--timings-file`
+ * @param timestamp When the command finished, ISO-8601
+ * @param command The command that ran, i.e. `up`
+ * @param exitCode The command's exit code
+ * @param totalMillis How long the command took, from JVM launch when it ran in its own process
+ * @param phases The phases of the command in the order they started
+ * */
+public record CommandTimings(String timestamp, String command, int exitCode, double totalMillis, List<PhaseTiming> phases) {
+
+    @Override
+    public String toString() {
+        int width = "total".length();
+        for (PhaseTiming phase : phases) {
+            width = Math.max(width, phase.level() * 2 + phase.name().length());
+        }
+
+        StringBuilder sb = new StringBuilder("timings:\n");
+        for (PhaseTiming phase : phases) {
+            String name = "  ".repeat(phase.level()) + phase.name();
+            sb.append(String.format("  %-" + width + "s %10.1f ms", name, phase.millis()));
+            if (phase.count() > 1) {
+                sb.append(String.format(" (%dx)", phase.count()));
+            }
+            sb.append("\n");
+        }
+        sb.append(String.format("  %-" + width + "s %10.1f ms", "total", totalMillis));
+        return sb.toString();
+    }
+
+    /**
+     * @param name The phase, i.e. `registry read`
+     * @param level How deep the phase is nested in other phases, its time is part of the phase it's nested in
+     * @param millis The time spent in the phase, added up over every time it ran
+     * @param count How many times the phase ran
+     * */
+    public record PhaseTiming(String name, int level, double millis, int count) {}
+}
@@ -0,0 +1,23 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of `qs down`
+ * @param stopped The projects that were stopped
+ * @param failed The projects docker-compose failed to stop
+ * */
+public record ComposeDown(List<String> stopped, List<String> failed) {
+
+    @Override
+    public String toString() {
+        if(stopped.isEmpty() && failed.isEmpty()){
+            return "no projects to stop";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        stopped.forEach(project -> sb.append("stopped ").append(project).append("\n"));
+        failed.forEach(project -> sb.append("cannot stop ").append(project).append(", see the docker-compose output above\n"));
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,14 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * What `qs up` last brought up under a compose project, kept in ~/.quickstart/projects/
+ * @param name The compose project name
+ * @param hash The SHA-256 of the compose document docker-compose was given
+ * @param services The services in that document, sorted
+ * @param updatedAt When the project was last brought up, ISO-8601
+ * */
+public record ComposeProject(String name, String hash, List<String> services, String updatedAt) {
+
+}
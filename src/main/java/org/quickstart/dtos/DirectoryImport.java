@@ -0,0 +1,33 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of importing every compose file in a directory
+ * @param files How each file fared, in the order their services were merged
+ * @param millis How long the import took
+ * */
+public record DirectoryImport(List<FileImport> files, long millis) {
+
+    public int importedCount() {
+        return files.stream().mapToInt(file -> file.imported().size()).sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        files.forEach(file -> sb.append(file).append("\n"));
+
+        boolean anyExisting = files.stream().anyMatch(file -> file.skipped().containsValue(FileImport.EXISTING));
+        sb.append(String.format("imported %d service%s from %d file%s in %.1fs",
+                importedCount(),
+                importedCount() == 1 ? "" : "s",
+                files.size(),
+                files.size() == 1 ? "" : "s",
+                millis / 1000.0));
+        if(anyExisting){
+            sb.append("\n hint: use the --force command to overwrite existing services");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the services of one compose file fared in a directory import
+ * @param file The file, relative to the imported directory
+ * @param imported The services written to the registry
+ * @param skipped Services that weren't written, mapped to why
+ * @param invalid Services that aren't a valid service definition, mapped to why
+ * @param error Why the file couldn't be read at all, null if it could
+ * */
+public record FileImport(String file, List<String> imported, Map<String, String> skipped, Map<String, String> invalid, String error) {
+
+    /**
+     * Why a service that's already in the registry was skipped
+     * */
+    public static final String EXISTING = "already in the registry";
+
+    public static FileImport failed(String file, String error) {
+        return new FileImport(file, List.of(), Map.of(), Map.of(), error);
+    }
+
+    @Override
+    public String toString() {
+        if(error != null){
+            return String.format("%s: %s", file, error);
+        }
+
+        StringBuilder sb = new StringBuilder(String.format("%s: %d imported, %d skipped, %d invalid",
+                file, imported.size(), skipped.size(), invalid.size()));
+        skipped.forEach((service, reason) -> sb.append(String.format("\n  skipped %s (%s)", service, reason)));
+        invalid.forEach((service, reason) -> sb.append(String.format("\n  invalid %s (%s)", service, reason)));
+        return sb.toString();
+    }
+}
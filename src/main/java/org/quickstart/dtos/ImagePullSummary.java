@@ -0,0 +1,19 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of pulling the images of a compose document ahead of docker-compose
+ * @param pulled The images that were pulled
+ * @param present The images that were already present locally
+ * @param failed The images that couldn't be pulled, docker-compose tries them again and reports why
+ * @param millis How long checking and pulling all the images took
+ * */
+public record ImagePullSummary(List<String> pulled, List<String> present, List<String> failed, long millis) {
+
+    @Override
+    public String toString() {
+        return String.format("images: %d pulled, %d already present, %d failed (%.1fs)",
+                pulled.size(), present.size(), failed.size(), millis / 1000.0);
+    }
+}
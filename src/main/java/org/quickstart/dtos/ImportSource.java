@@ -0,0 +1,36 @@
+package org.quickstart.dtos;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * What the registry holds from a compose file, as of its last import with `qs add -f`
+ * @param size The size of the file when it was imported
+ * @param modified The modification time of the file when it was imported, in milliseconds
+ * @param services The services the registry holds from the file, mapped to the hash of their content
+ * @param skipped The other services of the file, excluded or already in the registry from somewhere else
+ * */
+public record ImportSource(long size, long modified, Map<String, String> services, Set<String> skipped) {
+
+    /**
+     * @return the source once some of its services were written or deleted by something else, they no longer come
+     * from this file
+     * */
+    public ImportSource without(Collection<String> released) {
+        if(released.stream().noneMatch(services::containsKey)){
+            return this;
+        }
+
+        Map<String, String> kept = new TreeMap<>(services);
+        Set<String> passed = new TreeSet<>(skipped);
+        for(String service : released){
+            if(kept.remove(service) != null){
+                passed.add(service);
+            }
+        }
+        return new ImportSource(size, modified, kept, passed);
+    }
+}
@@ -0,0 +1,30 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * How a process started by {@link org.quickstart.processes.ProcessStarter} ended
+ * @param exitCode The exit code of the process
+ * @param timedOut True if the process ran past its timeout and was stopped
+ * @param millis How long the process ran
+ * @param stdoutTail The last lines the process printed to stdout
+ * @param stderrTail The last lines the process printed to stderr
+ * */
+public record ProcessResult(int exitCode, boolean timedOut, long millis, List<String> stdoutTail, List<String> stderrTail) {
+
+    public boolean succeeded() {
+        return exitCode == 0 && !timedOut;
+    }
+
+    /**
+     * @return the last lines of stderr, where docker reports its errors, or of stdout if nothing was printed to stderr
+     * */
+    public List<String> tail() {
+        return stderrTail.isEmpty() ? stdoutTail : stderrTail;
+    }
+
+    @Override
+    public String toString() {
+        return timedOut ? "timed out and was stopped" : String.format("exited with code %d", exitCode);
+    }
+}
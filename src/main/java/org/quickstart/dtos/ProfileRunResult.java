@@ -0,0 +1,44 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of starting a single profile
+ * @param profileName The name of the profile
+ * @param started True if docker-compose brought the profile up, or it was already up
+ * @param unchanged True if docker-compose was skipped because the profile is running with the same content
+ * @param millis How long the start took
+ * @param error Why the profile failed to start, null if it started
+ * @param exitCode The exit code of docker-compose, null if it didn't run
+ * @param stderrTail The last lines docker-compose printed to stderr
+ * */
+public record ProfileRunResult(String profileName, boolean started, boolean unchanged, long millis, String error,
+                               Integer exitCode, List<String> stderrTail) {
+
+    public static ProfileRunResult started(String profileName, long millis, ProcessResult run) {
+        return new ProfileRunResult(profileName, true, false, millis, null, run.exitCode(), run.stderrTail());
+    }
+
+    public static ProfileRunResult unchanged(String profileName, long millis) {
+        return new ProfileRunResult(profileName, true, true, millis, null, null, List.of());
+    }
+
+    public static ProfileRunResult failed(String profileName, long millis, String error) {
+        return new ProfileRunResult(profileName, false, false, millis, error, null, List.of());
+    }
+
+    public static ProfileRunResult failed(String profileName, long millis, String error, ProcessResult run) {
+        return new ProfileRunResult(profileName, false, false, millis, error, run.exitCode(), run.stderrTail());
+    }
+
+    @Override
+    public String toString() {
+        String took = String.format("%.1fs", millis / 1000.0);
+        if(unchanged){
+            return String.format("up to date %s (%s)", profileName, took);
+        }
+        return started
+                ? String.format("started  %s (%s)", profileName, took)
+                : String.format("failed   %s (%s): %s", profileName, took, error);
+    }
+}
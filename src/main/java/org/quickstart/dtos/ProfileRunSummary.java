@@ -0,0 +1,29 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+
+/**
+ * The outcome of starting several profiles at once
+ * @param results The outcome of each profile, in the order they were given
+ * @param millis How long starting all the profiles took
+ * */
+public record ProfileRunSummary(List<ProfileRunResult> results, long millis) {
+
+    public boolean allStarted() {
+        return results.stream().allMatch(ProfileRunResult::started);
+    }
+
+    @Override
+    public String toString() {
+        long started = results.stream().filter(ProfileRunResult::started).count();
+
+        StringBuilder sb = new StringBuilder(String.format("started %d of %d profile%s in %.1fs\n",
+                started,
+                results.size(),
+                results.size() == 1 ? "" : "s",
+                millis / 1000.0));
+
+        results.forEach(r -> sb.append("  ").append(r).append("\n"));
+        return sb.toString().trim();
+    }
+}
@@ -1,10 +1,24 @@
 package org.quickstart.dtos;
 
+/**
+ * @param yamlString The exported compose document, empty when it was piped straight to docker-compose
+ * @param absentServices The services that weren't found, empty if all were
+ * @param unchanged True if `qs up` skipped docker-compose because nothing changed since the last run
+ * @param project The compose project `qs up` ran the services under, null for plain exports
+ * @param run How docker-compose ended, null if it didn't run
+ * */
 public record RegistryExport(
         String yamlString,
-        String absentServices
+        String absentServices,
+        boolean unchanged,
+        String project,
+        ProcessResult run
 ) {
 
+    public RegistryExport(String yamlString, String absentServices) {
+        this(yamlString, absentServices, false, null, null);
+    }
+
     public String toString(String onSuccess){
         if(!absentServices.isEmpty()){
             return absentServices;
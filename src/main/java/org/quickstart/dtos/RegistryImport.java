@@ -1,20 +1,47 @@
 package org.quickstart.dtos;
 
-import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
-public record RegistryImport(List<String> existingServices){
+/**
+ * @param existingServices Services skipped because they were already in the registry
+ * @param imported Services added to the registry, or overwritten when forcing
+ * @param updated Services imported from the same file before whose content changed since
+ * @param unchanged Services imported from the same file before and left alone, their content didn't change
+ * */
+public record RegistryImport(List<String> existingServices, List<String> imported, List<String> updated, int unchanged){
+
+    public RegistryImport(List<String> existingServices){
+        this(existingServices, List.of(), List.of(), 0);
+    }
+
+    /**
+     * @return the services this import wrote to the registry
+     * */
+    public List<String> changedServices(){
+        List<String> changed = new ArrayList<>(imported);
+        changed.addAll(updated);
+        return changed;
+    }
 
     @Override
     public String toString(){
+        //Counts are only worth showing once the file was imported before
+        boolean incremental = !updated.isEmpty() || unchanged > 0;
+        String summary = imported.isEmpty() && updated.isEmpty()
+                ? String.format("nothing changed, %d service%s up to date", unchanged, unchanged == 1 ? "" : "s")
+                : String.format("%d imported, %d updated, %d unchanged", imported.size(), updated.size(), unchanged);
+
         if(existingServices == null || existingServices.isEmpty()) {
-            return "all services imported successfully";
+            return incremental ? summary : "all services imported successfully";
         }
 
         int count = existingServices.size();
-        StringBuilder sb = new StringBuilder(
-                String.format("skipped %d existing service%s: ", count, count == 1 ? "" : "s")
-        );
+        StringBuilder sb = new StringBuilder();
+        if(incremental){
+            sb.append(summary).append("\n");
+        }
+        sb.append(String.format("skipped %d existing service%s: ", count, count == 1 ? "" : "s"));
         sb.append(String.join(", ", existingServices));
         sb.append("\n hint: use the --force command to overwrite existing services");
         return sb.toString();
@@ -0,0 +1,19 @@
+package org.quickstart.dtos;
+
+/**
+ * The outcome of moving the registry to another layout or format
+ * @param migrated The number of services moved
+ * @param target The layout and format the registry is now stored in
+ * @param changed False if the registry was already stored the way requested
+ * */
+public record RegistryMigration(int migrated, String target, boolean changed) {
+
+    @Override
+    public String toString() {
+        if(!changed) {
+            return String.format("registry is already stored as %s", target);
+        }
+
+        return String.format("migrated %d service%s to %s", migrated, migrated == 1 ? "" : "s", target);
+    }
+}
@@ -0,0 +1,47 @@
+package org.quickstart.dtos;
+
+/**
+ * How much the registry saves by keeping the blocks services have in common once
+ * @param services The number of services
+ * @param blocks The blocks found in more than one place
+ * @param references How many places point to those blocks
+ * @param bytes The size of every service written out in full, as compact json
+ * @param sharedBytes The size with every shared block written once
+ * @param nodes The objects and arrays of every service, counting each copy
+ * @param sharedNodes The objects and arrays actually held in memory once shared blocks are the same instance
+ * @param storedShared Whether the registry also keeps shared blocks once on disk
+ * @param layout The layout and format the registry is stored in
+ * */
+public record RegistryStats(int services, int blocks, int references, long bytes, long sharedBytes,
+                            long nodes, long sharedNodes, boolean storedShared, String layout) {
+
+    /**
+     * @return how many times smaller the registry is with shared blocks, 1 when nothing is shared
+     * */
+    public double dedupRatio() {
+        return sharedBytes == 0 ? 1 : (double) bytes / sharedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("registry: %d service%s stored as %s\n",
+                services, services == 1 ? "" : "s", layout));
+        sb.append(String.format("shared blocks: %d, referenced %d time%s\n", blocks, references, references == 1 ? "" : "s"));
+        sb.append(String.format("size: %s in full, %s with shared blocks kept once\n", size(bytes), size(sharedBytes)));
+        sb.append(String.format("tree nodes: %d in full, %d held in memory\n", nodes, sharedNodes));
+        sb.append(String.format("dedup ratio: %.2fx", dedupRatio()));
+        if(!storedShared && blocks > 0){
+            sb.append("\nhint: every copy is kept on disk, `qs migrate --shared-blocks` stores shared blocks once in the file and journal layouts");
+        }
+        return sb.toString();
+    }
+
+    private static String size(long bytes) {
+        if(bytes < 1024){
+            return bytes + " B";
+        }
+        return bytes < 1024 * 1024
+                ? String.format("%.1f KiB", bytes / 1024.0)
+                : String.format("%.1f MiB", bytes / (1024.0 * 1024));
+    }
+}
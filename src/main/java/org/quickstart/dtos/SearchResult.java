@@ -0,0 +1,28 @@
+package org.quickstart.dtos;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * @param queries The queries every match satisfies
+ * @param matches The matching services in alphabetical order, mapped to the terms they matched, i.e. `port:5432`
+ * */
+public record SearchResult(List<String> queries, SortedMap<String, SortedSet<String>> matches) {
+
+    @Override
+    public String toString() {
+        if(matches.isEmpty()){
+            return String.format("no services match `%s`\nhint: search by field with %s, and end a term with `*` to match its start",
+                    String.join(" ", queries), "`image:`, `tag:`, `port:`, `env:`, `label:` or `volume:`");
+        }
+
+        int width = matches.keySet().stream().mapToInt(String::length).max().orElse(0);
+        StringBuilder sb = new StringBuilder(String.format("found %d service%s:\n",
+                matches.size(),
+                matches.size() == 1 ? "" : "s"));
+        matches.forEach((service, terms) ->
+                sb.append(String.format("  %-" + width + "s  %s\n", service, String.join(", ", terms))));
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,14 @@
+package org.quickstart.dtos;
+
+/**
+ * How `qs up` runs services
+ * @param project The compose project to run them under, null to name it after the services
+ * @param useTempFile Writes the compose file to ~/.quickstart/temp and passes its path to docker, instead of piping it
+ *                    to docker's stdin
+ * @param force Runs docker-compose even if nothing changed since the last run
+ * @param pullParallelism How many missing images are pulled at the same time before docker-compose runs, 0 to leave
+ *                        pulling to docker-compose
+ * */
+public record UpOptions(String project, boolean useTempFile, boolean force, int pullParallelism) {
+
+}
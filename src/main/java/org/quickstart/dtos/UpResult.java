@@ -0,0 +1,48 @@
+package org.quickstart.dtos;
+
+import org.quickstart.exceptions.ServiceError;
+
+import java.util.List;
+
+/**
+ * How a `qs up` run went, printed by `qs up --json`
+ * @param status `started`, `unchanged` when docker-compose was skipped, or `failed`
+ * @param project The compose project the services run under, null if the run failed before it was known
+ * @param exitCode The exit code of docker-compose, null if it didn't run
+ * @param timedOut True if docker-compose ran past `QS_COMPOSE_TIMEOUT` and was stopped
+ * @param millis How long docker-compose ran
+ * @param stderrTail The last lines docker-compose printed to stderr
+ * @param absentServices The services that weren't found and similar ones that were, null if all were found
+ * @param error Why the services didn't start, null if they did
+ * @param hint How to fix the error, null if they started
+ * */
+public record UpResult(
+        String status,
+        String project,
+        Integer exitCode,
+        boolean timedOut,
+        long millis,
+        List<String> stderrTail,
+        String absentServices,
+        String error,
+        String hint
+) {
+
+    public static UpResult of(RegistryExport export) {
+        ProcessResult run = export.run();
+        String absent = export.absentServices().isEmpty() ? null : export.absentServices();
+        return run == null
+                ? new UpResult(export.unchanged() ? "unchanged" : "started", export.project(), null, false, 0, List.of(), absent, null, null)
+                : new UpResult("started", export.project(), run.exitCode(), false, run.millis(), run.stderrTail(), absent, null, null);
+    }
+
+    /**
+     * @param project The compose project, null if it isn't known
+     * @param run How docker-compose ended, null if the run failed before it started
+     * */
+    public static UpResult failed(ServiceError error, String project, ProcessResult run) {
+        return run == null
+                ? new UpResult("failed", project, null, false, 0, List.of(), null, error.message(), error.hint())
+                : new UpResult("failed", project, run.exitCode(), run.timedOut(), run.millis(), run.stderrTail(), null, error.message(), error.hint());
+    }
+}
@@ -0,0 +1,28 @@
+package org.quickstart.exceptions;
+
+import org.quickstart.dtos.ProcessResult;
+
+/**
+ * docker-compose ran but failed to bring services up, carries how it ended so it can be passed on as our exit code
+ * */
+public class ComposeException extends RegistryException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String project;
+    private final transient ProcessResult result;
+
+    public ComposeException(ServiceError serviceError, String project, ProcessResult result) {
+        super(serviceError);
+        this.project = project;
+        this.result = result;
+    }
+
+    public String project() {
+        return project;
+    }
+
+    public ProcessResult result() {
+        return result;
+    }
+}
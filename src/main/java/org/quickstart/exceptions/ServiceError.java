@@ -1,10 +1,13 @@
 package org.quickstart.exceptions;
 
+import java.util.List;
+
 public class ServiceError {
 
     private String message;
     private String hint;
     private Throwable stackTrace;
+    private List<String> output = List.of();
 
     public ServiceError(String message, String hint, Throwable stackTrace) {
         this.message = message;
@@ -17,6 +20,14 @@ public class ServiceError {
         this.hint = hint;
     }
 
+    /**
+     * @param output The last lines a failed process printed, shown below the hint
+     * */
+    public ServiceError(String message, String hint, List<String> output) {
+        this(message, hint);
+        this.output = List.copyOf(output);
+    }
+
     public String message() {
         return message;
     }
@@ -29,8 +40,12 @@ public class ServiceError {
         return stackTrace;
     }
 
+    public List<String> output() {
+        return output;
+    }
+
     public String toString(boolean showStack) {
-        return showStack ? String.format("""
+        String error = showStack ? String.format("""
                 error: (%s),
                 help: (%s),
                 Stack Trace: (%s)
@@ -40,6 +55,12 @@ public class ServiceError {
                 help: (%s)
                 """, this.message, this.hint);
 
+        if(output.isEmpty()){
+            return error;
+        }
 
+        StringBuilder withOutput = new StringBuilder(error).append("output: (\n");
+        output.forEach(line -> withOutput.append("    ").append(line).append('\n'));
+        return withOutput.append(")\n").toString();
     }
 }
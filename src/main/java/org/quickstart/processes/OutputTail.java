@@ -0,0 +1,83 @@
+package org.quickstart.processes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last lines a process printed, kept in a ring buffer so a chatty process never grows it past a fixed size.
+ * Bytes are split into lines as they arrive, lines longer than the limit are cut short
+ * */
+final class OutputTail extends OutputStream {
+
+    private final String[] lines;
+    private final int maxLineBytes;
+    private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+
+    /**
+     * Where the next line goes, once the buffer is full it's also the oldest line
+     * */
+    private int next;
+    private int count;
+
+    /**
+     * @param maxLines The number of lines kept, older lines are dropped
+     * @param maxLineBytes The bytes kept of each line
+     * */
+    OutputTail(int maxLines, int maxLineBytes) {
+        this.lines = new String[maxLines];
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if(b == '\n'){
+            endLine();
+        }else if(current.size() < maxLineBytes){
+            current.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int end = off + len;
+        for(int i = off; i < end; i++){
+            write(b[i]);
+        }
+    }
+
+    /**
+     * @return the lines kept, oldest first, including a last line that hasn't ended yet
+     * */
+    synchronized List<String> lines() {
+        List<String> tail = new ArrayList<>(count + 1);
+        int oldest = count < lines.length ? 0 : next;
+        for(int i = 0; i < count; i++){
+            tail.add(lines[(oldest + i) % lines.length]);
+        }
+        if(current.size() > 0){
+            tail.add(line());
+        }
+        return tail;
+    }
+
+    private void endLine() {
+        lines[next] = line();
+        next = (next + 1) % lines.length;
+        count = Math.min(count + 1, lines.length);
+        current.reset();
+    }
+
+    //Drops the carriage return of `\r\n` endings
+    private String line() {
+        String line = current.toString(StandardCharsets.UTF_8);
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+}
@@ -1,9 +1,32 @@
 package org.quickstart.processes;
 
+import org.quickstart.daemon.ClientContext;
+import org.quickstart.dtos.ProcessResult;
+import org.quickstart.timings.Timings;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class ProcessStarter {
-    private final static ProcessBuilder PROCESS_BUILDER = new ProcessBuilder();
+
+    /**
+     * Seconds a docker-compose run may take before it's stopped, unset for no limit
+     * */
+    public static final String TIMEOUT_ENV = "QS_COMPOSE_TIMEOUT";
+
+    private static final int TAIL_LINES = 40;
+    private static final int TAIL_LINE_BYTES = 1024;
+    private static final Duration KILL_GRACE = Duration.ofSeconds(10);
 
     private ProcessStarter() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
@@ -12,21 +35,255 @@ public final class ProcessStarter {
     /**
      * This method starts a process, ideally a docker process in this case
      * @param args The arguments the process builder should execute
-     *
+     * @return the exit code of the process
+     * */
+    public static int startProcess(String... args) throws IllegalArgumentException, IOException, InterruptedException {
+        return startProcess(null, null, args);
+    }
+
+    /**
+     * Starts a process and streams its input from the given writer instead of the terminal
+     * @param input Writes the process's stdin, which is closed once it returns. Null to inherit our stdin
+     * @param args The arguments the process builder should execute
+     * @return the exit code of the process
+     * */
+    public static int startProcess(InputWriter input, String... args) throws IllegalArgumentException, IOException, InterruptedException {
+        return startProcess(null, input, args);
+    }
+
+    /**
+     * Starts a process, safe to call from several threads at once. It's stopped after the timeout set in
+     * {@value #TIMEOUT_ENV}, if any
+     * @param outputPrefix Prepended to every line the process prints, so output of processes running side by side can
+     *                     be told apart. Null to pass the output through untouched
+     * @param input Writes the process's stdin, which is closed once it returns. Null to inherit our stdin
+     * @param args The arguments the process builder should execute
+     * @return the exit code of the process
+     * */
+    public static int startProcess(String outputPrefix, InputWriter input, String... args) throws IllegalArgumentException, IOException, InterruptedException {
+        return execute(outputPrefix, input, defaultTimeout(), args).exitCode();
+    }
+
+    /**
+     * Starts a process and shows its output while keeping the last lines of it for error reporting. Its stdout and
+     * stderr are pumped on virtual threads, so several processes can run side by side. The process and everything it
+     * started are stopped when it runs past the timeout or the calling thread is interrupted.
+     * When nothing needs its output, see {@link #inheritsOutput}, the process writes straight to our terminal instead
+     * and no tail is kept
+     * @param outputPrefix Prepended to every line the process prints, so output of processes running side by side can
+     *                     be told apart. Null to pass the output through untouched
+     * @param input Writes the process's stdin, which is closed once it returns. Null to inherit our stdin
+     * @param timeout How long the process may run, null for no limit
+     * @param args The arguments the process builder should execute
+     * @return the exit code, whether the process timed out and the tail of its output
+     * */
+    public static ProcessResult execute(String outputPrefix, InputWriter input, Duration timeout, String... args) throws IllegalArgumentException, IOException, InterruptedException {
+        if(args.length == 0){
+            throw new IllegalArgumentException();
+        }
+
+        //The phase is named after the program, i.e. `docker-compose`
+        try(Timings.Phase ignored = Timings.start(args[0])){
+            return run(outputPrefix, input, timeout, args);
+        }
+    }
+
+    /**
+     * @return the timeout set in {@value #TIMEOUT_ENV} in seconds, or null if it isn't set to a positive number
+     * */
+    public static Duration defaultTimeout() {
+        String seconds = ClientContext.environment().get(TIMEOUT_ENV);
+        if(seconds == null){
+            return null;
+        }
+
+        try{
+            long value = Long.parseLong(seconds.trim());
+            return value > 0 ? Duration.ofSeconds(value) : null;
+        }catch (NumberFormatException e){
+            return null;
+        }
+    }
+
+    private static ProcessResult run(String outputPrefix, InputWriter input, Duration timeout, String... args) throws IOException, InterruptedException {
+        //Every launch gets its own builder, a shared one would mix up the commands and redirects of concurrent launches
+        ProcessBuilder builder = new ProcessBuilder(args);
+
+        //Run docker in the caller's directory and environment, which differ from ours when running inside the daemon
+        builder.environment().clear();
+        builder.environment().putAll(ClientContext.environment());
+        builder.directory(ClientContext.workingDir().toFile());
+
+        boolean inheritInput = input == null && !ClientContext.isRemote();
+        boolean inheritOutput = inheritsOutput(outputPrefix, timeout);
+        ProcessBuilder.Redirect output = inheritOutput ? ProcessBuilder.Redirect.INHERIT : ProcessBuilder.Redirect.PIPE;
+        long start = System.nanoTime();
+        Process process = builder
+                .redirectInput(inheritInput ? ProcessBuilder.Redirect.INHERIT : ProcessBuilder.Redirect.PIPE)
+                .redirectOutput(output)
+                .redirectError(output)
+                .start();
+
+        //Both pumps run while we feed stdin, a process blocked on a full stdout pipe would never finish reading its input
+        OutputTail outTail = new OutputTail(TAIL_LINES, TAIL_LINE_BYTES);
+        OutputTail errTail = new OutputTail(TAIL_LINES, TAIL_LINE_BYTES);
+        //The pumps don't run in the client's context, they're handed its streams. Inherited output reads as empty
+        PrintStream out = ClientContext.out();
+        PrintStream err = ClientContext.err();
+        Thread outPump = Thread.ofVirtual().start(() -> relay(process.getInputStream(), out, outTail, outputPrefix));
+        Thread errPump = Thread.ofVirtual().start(() -> relay(process.getErrorStream(), err, errTail, outputPrefix));
+
+        //The watchdog also covers feeding stdin, which blocks for as long as the process doesn't read it
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Thread watchdog = timeout == null ? null : Thread.ofVirtual().start(() -> {
+            try{
+                if(!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)){
+                    timedOut.set(true);
+                    destroyTree(process);
+                }
+            }catch (InterruptedException ignored){
+                //The process ended in time
+            }
+        });
+
+        try{
+            try{
+                feed(process, input);
+            }catch (IOException e){
+                //Stopping the process closes its stdin under us
+                if(!timedOut.get()){
+                    throw e;
+                }
+            }
+            int exitCode = process.waitFor();
+            outPump.join();
+            errPump.join();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new ProcessResult(exitCode, timedOut.get(), millis, outTail.lines(), errTail.lines());
+        }catch (InterruptedException e){
+            //Cancelled, don't leave docker running behind us
+            destroyTree(process);
+            throw e;
+        }finally {
+            if(watchdog != null){
+                watchdog.interrupt();
+            }
+        }
+    }
+
+    /**
+     * docker-compose only draws its progress when it writes to a terminal itself, so its output is only piped through
+     * us when something needs it: a prefix to add, a tail to report on timeout, a command that moved its output (i.e.
+     * `--json`), or the daemon, whose own stdout is its log and has to relay output to the client
+     * @return true if the process can inherit our stdout and stderr
+     * */
+    static boolean inheritsOutput(String outputPrefix, Duration timeout) {
+        return outputPrefix == null && timeout == null && System.console() != null && ClientContext.writesToProcessStreams();
+    }
+
+    /**
+     * Runs a process whose output we read rather than show, its stderr is dropped
+     * @param input Writes the process's stdin, which is closed once it returns. Null for no input
+     * @param args The arguments the process builder should execute
+     * @return what the process printed to stdout, or null if it exited with a non zero code
      * */
-    public static void startProcess(String... args) throws IllegalArgumentException, IOException, InterruptedException {
+    public static String readOutput(InputWriter input, String... args) throws IllegalArgumentException, IOException, InterruptedException {
         if(args.length == 0){
             throw new IllegalArgumentException();
         }
 
-        Process process = PROCESS_BUILDER
-                    .command(args)
-                    .inheritIO()
+        try(Timings.Phase ignored = Timings.start(args[0])){
+            ProcessBuilder builder = new ProcessBuilder(args);
+            builder.environment().clear();
+            builder.environment().putAll(ClientContext.environment());
+            builder.directory(ClientContext.workingDir().toFile());
+
+            Process process = builder
+                    .redirectInput(ProcessBuilder.Redirect.PIPE)
+                    .redirectOutput(ProcessBuilder.Redirect.PIPE)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
                     .start();
 
-        process.waitFor(); //Wait for the process to completely run
+            //Read while we feed stdin, for the same reason as the pumps above
+            StringBuilder output = new StringBuilder();
+            Thread reader = Thread.ofVirtual().start(() -> {
+                try(InputStream in = process.getInputStream()){
+                    output.append(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }catch (IOException ignoredException){
+                    //The process closed its stream
+                }
+            });
+            feed(process, input);
+            reader.join();
+            return process.waitFor() == 0 ? output.toString() : null;
+        }
+    }
+
+    //Writes the process's stdin then closes it, so the process sees the end of its input
+    private static void feed(Process process, InputWriter input) throws IOException, InterruptedException {
+        if(input == null){
+            process.getOutputStream().close();
+            return;
+        }
+
+        try(OutputStream stdin = process.getOutputStream()){
+            input.writeTo(stdin);
+        }catch (IOException e){
+            //Don't leave the process waiting on input that will never be complete
+            destroyTree(process);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops a process and everything it started. They're asked to stop first, docker-compose uses that to stop its
+     * plugins and containers cleanly, and are killed if they're still running after a grace period
+     * */
+    static void destroyTree(Process process) {
+        //Listed before stopping anything, a child whose parent is gone can no longer be found through it
+        List<ProcessHandle> tree = new ArrayList<>(process.descendants().toList());
+        tree.add(process.toHandle());
+        tree.forEach(ProcessHandle::destroy);
 
+        try{
+            process.waitFor(KILL_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+    }
 
+    //Shows the output of a process and keeps its tail
+    private static void relay(InputStream in, PrintStream out, OutputTail tail, String prefix){
+        try(in){
+            if(prefix == null){
+                byte[] buffer = new byte[8192];
+                int read;
+                while((read = in.read(buffer)) != -1){
+                    out.write(buffer, 0, read);
+                    out.flush();
+                    tail.write(buffer, 0, read);
+                }
+            }else{
+                //Whole lines only, println is synchronized so lines of different processes never interleave
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while((line = reader.readLine()) != null){
+                    out.println(prefix + line);
+                    tail.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            out.flush();
+        }catch (IOException ignored){
+            //The process closed its stream
+        }
     }
 
-}
\ No newline at end of file
+    /**
+     * Writes the input of a process
+     * */
+    @FunctionalInterface
+    public interface InputWriter {
+        void writeTo(OutputStream stdin) throws IOException;
+    }
+}
@@ -1,11 +1,20 @@
 package org.quickstart.profiles;
 
-import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.quickstart.FileUtils;
 import org.quickstart.compose.ComposeFile;
+import org.quickstart.compose.ComposeProjects;
+import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.daemon.ClientContext;
+import org.quickstart.dtos.ProcessResult;
 import org.quickstart.dtos.ProfileDeleteResult;
 import org.quickstart.dtos.ProfileDto;
+import org.quickstart.dtos.ProfileRunResult;
+import org.quickstart.dtos.ProfileRunSummary;
 import org.quickstart.exceptions.ProfileException;
+import org.quickstart.exceptions.QuickStartException;
 import org.quickstart.exceptions.ServiceError;
+import org.quickstart.processes.ProcessStarter;
+import org.quickstart.similarity.NameIndex;
 
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
@@ -13,13 +22,20 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.quickstart.constants.QuickStartConstants.*;
 
 public final class ProfileHandler {
 
-    private static final LevenshteinDistance levenshteinDistance = LevenshteinDistance.getDefaultInstance();
+    private static final int MAX_PROFILE_SIMILARITY_COUNT = 3;
+    private final NameIndex nameIndex = new NameIndex(PROFILE_INDEX_PATH);
 
     private ProfileHandler(){
 
@@ -28,7 +44,9 @@ public final class ProfileHandler {
     public void createProfile(String profileName) throws ProfileException{
         Path userPath = constructProfile(profileName);
         try {
+            String stamp = FileUtils.fileStamp(PROFILE_BASE_PATH);
             Files.createFile(userPath);
+            nameIndex.added(List.of(profileName), stamp, FileUtils.fileStamp(PROFILE_BASE_PATH), this::profileNames);
         }catch (FileAlreadyExistsException e){
             throw new ProfileException(
                     new ServiceError(
@@ -208,7 +226,9 @@ public final class ProfileHandler {
         Path profilePath = constructProfile(profileName);
 
         try {
+            String stamp = FileUtils.fileStamp(PROFILE_BASE_PATH);
             Files.delete(profilePath);
+            nameIndex.removed(List.of(profileName), stamp, FileUtils.fileStamp(PROFILE_BASE_PATH), this::profileNames);
         }catch (IOException e){
             throw new ProfileException(
                     new ServiceError(
@@ -254,15 +274,27 @@ public final class ProfileHandler {
     /**
      * Runs the docker content of a profile
      * @param profileName The name of the profile to run
+     * @param force Runs docker-compose even if the profile is running with the same content as the last time
+     * @return false if docker-compose was skipped because nothing changed
      * @throws ProfileException on IOException
      * */
-    public ProfileDto runProfile(String profileName) throws ProfileException {
+    public boolean runProfile(String profileName, boolean force) throws ProfileException {
         ensureProfileExists(profileName);
-        Path path = constructProfile(profileName);
 
-        try(ComposeFile composeFile = new ComposeFile(path, profileName, true)){
-            composeFile.runTempFile();
-            return new ProfileDto(profileName, Collections.emptySet());
+        try{
+            ProcessResult result = upIfChanged(profileName, null, force);
+            if(result != null && !result.succeeded()){
+                //docker-compose already showed its output, its tail is repeated so the error can be read on its own
+                throw new ProfileException(
+                        new ServiceError(
+                                String.format("cannot start profile '%s', docker-compose %s", profileName, result),
+                                result.timedOut()
+                                        ? String.format("raise `%s` or unset it to wait for docker-compose however long it takes", ProcessStarter.TIMEOUT_ENV)
+                                        : "fix what docker-compose reports below and run the profile again",
+                                result.tail())
+                );
+            }
+            return result != null;
         }catch (IOException e){
             throw new ProfileException(
                     new ServiceError(
@@ -281,18 +313,162 @@ public final class ProfileHandler {
     }
 
 
-    //Finds profile names similar to that the user inputted
+    /**
+     * Starts several profiles at once on virtual threads, each profile runs as its own compose project and every line
+     * it prints is prefixed with its name. A profile failing to start doesn't stop the others
+     * @param profileNames The profiles to start
+     * @param parallelism The maximum number of profiles starting at the same time
+     * @param force Runs docker-compose even for profiles running with the same content as the last time
+     * @return a summary of which profiles started and which failed
+     * */
+    public ProfileRunSummary runProfiles(List<String> profileNames, int parallelism, boolean force) throws ProfileException {
+        if(parallelism < 1){
+            throw new ProfileException(
+                    new ServiceError(
+                            "parallelism must be at least 1",
+                            "pass a positive number to `--parallel`"
+                    )
+            );
+        }
+
+        List<String> names = List.copyOf(new LinkedHashSet<>(profileNames));
+        int width = names.stream().mapToInt(String::length).max().orElse(0);
+        Semaphore permits = new Semaphore(parallelism);
+        long start = System.nanoTime();
+
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()){
+            List<Future<ProfileRunResult>> futures = new ArrayList<>();
+            for(String name : names){
+                String prefix = String.format("%-" + width + "s | ", name);
+                futures.add(executor.submit(ClientContext.propagate(() -> {
+                    permits.acquire();
+                    try{
+                        return runProfile(name, prefix, force);
+                    }finally {
+                        permits.release();
+                    }
+                })));
+            }
+
+            List<ProfileRunResult> results = new ArrayList<>();
+            for(Future<ProfileRunResult> future : futures){
+                results.add(future.get());
+            }
+            return new ProfileRunSummary(results, elapsedMillis(start));
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new ProfileException(
+                    new ServiceError(
+                            "starting profiles was interrupted",
+                            "try running the profiles again",
+                            e)
+            );
+        }catch (ExecutionException e){
+            throw new ProfileException(
+                    new ServiceError(
+                            "cannot start profiles",
+                            "run with `--verbose` to see what went wrong",
+                            e.getCause())
+            );
+        }
+    }
+
+    //Starts a single profile and reports how it went instead of throwing
+    private ProfileRunResult runProfile(String profileName, String outputPrefix, boolean force) {
+        long start = System.nanoTime();
+
+        try{
+            if(!doesProfileExist(profileName)){
+                String notFound = new ProfileDto(profileName, findSimilarProfiles(profileName)).toString();
+                return ProfileRunResult.failed(profileName, elapsedMillis(start), notFound);
+            }
+
+            ProcessResult result = upIfChanged(profileName, outputPrefix, force);
+            if(result == null){
+                return ProfileRunResult.unchanged(profileName, elapsedMillis(start));
+            }
+            return result.succeeded()
+                    ? ProfileRunResult.started(profileName, elapsedMillis(start), result)
+                    : ProfileRunResult.failed(profileName, elapsedMillis(start), composeError(result), result);
+        }catch (IOException e){
+            return ProfileRunResult.failed(profileName, elapsedMillis(start), String.format("cannot run docker-compose: %s", e.getMessage()));
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return ProfileRunResult.failed(profileName, elapsedMillis(start), "docker command was interrupted");
+        }catch (QuickStartException e){
+            String error = e.serviceError() != null ? e.serviceError().message() : e.getMessage();
+            return ProfileRunResult.failed(profileName, elapsedMillis(start), error);
+        }
+    }
+
+    /**
+     * Brings a profile up under a project named after it, unless it was last brought up with the same content and all of
+     * its services are still running, see {@link ComposeProjects}
+     * @return how docker-compose ended, or null if it was skipped
+     * */
+    private ProcessResult upIfChanged(String profileName, String outputPrefix, boolean force) throws IOException, InterruptedException {
+        Path path = constructProfile(profileName);
+        byte[] content = Files.readAllBytes(path);
+        String hash = ComposeProjects.hash(out -> out.write(content));
+        Set<String> services = profileServices(content);
+
+        if(!force && ComposeProjects.isUpToDate(profileName, hash, services, () -> ComposeFile.runningServices(profileName, path))){
+            return null;
+        }
+
+        try(ComposeFile composeFile = new ComposeFile(path, profileName, true)){
+            ProcessResult result = composeFile.runTempFile(outputPrefix);
+            if(result.succeeded()){
+                ComposeProjects.record(profileName, hash, services);
+            }
+            return result;
+        }
+    }
+
+    //How docker-compose failed along with the last thing it printed, which is usually the reason
+    private static String composeError(ProcessResult result) {
+        List<String> tail = result.tail();
+        String last = tail.stream().filter(line -> !line.isBlank()).reduce((first, second) -> second).orElse(null);
+        return last == null
+                ? String.format("docker-compose %s", result)
+                : String.format("docker-compose %s: %s", result, last.trim());
+    }
+
+    //The services a profile starts, none if it can't be parsed, which docker-compose will report on `up`
+    private static Set<String> profileServices(byte[] content) {
+        Set<String> services = new LinkedHashSet<>();
+        try{
+            ObjectMapperConfig.getYAMLMapper().readTree(content).path("services").fieldNames().forEachRemaining(services::add);
+        }catch (IOException ignored){
+
+        }
+        return services;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    //Finds profile names similar to that the user inputted, the profiles directory is only listed when the index is stale
     private Set<String> findSimilarProfiles(String profileName) {
-        Set<String> similarProfiles = new HashSet<>();
+        List<String> similar = nameIndex.similarTo(
+                profileName,
+                SIMILARITY_DISTANCE,
+                MAX_PROFILE_SIMILARITY_COUNT,
+                FileUtils.fileStamp(PROFILE_BASE_PATH),
+                this::profileNames
+        );
+        return new LinkedHashSet<>(similar);
+    }
 
-        try(Stream<Path> paths = Files.walk(PROFILE_BASE_PATH)){
-             paths.map(p -> p.getFileName().toString())
-                     .forEach(p -> {
-                        int dist = levenshteinDistance.apply(profileName, p);
-                        if(dist <= SIMILARITY_DISTANCE){
-                            similarProfiles.add(p);
-                        }
-                    });
+    //Lists the names of every profile, without their extension
+    private List<String> profileNames() {
+        try(Stream<Path> paths = Files.list(PROFILE_BASE_PATH)){
+            return paths.filter(Files::isRegularFile)
+                    .map(p -> p.getFileName().toString())
+                    .filter(p -> p.endsWith(YML_EXTENSION))
+                    .map(p -> p.substring(0, p.length() - YML_EXTENSION.length()))
+                    .toList();
         }catch (IOException e){
             throw new ProfileException(new ServiceError(
                     "cannot access profiles directory",
@@ -300,8 +476,6 @@ public final class ProfileHandler {
                     e
             ));
         }
-
-        return similarProfiles;
     }
 
 
@@ -322,7 +496,7 @@ public final class ProfileHandler {
 
     //Constructs the dir path for a file in the user's dir
     private Path constructDirPath(String fileName){
-        Path file = Path.of(USER_DIR.toString(), fileName);
+        Path file = Path.of(ClientContext.workingDir().toString(), fileName);
         if(!Files.exists(file)){
             throw new ProfileException(
                     new ServiceError(
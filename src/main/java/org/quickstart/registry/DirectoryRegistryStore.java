@@ -0,0 +1,242 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.quickstart.FileUtils;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.exceptions.ServiceError;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores each service in its own file under ~/.quickstart/registry/services/ and keeps a small index of service names
+ * in ~/.quickstart/registry/index.json (or .smile). Listing and existence checks only read the index, reads only touch the
+ * requested services and writes only touch the services that changed
+ * */
+final class DirectoryRegistryStore implements RegistryStore {
+
+    static final String SERVICES_FOLDER = "services";
+    private static final String INDEX_FILE_NAME = "index";
+    private static final String HEX_DIGITS = "0123456789ABCDEF";
+
+    private final ObjectMapper jsonMapper;
+    private final Path indexPath;
+    private final Path servicesPath;
+    private final String extension;
+    private Set<String> index;
+    private long indexVersion;
+
+    DirectoryRegistryStore(ObjectMapper jsonMapper, Path registryDir, String extension) {
+        this.jsonMapper = jsonMapper;
+        this.indexPath = indexPath(registryDir, extension);
+        this.servicesPath = registryDir.resolve(SERVICES_FOLDER);
+        this.extension = extension;
+    }
+
+    static Path indexPath(Path registryDir, String extension) {
+        return registryDir.resolve(INDEX_FILE_NAME + extension);
+    }
+
+    @Override
+    public Set<String> serviceNames() throws RegistryException {
+        return Collections.unmodifiableSet(index());
+    }
+
+    /**
+     * Only the index is stamped, overwriting a service leaves the index and so the stamp untouched
+     * */
+    @Override
+    public String stamp() {
+        return FileUtils.fileStamp(indexPath);
+    }
+
+    @Override
+    public boolean contains(String service) throws RegistryException {
+        return index().contains(service);
+    }
+
+    @Override
+    public JsonNode read(String service) throws RegistryException {
+        if (!contains(service)) {
+            return null;
+        }
+
+        Path file = serviceFile(service);
+        try {
+            return jsonMapper.readTree(file.toFile());
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("cannot read service '%s' from the registry", service),
+                            String.format("check that `%s` exists and isn't corrupted", file),
+                            e)
+            );
+        }
+    }
+
+    @Override
+    public boolean write(Map<String, JsonNode> services, long expectedVersion) throws RegistryException {
+        if (services.isEmpty()) {
+            return true;
+        }
+
+        //Locked before synchronizing, see RegistryLock
+        try (RegistryLock lock = RegistryLock.acquire()) {
+            synchronized (this) {
+                if (!lock.isAt(expectedVersion)) {
+                    return false;
+                }
+
+                Set<String> names = new LinkedHashSet<>(loadIndex());
+                try {
+                    Files.createDirectories(servicesPath);
+                    for (Map.Entry<String, JsonNode> e : services.entrySet()) {
+                        FileUtils.writeAtomically(serviceFile(e.getKey()), out -> jsonMapper.writeValue(out, e.getValue()));
+                    }
+                } catch (IOException e) {
+                    throw writeError(e);
+                }
+
+                //Only rewrite the index when services were added
+                if (names.addAll(services.keySet())) {
+                    saveIndex(names);
+                } else {
+                    index = names;
+                }
+                committed(lock);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(Set<String> services, long expectedVersion) throws RegistryException {
+        try (RegistryLock lock = RegistryLock.acquire()) {
+            synchronized (this) {
+                if (!lock.isAt(expectedVersion)) {
+                    return false;
+                }
+
+                Set<String> names = new LinkedHashSet<>(loadIndex());
+                if (!names.removeAll(services)) {
+                    return true;
+                }
+
+                //Drop the names first, a leftover service file is harmless but an indexed service without a file is not
+                saveIndex(names);
+                deleteServiceFiles(services);
+                committed(lock);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void clear() throws RegistryException {
+        try (RegistryLock lock = RegistryLock.acquire()) {
+            synchronized (this) {
+                Set<String> names = loadIndex();
+                saveIndex(new LinkedHashSet<>());
+                deleteServiceFiles(names);
+                committed(lock);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void refresh() {
+        if (index != null && indexVersion != version()) {
+            index = null;
+        }
+    }
+
+    private synchronized Set<String> index() throws RegistryException {
+        if (index == null) {
+            long version = version();
+            index = loadIndex();
+            indexVersion = version;
+        }
+        return index;
+    }
+
+    //Our cached index was just written under the lock, so it's as new as the commit
+    private void committed(RegistryLock lock) throws RegistryException {
+        lock.bump();
+        indexVersion = version();
+    }
+
+    private void deleteServiceFiles(Set<String> services) throws RegistryException {
+        try {
+            for (String service : services) {
+                Files.deleteIfExists(serviceFile(service));
+            }
+        } catch (IOException e) {
+            throw writeError(e);
+        }
+    }
+
+    private Set<String> loadIndex() throws RegistryException {
+        try {
+            Set<String> names = new LinkedHashSet<>();
+            JsonNode node = jsonMapper.readTree(indexPath.toFile());
+            if (node != null) {
+                node.forEach(name -> names.add(name.asText()));
+            }
+            return names;
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError("cannot read registry index",
+                            "run `quickstart init` to create it or ensure the registry isn't corrupted", e)
+            );
+        }
+    }
+
+    private void saveIndex(Set<String> names) throws RegistryException {
+        ArrayNode node = jsonMapper.createArrayNode();
+        names.forEach(node::add);
+        try {
+            FileUtils.writeAtomically(indexPath, out -> jsonMapper.writeValue(out, node));
+            index = names;
+        } catch (IOException e) {
+            throw writeError(e);
+        }
+    }
+
+    private Path serviceFile(String service) {
+        return servicesPath.resolve(fileName(service) + extension);
+    }
+
+    /**
+     * Encodes a service name so names with characters the file system doesn't allow still map to a single file. Only
+     * lower case letters, digits, `.`, `-` and `_` are kept, everything else is percent encoded with upper case hex
+     * digits, upper case letters too, so `Web` and `web` don't share a file on case insensitive file systems
+     * */
+    static String fileName(String service) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : service.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '.' || b == '-' || b == '_') {
+                name.append((char) b);
+            } else {
+                name.append('%').append(HEX_DIGITS.charAt((b >> 4) & 0xF)).append(HEX_DIGITS.charAt(b & 0xF));
+            }
+        }
+        return name.toString();
+    }
+
+    private RegistryException writeError(IOException e) {
+        return new RegistryException(
+                new ServiceError(
+                        "cannot write to registry",
+                        "check if another process is using the registry or run `ls -la ~/.quickstart/registry/`",
+                        e)
+        );
+    }
+}
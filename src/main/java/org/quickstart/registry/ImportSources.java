@@ -0,0 +1,113 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.quickstart.FileUtils;
+import org.quickstart.dtos.ImportSource;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.timings.Timings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Remembers which compose file each service was imported from, see {@link ImportSource}, so importing a file again
+ * only writes what changed in it. A service stops belonging to its file as soon as anything else writes or deletes it.
+ * Losing this file is harmless, the next import of each compose file just reads all of it, so failures to save it
+ * are never reported
+ * */
+final class ImportSources {
+
+    private static final TypeReference<Map<String, ImportSource>> TYPE = new TypeReference<>() {};
+
+    private final Path path;
+    private final ObjectMapper mapper;
+    private Map<String, ImportSource> sources;
+    private String stamp;
+
+    ImportSources(Path path, ObjectMapper mapper) {
+        this.path = path;
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param file The compose file, as an absolute path
+     * @return what the registry holds from the file, or null if it was never imported
+     * */
+    synchronized ImportSource get(Path file) {
+        return load().get(file.toString());
+    }
+
+    /**
+     * Records an import of a file, its services are taken from whichever file they were imported from before
+     * @param file The compose file, as an absolute path
+     * */
+    void imported(Path file, ImportSource source) throws RegistryException {
+        //The registry lock is always taken before this monitor, writers hold it while they release their services
+        try(RegistryLock ignored = RegistryLock.acquire()){
+            synchronized (this){
+                Map<String, ImportSource> updated = new TreeMap<>(load());
+                updated.replaceAll((other, otherSource) -> otherSource.without(source.services().keySet()));
+                updated.put(file.toString(), source);
+                save(updated);
+            }
+        }
+    }
+
+    /**
+     * Called after services were written or deleted, they no longer hold what was imported from their file
+     * */
+    void released(Collection<String> services) throws RegistryException {
+        synchronized (this){
+            if(load().values().stream().allMatch(source -> source.without(services) == source)){
+                return; //The common case, none of them came from a file
+            }
+        }
+
+        try(RegistryLock ignored = RegistryLock.acquire()){
+            synchronized (this){
+                Map<String, ImportSource> updated = new TreeMap<>(load());
+                updated.replaceAll((file, source) -> source.without(services));
+                save(updated);
+            }
+        }
+    }
+
+    //Reads the file again only when it changed since it was last read
+    private Map<String, ImportSource> load() {
+        String current = FileUtils.fileStamp(path);
+        if(sources != null && Objects.equals(current, stamp)){
+            return sources;
+        }
+
+        try(Timings.Phase ignored = Timings.start("import sources read"); InputStream in = Files.newInputStream(path)){
+            sources = mapper.readValue(in, TYPE);
+        }catch (IOException e){
+            sources = Map.of(); //Never imported anything, or corrupted and started over
+        }
+        stamp = current;
+        return sources;
+    }
+
+    private void save(Map<String, ImportSource> updated) {
+        try{
+            FileUtils.writeAtomically(path, out -> mapper.writeValue(out, updated));
+            sources = updated;
+            stamp = FileUtils.fileStamp(path);
+        }catch (IOException e){
+            //Sources that can't be kept up to date must not be trusted, forgetting them all is always safe
+            try{
+                Files.deleteIfExists(path);
+            }catch (IOException ignored){
+                //Nothing more we can do
+            }
+            sources = null;
+        }
+    }
+}
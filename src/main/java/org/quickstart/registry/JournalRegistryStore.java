@@ -0,0 +1,442 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.quickstart.FileUtils;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.exceptions.ServiceError;
+import org.quickstart.timings.Timings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a snapshot of the registry in ~/.quickstart/journal/registry.json (or .smile) and appends every change after it
+ * to registry.json.journal, so `add` and `rm` only write the services they change instead of the whole registry.
+ * Reads replay the journal over the snapshot. Once the journal outgrows {@link #compactionThreshold(long)} it is folded
+ * into a new snapshot in the background.
+ * <p>
+ * Every journal record is framed as magic, length, CRC32, payload, length. A write cut short by a crash leaves a torn
+ * record at the end, readers stop at the first record that doesn't check out and the next writer cuts it off before
+ * appending. Replaying a record twice gives the same result as replaying it once, which is what makes compaction safe:
+ * the new snapshot is swapped in first and the journal emptied second, a crash in between only replays changes the
+ * snapshot already holds
+ * */
+final class JournalRegistryStore implements RegistryStore {
+
+    static final String JOURNAL_EXTENSION = ".journal";
+
+    /**
+     * Overrides the journal size, in bytes, past which it is compacted
+     * */
+    static final String MAX_BYTES_ENV = "QS_JOURNAL_MAX_BYTES";
+    private static final long DEFAULT_MAX_BYTES = 256 * 1024;
+
+    private static final int MAGIC = 0x514A524E; //QJRN
+    private static final int HEADER_BYTES = 12;
+    private static final int TRAILER_BYTES = 4;
+
+    private static final String PUT = "put";
+    private static final String DELETE = "delete";
+    private static final String CLEAR = "clear";
+
+    //One compaction per process at a time, the registry lock already keeps processes from compacting together
+    private static final AtomicBoolean COMPACTING = new AtomicBoolean();
+
+    private final ObjectMapper jsonMapper;
+    private final SingleFileRegistryStore snapshot;
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private Set<String> names;
+    private long namesVersion;
+
+    JournalRegistryStore(ObjectMapper jsonMapper, Path snapshotPath, boolean sharedBlocks) {
+        this.jsonMapper = jsonMapper;
+        this.snapshot = new SingleFileRegistryStore(jsonMapper, snapshotPath, sharedBlocks);
+        this.snapshotPath = snapshotPath;
+        this.journalPath = journalPath(snapshotPath);
+    }
+
+    static Path journalPath(Path snapshotPath) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + JOURNAL_EXTENSION);
+    }
+
+    @Override
+    public synchronized Set<String> serviceNames() throws RegistryException {
+        if (names == null) {
+            long version = version();
+            //The journal is read before the snapshot, a compaction in between then only replays changes the new
+            //snapshot already holds
+            List<JsonNode> records = replay().records();
+            Map<String, JsonNode> state = new LinkedHashMap<>();
+            snapshot.scan(Collections.emptySet(), null).forEach(service -> state.put(service, null));
+            apply(records, state, null);
+            names = Collections.unmodifiableSet(state.keySet());
+            namesVersion = version;
+        }
+        return names;
+    }
+
+    /**
+     * Appending to the journal changes its size and so the stamp, the snapshot only changes when it's compacted
+     * */
+    @Override
+    public String stamp() {
+        String snapshotStamp = FileUtils.fileStamp(snapshotPath);
+        if (snapshotStamp == null) {
+            return null;
+        }
+        return snapshotStamp + "/" + FileUtils.fileStamp(journalPath);
+    }
+
+    @Override
+    public boolean contains(String service) throws RegistryException {
+        return serviceNames().contains(service);
+    }
+
+    @Override
+    public JsonNode read(String service) throws RegistryException {
+        return read(Set.of(service)).get(service);
+    }
+
+    @Override
+    public Map<String, JsonNode> read(Set<String> services) throws RegistryException {
+        Map<String, JsonNode> found = new LinkedHashMap<>();
+        if (services.isEmpty()) {
+            return found;
+        }
+
+        List<JsonNode> records = replay().records();
+        snapshot.scan(services, found);
+        apply(records, found, services);
+        return found;
+    }
+
+    @Override
+    public boolean write(Map<String, JsonNode> services, long expectedVersion) throws RegistryException {
+        if (services.isEmpty()) {
+            return true;
+        }
+
+        ObjectNode record = jsonMapper.createObjectNode();
+        record.putObject(PUT).setAll(services);
+        return append(record, expectedVersion);
+    }
+
+    @Override
+    public boolean delete(Set<String> services, long expectedVersion) throws RegistryException {
+        if (services.isEmpty()) {
+            return true;
+        }
+
+        ObjectNode record = jsonMapper.createObjectNode();
+        services.forEach(record.putArray(DELETE)::add);
+        return append(record, expectedVersion);
+    }
+
+    /**
+     * Only the snapshot stores shared blocks once, journal records hold the services in full until they're compacted
+     * into it
+     * */
+    @Override
+    public boolean sharesBlocksOnDisk() {
+        return snapshot.sharesBlocksOnDisk();
+    }
+
+    @Override
+    public void clear() throws RegistryException {
+        ObjectNode record = jsonMapper.createObjectNode();
+        record.put(CLEAR, true);
+        append(record, RegistryLock.ANY_VERSION);
+    }
+
+    @Override
+    public synchronized void refresh() {
+        if (names != null && namesVersion != version()) {
+            names = null;
+        }
+    }
+
+    //Appends one record under the registry lock, the cost depends on the size of the change and not of the registry.
+    //Locked before synchronizing, see RegistryLock
+    private boolean append(ObjectNode record, long expectedVersion) throws RegistryException {
+        long journalSize;
+        try (RegistryLock lock = RegistryLock.acquire()) {
+            synchronized (this) {
+                if (!lock.isAt(expectedVersion)) {
+                    return false;
+                }
+
+                try (Timings.Phase ignored = Timings.start("journal append");
+                     FileChannel channel = FileChannel.open(journalPath,
+                             StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    long end = validEnd(channel);
+                    if (end < channel.size()) {
+                        channel.truncate(end);
+                    }
+
+                    ByteBuffer frame = frame(jsonMapper.writeValueAsBytes(record));
+                    channel.position(end);
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                    channel.force(false);
+                    journalSize = channel.size();
+                } catch (IOException e) {
+                    throw writeError(e);
+                }
+
+                lock.bump();
+                names = null;
+            }
+        }
+
+        if (journalSize > compactionThreshold(snapshotSize())) {
+            compactInBackground();
+        }
+        return true;
+    }
+
+    /**
+     * Compacts on a platform thread, which keeps the JVM alive until the new snapshot is in place. The command's output
+     * is already printed by then, and a compaction cut short by a crash is redone after the next write
+     * */
+    private void compactInBackground() {
+        if (!COMPACTING.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread.ofPlatform().name("registry-compaction").start(() -> {
+            try {
+                compact();
+            } catch (RegistryException ignored) {
+                //The journal is still complete, the next write tries again
+            } finally {
+                COMPACTING.set(false);
+            }
+        });
+    }
+
+    /**
+     * Folds the journal into a new snapshot. It holds the registry lock, so no write lands between reading the journal
+     * and emptying it, and changes nothing readers can see, so it doesn't bump the version
+     * */
+    @Override
+    public void compact() throws RegistryException {
+        try (RegistryLock ignored = RegistryLock.acquire()) {
+            Replay replay = replay();
+            if (replay.records().isEmpty() && replay.validEnd() == 0) {
+                return;
+            }
+
+            ObjectNode loaded = snapshot.load();
+            Map<String, JsonNode> state = new LinkedHashMap<>();
+            loaded.properties().forEach(e -> state.put(e.getKey(), e.getValue()));
+            apply(replay.records(), state, null);
+
+            ObjectNode compacted = jsonMapper.createObjectNode();
+            compacted.setAll(state);
+            snapshot.save(compacted);
+
+            //Replaced rather than truncated, a reader still holding the old journal reads it whole
+            FileUtils.writeAtomically(journalPath, out -> {});
+        } catch (IOException e) {
+            throw writeError(e);
+        }
+    }
+
+    /**
+     * @param snapshotSize The size of the snapshot in bytes
+     * @return the journal size past which it's compacted, from {@value MAX_BYTES_ENV} or 256 KiB by default. It grows
+     * with the snapshot so rewriting a large registry stays rare next to the appends that trigger it
+     * */
+    static long compactionThreshold(long snapshotSize) {
+        long threshold = DEFAULT_MAX_BYTES;
+        String bytes = System.getenv(MAX_BYTES_ENV);
+        if (bytes != null) {
+            try {
+                threshold = Math.max(0, Long.parseLong(bytes.trim()));
+            } catch (NumberFormatException ignored) {
+
+            }
+        }
+        return Math.max(threshold, snapshotSize / 4);
+    }
+
+    private long snapshotSize() {
+        try {
+            return Files.size(snapshotPath);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Applies journal records in order
+     * @param records The records to apply
+     * @param state Maps service names to their config, updated in place
+     * @param wanted Only these services are put into the state, null for every service
+     * */
+    private static void apply(List<JsonNode> records, Map<String, JsonNode> state, Set<String> wanted) {
+        for (JsonNode record : records) {
+            if (record.has(PUT)) {
+                record.get(PUT).properties().forEach(e -> {
+                    if (wanted == null || wanted.contains(e.getKey())) {
+                        state.put(e.getKey(), e.getValue());
+                    }
+                });
+            } else if (record.has(DELETE)) {
+                record.get(DELETE).forEach(service -> state.remove(service.asText()));
+            } else if (record.has(CLEAR)) {
+                state.clear();
+            }
+        }
+    }
+
+    /**
+     * Reads every complete record of the journal, stopping at the first one that is torn or corrupted
+     * */
+    private Replay replay() throws RegistryException {
+        byte[] journal;
+        try {
+            journal = Files.readAllBytes(journalPath);
+        } catch (NoSuchFileException e) {
+            return new Replay(List.of(), 0);
+        } catch (IOException e) {
+            throw readError(e);
+        }
+
+        List<JsonNode> records = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(journal);
+        while (true) {
+            int start = buffer.position();
+            byte[] payload = nextPayload(buffer);
+            if (payload == null) {
+                return new Replay(records, start);
+            }
+
+            try {
+                records.add(jsonMapper.readTree(payload));
+            } catch (IOException e) {
+                //The checksum matched, so the record was written that way and the journal can't be trusted past it
+                throw new RegistryException(
+                        new ServiceError(
+                                "registry journal is corrupted",
+                                String.format("backup and delete `%s`, the services in `%s` are kept", journalPath, snapshotPath),
+                                e)
+                );
+            }
+        }
+    }
+
+    /**
+     * Checks the last record only, so appending doesn't read the whole journal. The journal is read in full only when
+     * its end is torn, which happens once after a crash
+     * @return the offset after the last complete record
+     * */
+    private long validEnd(FileChannel channel) throws IOException, RegistryException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        if (size >= HEADER_BYTES + TRAILER_BYTES) {
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            channel.read(trailer, size - TRAILER_BYTES);
+            long length = trailer.flip().getInt();
+            long start = size - HEADER_BYTES - TRAILER_BYTES - length;
+            if (length >= 0 && start >= 0) {
+                ByteBuffer last = ByteBuffer.allocate((int) (size - start));
+                while (last.hasRemaining() && channel.read(last, start + last.position()) >= 0) {
+                    //Read until the buffer is full
+                }
+                if (nextPayload(last.flip()) != null && !last.hasRemaining()) {
+                    return size;
+                }
+            }
+        }
+
+        return replay().validEnd();
+    }
+
+    /**
+     * @return the payload of the record at the buffer's position, moving past it, or null if the record is incomplete
+     * or its checksum doesn't match
+     * */
+    private static byte[] nextPayload(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES + TRAILER_BYTES) {
+            return null;
+        }
+
+        int start = buffer.position();
+        int magic = buffer.getInt();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (magic != MAGIC || length < 0 || buffer.remaining() < length + TRAILER_BYTES) {
+            buffer.position(start);
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        if (buffer.getInt() != length || checksum != checksum(payload)) {
+            buffer.position(start);
+            return null;
+        }
+        return payload;
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length + TRAILER_BYTES)
+                .putInt(MAGIC)
+                .putInt(payload.length)
+                .putInt(checksum(payload))
+                .put(payload)
+                .putInt(payload.length)
+                .flip();
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private RegistryException readError(IOException e) {
+        return new RegistryException(
+                new ServiceError("cannot read registry journal",
+                        String.format("check the permissions of `%s`", journalPath), e)
+        );
+    }
+
+    private RegistryException writeError(IOException e) {
+        return new RegistryException(
+                new ServiceError(
+                        "cannot write to registry journal",
+                        "check if another process is using the registry or run `ls -la ~/.quickstart/journal/`",
+                        e)
+        );
+    }
+
+    /**
+     * @param records The complete records in the journal, oldest first
+     * @param validEnd The offset after the last complete record
+     * */
+    private record Replay(List<JsonNode> records, long validEnd) {
+
+    }
+}
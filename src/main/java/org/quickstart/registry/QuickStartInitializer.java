@@ -1,5 +1,7 @@
 package org.quickstart.registry;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.quickstart.configurations.ObjectMapperConfig;
 import org.quickstart.exceptions.QuickStartException;
 import org.quickstart.exceptions.RegistryException;
 import org.quickstart.exceptions.ServiceError;
@@ -8,7 +10,6 @@ import java.io.IOException;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
-import java.nio.file.StandardOpenOption;
 
 import static org.quickstart.FileUtils.createFolder;
 import static org.quickstart.constants.QuickStartConstants.*;
@@ -18,15 +19,21 @@ import static org.quickstart.constants.QuickStartConstants.*;
  * */
 public final class QuickStartInitializer {
 
-    private final static String JSON_BRACES = "{\n}";
-
     private QuickStartInitializer() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
     }
 
     public static void initQuickStart() throws QuickStartException {
+        initQuickStart(null, null);
+    }
+
+    /**
+     * @param layout The registry layout to use, or null to keep the current one (a single file for new installs)
+     * @param format The registry format to use, or null to keep the current one (json for new installs)
+     * */
+    public static void initQuickStart(RegistryLayout layout, RegistryFormat format) throws QuickStartException {
         initBaseDirectory();
-        initRegistryFile();
+        initRegistry(layout, format);
         initProfilesFolder();
         initTempFolder();
     }
@@ -93,16 +100,32 @@ public final class QuickStartInitializer {
     }
 
     /**
-     * Creates the main registry file (~/.quickstart/registry.yaml).
+     * Creates an empty registry in the chosen layout and format and records them in ~/.quickstart/config.json.
+     * An existing registry is never overwritten
      */
-    private static void initRegistryFile() throws QuickStartException {
+    private static void initRegistry(RegistryLayout layout, RegistryFormat format) throws QuickStartException {
+        ObjectMapper jsonMapper = ObjectMapperConfig.getJsonMapper();
+        boolean initialized = Files.exists(CONFIG_PATH) || Files.exists(REGISTRY_PATH);
+        RegistryConfig current = initialized ? RegistryConfig.load(jsonMapper) : null;
+        RegistryConfig config = (current != null ? current : RegistryConfig.DEFAULT).with(layout, format);
+
+        if (current != null && !current.equals(config)) {
+            throw new QuickStartException(
+                    new ServiceError(
+                            String.format("registry is already stored as %s", current.describe()),
+                            String.format("run `qs migrate --layout %s --format %s` to move your services",
+                                    config.layout().name().toLowerCase(), config.format().name().toLowerCase())
+                    )
+            );
+        }
+
         try {
-            Files.write(REGISTRY_PATH, JSON_BRACES.getBytes(), StandardOpenOption.CREATE);
+            config.createRegistry();
         } catch (AccessDeniedException e) {
             throw new QuickStartException(
                     new ServiceError(
                             "permission denied creating registry file",
-                            String.format("run `touch %s` to test file creation permissions", REGISTRY_PATH),
+                            String.format("run `touch %s` to test file creation permissions", config.location()),
                             e)
             );
         } catch (NoSuchFileException e) {
@@ -115,10 +138,12 @@ public final class QuickStartInitializer {
         } catch (IOException e) {
             throw new QuickStartException(
                     new ServiceError(
-                            String.format("failed to create `%s`", REGISTRY_PATH),
+                            String.format("failed to create `%s`", config.location()),
                             "check disk space with `df -h` and directory permissions",
                             e)
             );
         }
+
+        config.save(jsonMapper);
     }
-}
\ No newline at end of file
+}
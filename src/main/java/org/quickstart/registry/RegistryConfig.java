@@ -0,0 +1,113 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.quickstart.FileUtils;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.exceptions.ServiceError;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.quickstart.constants.QuickStartConstants.CONFIG_PATH;
+
+/**
+ * The registry settings chosen at `qs init` time, stored in ~/.quickstart/config.json.
+ * Installs without a config file predate it and use a single json file
+ * @param layout How registry entries are laid out on disk
+ * @param format How registry entries are encoded
+ * @param sharedBlocks Whether blocks several services have in common are stored once on disk, only chosen through
+ *                     `qs migrate --shared-blocks` and only in the layouts that {@link RegistryLayout#canShareBlocks()}
+ * */
+record RegistryConfig(RegistryLayout layout, RegistryFormat format, boolean sharedBlocks) {
+
+    static final RegistryConfig DEFAULT = new RegistryConfig(RegistryLayout.FILE, RegistryFormat.JSON, false);
+
+    private static final String LAYOUT_FIELD = "layout";
+    private static final String FORMAT_FIELD = "format";
+    private static final String SHARED_BLOCKS_FIELD = "sharedBlocks";
+
+    static RegistryConfig load(ObjectMapper jsonMapper) throws RegistryException {
+        if (!Files.exists(CONFIG_PATH)) {
+            return DEFAULT;
+        }
+
+        try {
+            JsonNode node = jsonMapper.readTree(CONFIG_PATH.toFile());
+            RegistryLayout layout = RegistryLayout.valueOf(node.path(LAYOUT_FIELD).asText(DEFAULT.layout().name()));
+            RegistryFormat format = RegistryFormat.valueOf(node.path(FORMAT_FIELD).asText(DEFAULT.format().name()));
+            boolean sharedBlocks = node.path(SHARED_BLOCKS_FIELD).asBoolean(DEFAULT.sharedBlocks());
+            return new RegistryConfig(layout, format, sharedBlocks && layout.canShareBlocks());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot read quickstart config",
+                            String.format("fix or delete `%s` and run `quickstart init`", CONFIG_PATH),
+                            e)
+            );
+        }
+    }
+
+    void save(ObjectMapper jsonMapper) throws RegistryException {
+        ObjectNode node = jsonMapper.createObjectNode();
+        node.put(LAYOUT_FIELD, layout.name());
+        node.put(FORMAT_FIELD, format.name());
+        node.put(SHARED_BLOCKS_FIELD, sharedBlocks);
+
+        //Replaced whole, every command reads it first and a half written config would stop them all
+        try {
+            FileUtils.writeAtomically(CONFIG_PATH, out -> jsonMapper.writeValue(out, node));
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot write quickstart config",
+                            String.format("check file permissions for `%s`", CONFIG_PATH),
+                            e)
+            );
+        }
+    }
+
+    RegistryStore openStore() {
+        return layout.open(format, sharedBlocks);
+    }
+
+    /**
+     * @return this config with the given layout and format, a null value keeps the current one
+     * */
+    RegistryConfig with(RegistryLayout layout, RegistryFormat format) {
+        return with(layout, format, null);
+    }
+
+    /**
+     * @param sharedBlocks Whether to store shared blocks once on disk, null keeps the current choice as long as the
+     *                     new layout can share blocks
+     * @return this config with the given settings, a null value keeps the current one
+     * */
+    RegistryConfig with(RegistryLayout layout, RegistryFormat format, Boolean sharedBlocks) {
+        RegistryLayout targetLayout = layout != null ? layout : this.layout;
+        boolean shared = sharedBlocks != null ? sharedBlocks : this.sharedBlocks && targetLayout.canShareBlocks();
+        return new RegistryConfig(targetLayout, format != null ? format : this.format, shared);
+    }
+
+    void createRegistry() throws IOException {
+        layout.create(format);
+    }
+
+    void removeRegistry() throws IOException {
+        layout.remove(format);
+    }
+
+    Path location() {
+        return layout.location(format);
+    }
+
+    /**
+     * @return a user-facing description of the layout and format, i.e. `directory/smile` or
+     * `file/json with shared blocks`
+     * */
+    String describe() {
+        return layout.name().toLowerCase() + "/" + format.name().toLowerCase() + (sharedBlocks ? " with shared blocks" : "");
+    }
+}
@@ -0,0 +1,48 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+/**
+ * How registry entries are encoded on disk. Exports and `qs show` always emit YAML, whatever the registry is stored in
+ * */
+public enum RegistryFormat {
+
+    /**
+     * Pretty printed json, easy to read and edit by hand
+     * */
+    JSON(".json") {
+        @Override
+        ObjectMapper mapper() {
+            return ObjectMapperConfig.getJsonMapper();
+        }
+    },
+
+    /**
+     * Jackson's binary json encoding, smaller on disk and much faster to parse than pretty printed json
+     * */
+    SMILE(".smile") {
+        @Override
+        ObjectMapper mapper() {
+            return ObjectMapperConfig.getSmileMapper();
+        }
+    };
+
+    private final String extension;
+
+    RegistryFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the mapper that reads and writes this format
+     * */
+    abstract ObjectMapper mapper();
+
+    /**
+     * @return the file extension of registry files in this format
+     * */
+    String extension() {
+        return extension;
+    }
+}
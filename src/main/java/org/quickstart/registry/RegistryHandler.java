@@ -3,38 +3,183 @@ package org.quickstart.registry;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import org.quickstart.FileUtils;
+import org.quickstart.FileWatcher;
 import org.quickstart.compose.ComposeBuilder;
 import org.quickstart.compose.ComposeFile;
+import org.quickstart.compose.ComposeProjects;
+import org.quickstart.compose.ComposeServiceReader;
+import org.quickstart.compose.DependencyGraph;
+import org.quickstart.compose.ImagePuller;
 import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.daemon.ClientContext;
+import org.quickstart.dtos.ComposeDown;
+import org.quickstart.dtos.ComposeProject;
+import org.quickstart.dtos.DirectoryImport;
+import org.quickstart.dtos.FileImport;
+import org.quickstart.dtos.ImportSource;
+import org.quickstart.dtos.ProcessResult;
 import org.quickstart.dtos.RegistryExport;
 import org.quickstart.dtos.RegistryImport;
+import org.quickstart.dtos.RegistryMigration;
+import org.quickstart.dtos.RegistryStats;
+import org.quickstart.dtos.SearchResult;
 import org.quickstart.dtos.ServiceExport;
+import org.quickstart.dtos.UpOptions;
+import org.quickstart.exceptions.ComposeException;
 import org.quickstart.exceptions.QuickStartException;
 import org.quickstart.exceptions.RegistryException;
 import org.quickstart.exceptions.ServiceError;
+import org.quickstart.processes.ProcessStarter;
+import org.quickstart.search.ServiceIndex;
+import org.quickstart.similarity.NameIndex;
+import org.quickstart.timings.Timings;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static org.quickstart.constants.QuickStartConstants.REGISTRY_PATH;
-import static org.quickstart.constants.QuickStartConstants.USER_DIR;
+import static org.quickstart.constants.QuickStartConstants.CONFIG_PATH;
+import static org.quickstart.constants.QuickStartConstants.PROFILE_BASE_PATH;
+import static org.quickstart.constants.QuickStartConstants.SEARCH_INDEX_PATH;
+import static org.quickstart.constants.QuickStartConstants.SERVICE_INDEX_PATH;
+import static org.quickstart.constants.QuickStartConstants.SOURCES_PATH;
+import static org.quickstart.constants.QuickStartConstants.YML_EXTENSION;
+import static org.quickstart.registry.RegistryIOUtils.composeMap;
+import static org.quickstart.registry.RegistryIOUtils.deleteFromRegistry;
 import static org.quickstart.registry.RegistryIOUtils.readFromRegistry;
+import static org.quickstart.registry.RegistryIOUtils.retryOnConflict;
+import static org.quickstart.registry.RegistryIOUtils.searchIndex;
+import static org.quickstart.registry.RegistryIOUtils.similarServices;
 import static org.quickstart.registry.RegistryIOUtils.writeToRegistry;
 
 public final class RegistryHandler {
 
+    /**
+     * Services read from a compose file before they're written, bounds the memory a streamed import needs
+     * */
+    private static final int IMPORT_BATCH_SIZE = 256;
+
+    /**
+     * The files `qs add --dir` imports unless told otherwise
+     * */
+    private static final String DEFAULT_IMPORT_GLOB = "*.{yml,yaml}";
+
+    /**
+     * How long a watched compose file has to be left alone after a save before it's imported again
+     * */
+    private static final Duration WATCH_QUIET_PERIOD = Duration.ofMillis(300);
+
     private final ObjectMapper jsonMapper;
     private final YAMLMapper yamlMapper;
-    private final JsonNode registryRootNode;
+    private final YAMLMapper composeMapper;
+    private final NameIndex nameIndex;
+    private final ServiceIndex serviceIndex;
+    private final ImportSources importSources;
+    private volatile RegistryStore store;
+    private volatile String configStamp;
 
     private RegistryHandler() throws RegistryException{
-        this.jsonMapper = ObjectMapperConfig.getJsonMapper();
-        this.yamlMapper = ObjectMapperConfig.getYAMLMapper();
-        this.registryRootNode = registryRootNode();
+        try(Timings.Phase ignored = Timings.start("registry open")){
+            this.jsonMapper = ObjectMapperConfig.getJsonMapper();
+            this.yamlMapper = ObjectMapperConfig.getYAMLMapper();
+            this.composeMapper = ObjectMapperConfig.getComposeYAMLMapper();
+            this.nameIndex = new NameIndex(SERVICE_INDEX_PATH);
+            this.serviceIndex = new ServiceIndex(SEARCH_INDEX_PATH);
+            this.importSources = new ImportSources(SOURCES_PATH, jsonMapper);
+            this.configStamp = FileUtils.fileStamp(CONFIG_PATH);
+            this.store = RegistryConfig.load(jsonMapper).openStore();
+        }
+    }
+
+    /**
+     * Drops cached registry data if the registry was modified since it was last loaded. A single CLI run never needs
+     * this, but long-lived processes like the daemon call it before every command
+     * */
+    public synchronized void reloadIfChanged() throws RegistryException{
+        String stamp = FileUtils.fileStamp(CONFIG_PATH);
+        if(!Objects.equals(stamp, configStamp)){
+            //The registry was migrated to another layout
+            this.store = RegistryConfig.load(jsonMapper).openStore();
+            this.configStamp = stamp;
+        }else{
+            store.refresh();
+        }
+    }
+
+    /**
+     * Moves every service to a different registry layout and/or format, or rewrites it with or without shared blocks
+     * @param layout The layout to migrate to, or null to keep the current one
+     * @param format The format to migrate to, or null to keep the current one
+     * @param sharedBlocks Whether to store blocks several services have in common once on disk, or null to keep the
+     *                     current choice
+     * @return a dto describing the migration
+     * */
+    public synchronized RegistryMigration migrateRegistry(RegistryLayout layout, RegistryFormat format, Boolean sharedBlocks) throws RegistryException{
+        RegistryConfig current = RegistryConfig.load(jsonMapper);
+        RegistryConfig target = current.with(layout, format, sharedBlocks);
+        if(target.sharedBlocks() && !target.layout().canShareBlocks()){
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("the %s layout can't store shared blocks once", target.layout().name().toLowerCase()),
+                            "use `--shared-blocks` with `--layout file` or `--layout journal`")
+            );
+        }
+        if(target.equals(current)){
+            return new RegistryMigration(0, target.describe(), false);
+        }
+
+        //Only sharing blocks changed, the registry is rewritten in place
+        boolean sameFiles = target.layout() == current.layout() && target.format() == current.format();
+
+        //Hold the lock throughout, a write landing in the old registry after it was copied would be lost
+        try(RegistryLock ignored = RegistryLock.acquire()){
+            Map<String, JsonNode> services = store.readAll();
+            target.createRegistry();
+            RegistryStore targetStore = target.openStore();
+            if(!sameFiles){
+                targetStore.clear(); //Leftovers from an earlier migration
+            }
+            targetStore.write(services);
+            targetStore.compact(); //So the snapshot is written the new way too, not only what comes after
+
+            //Only switch over once everything is copied, so a failed migration leaves the old registry in use
+            target.save(jsonMapper);
+            this.store = targetStore;
+            this.configStamp = FileUtils.fileStamp(CONFIG_PATH);
+            if(!sameFiles){
+                current.removeRegistry();
+            }
+            return new RegistryMigration(services.size(), target.describe(), true);
+        }catch (IOException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("cannot migrate the registry to `%s`", target.location()),
+                            "check disk space and permissions for ~/.quickstart/",
+                            e)
+            );
+        }
     }
 
     /**
@@ -49,36 +194,44 @@ public final class RegistryHandler {
         if(map == null || map.isEmpty()) {
             throw new QuickStartException("Empty registry file");
         }
-        List<String> existingServices = new ArrayList<>(); //A list of services which already exist in the registry
-
-        //Map the yaml string to its key and a json node(its tree)
-        Map<String, JsonNode> filtered  = map
-                .entrySet()
-                .stream()
-                .filter(Objects::nonNull)
-                .filter(k -> k.getValue() != null && !k.getValue().isEmpty())
-                .collect(HashMap::new, (m, e) ->
-                {
-                    try {
-                        if(registryRootNode.has(e.getKey())) {
-                            existingServices.add(e.getValue());
-                        }else{
-                            m.put(e.getKey(), yamlMapper.readValue(e.getValue(), JsonNode.class));
+
+        //Which services already exist decides what gets written, so plan again if another process writes in between
+        return retryOnConflict(store, version -> {
+            List<String> existingServices = new ArrayList<>(); //A list of services which already exist in the registry
+
+            //Map the yaml string to its key and a json node(its tree)
+            Map<String, JsonNode> filtered  = map
+                    .entrySet()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .filter(k -> k.getValue() != null && !k.getValue().isEmpty())
+                    .collect(HashMap::new, (m, e) ->
+                    {
+                        try {
+                            if(store.contains(e.getKey())) {
+                                existingServices.add(e.getValue());
+                            }else{
+                                m.put(e.getKey(), yamlMapper.readValue(e.getValue(), JsonNode.class));
+                            }
+                        } catch (JsonProcessingException ex) {
+                            throw new RegistryException(
+                                    new ServiceError("invalid YAML syntax", "check your service configuration format", ex)
+                            );
                         }
-                    } catch (JsonProcessingException ex) {
-                        throw new RegistryException(
-                                new ServiceError("invalid YAML syntax", "check your service configuration format", ex)
-                        );
-                    }
-                }, HashMap::putAll);
+                    }, HashMap::putAll);
 
-        writeToRegistry(jsonMapper, filtered);
-        return new RegistryImport(existingServices);
+            return writeToRegistry(store, nameIndex, serviceIndex, importSources, filtered, version) ? new RegistryImport(existingServices) : null;
+        });
     }
 
 
     /**
-     * Import services from a yaml file to a registry
+     * Import services from a yaml file to a registry. The file is streamed, only one service is held as a tree at a time
+     * and services are written in batches as they're read, so importing a huge file doesn't need the whole of it in
+     * memory. A file that turns out to be malformed part way leaves the batches before the error imported.
+     * Importing a file again is incremental: services still holding what was last imported from it are updated without
+     * force and only when their content changed, and a file that wasn't touched since isn't read at all, see
+     * {@link ImportSources}
      * @param fileName The name of the yaml file
      * @param excludedServices The services you want to exclude from the yaml file. Leave empty if you want to exclude nothing
      * @param force Overwrites already existing services
@@ -86,115 +239,594 @@ public final class RegistryHandler {
      * */
     //My suggested method
     public RegistryImport importToRegistryFromYaml(String fileName, Set<String> excludedServices ,boolean force) throws RegistryException{
-        Path path = Path.of(USER_DIR.toString(), fileName).normalize();
+        Path path = ClientContext.workingDir().resolve(fileName).normalize();
         validateFile(path);
 
         try{
-            JsonNode rootNode = yamlMapper.readTree(path.toFile());
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            ImportSource previous = importSources.get(path);
+            if(previous != null && upToDate(previous, size, modified, excludedServices, force)){
+                List<String> existingServices = previous.skipped().stream().filter(service -> !excludedServices.contains(service)).toList();
+                return new RegistryImport(existingServices, List.of(), List.of(), previous.services().size());
+            }
+
+            Map<String, String> previousHashes = previous == null ? Map.of() : previous.services();
+            Map<String, String> hashes = new TreeMap<>(); //What the registry holds from the file once we're done
+            Set<String> skipped = new TreeSet<>();
+            Set<String> unchanged = new HashSet<>();
+            List<String> existingServices = new ArrayList<>();
+            Map<String, JsonNode> batch = new LinkedHashMap<>();
+            AtomicInteger written = new AtomicInteger();
 
-            if(rootNode == null || rootNode.isEmpty()){
+            ComposeServiceReader.Outcome outcome;
+            try(Timings.Phase ignored = Timings.start("yaml import")){
+                //Existing services are passed over before they're built, and checked again when their batch is written.
+                //Those we imported from this file last time are ours to update
+                outcome = ComposeServiceReader.read(path, composeMapper, service -> {
+                    if(excludedServices.contains(service)){
+                        skipped.add(service);
+                        return false;
+                    }
+                    if(!force && !previousHashes.containsKey(service) && store.contains(service)){
+                        existingServices.add(service);
+                        skipped.add(service);
+                        return false;
+                    }
+                    return true;
+                }, (service, node) -> {
+                    String hash = contentHash(node);
+                    hashes.put(service, hash);
+                    if(hash != null && hash.equals(previousHashes.get(service)) && store.contains(service)){
+                        unchanged.add(service);
+                        return;
+                    }
+
+                    batch.put(service, node);
+                    //A store that rewrites everything on each write gets batches as large as what's already written,
+                    //so the whole import costs a few rewrites instead of one per batch. It holds the registry in memory
+                    //to rewrite it anyway
+                    int limit = store.rewritesOnWrite() ? Math.max(IMPORT_BATCH_SIZE, written.get()) : IMPORT_BATCH_SIZE;
+                    if(batch.size() >= limit){
+                        written.addAndGet(batch.size());
+                        existingServices.addAll(writeImportBatch(batch, force, path));
+                        batch.clear();
+                    }
+                });
+                existingServices.addAll(writeImportBatch(batch, force, path));
+            }
+
+            if(outcome == ComposeServiceReader.Outcome.EMPTY){
                 throw new RegistryException(
                         new ServiceError("empty YAML file", String.format("add some content to `%s`", path))
                 );
             }
 
-            //Get the services tree
-            JsonNode servicesNode = rootNode.get("services");
-
-            if(servicesNode == null || servicesNode.isEmpty()){
+            if(outcome == ComposeServiceReader.Outcome.NO_SERVICES){
                 throw new RegistryException(
                         new ServiceError("no 'services' section found", "add a `services:` section to your YAML file")
                 );
             }
 
-            //Map the yaml to key val map and convert to json
-            Map<String, JsonNode> servicesMap = new HashMap<>();
-            List<String> existingServices = new ArrayList<>();
-            Set<Map.Entry<String, JsonNode>> servicesSet = servicesNode.properties();
+            //Services another process added while we read aren't ours
+            hashes.keySet().removeAll(existingServices);
+            skipped.addAll(existingServices);
+            List<String> imported = new ArrayList<>();
+            List<String> updated = new ArrayList<>();
+            hashes.keySet().stream()
+                    .filter(service -> !unchanged.contains(service))
+                    .forEach(service -> (previousHashes.containsKey(service) ? updated : imported).add(service));
 
+            //A service that couldn't be hashed is simply written again next time
+            hashes.values().removeIf(Objects::isNull);
+            importSources.imported(path, new ImportSource(size, modified, hashes, skipped));
+            return new RegistryImport(existingServices, imported, updated, unchanged.size());
+        }catch(JsonProcessingException e){
+            throw new RegistryException(
+                    new ServiceError(syntaxError(e), String.format("fix `%s`, services before the error were imported", path), e)
+            );
+        }catch(IOException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("cannot read file `%s`", path),
+                            "check if the file exists and is readable",
+                            e)
+            );
+        }
+    }
 
-            if(force){
-                servicesSet.forEach(e -> {
-                    if(!excludedServices.contains(e.getKey())){
-                        servicesMap.put(e.getKey(), e.getValue());
-                    }
+    //A file that wasn't touched since its last import needs nothing written as long as everything imported from it is
+    //still there and everything passed over would be passed over again
+    private boolean upToDate(ImportSource previous, long size, long modified, Set<String> excludedServices, boolean force) {
+        return previous.size() == size
+                && previous.modified() == modified
+                && previous.services().keySet().stream().allMatch(store::contains)
+                && previous.skipped().stream().allMatch(service -> excludedServices.contains(service) || (!force && store.contains(service)));
+    }
 
-                });
-            }else{
-                servicesSet.forEach(e -> {
-                    if(!excludedServices.contains(e.getKey()) && registryRootNode.has(e.getKey())) {
-                        existingServices.add(e.getKey());
-                    }else{
-                        servicesMap.put(e.getKey(), e.getValue());
+    //Identifies what a service holds, null if it can't be hashed and has to be written every time
+    private String contentHash(JsonNode service) {
+        return ComposeProjects.hash(out -> jsonMapper.writeValue(out, service));
+    }
+
+    /**
+     * Keeps the registry in sync with a compose file until the thread is interrupted. The file is imported right away,
+     * then again each time it's saved, which only writes the services that changed in it, see
+     * {@link #importToRegistryFromYaml}. A save that can't be imported, i.e. one made part way through an edit, is
+     * reported and the file watched on
+     * @param fileName The name of the yaml file
+     * @param excludedServices The services you want to exclude from the yaml file. Leave empty if you want to exclude nothing
+     * @param force Overwrites already existing services
+     * @param up Also brings up again each project `qs up` started that runs a service the import changed
+     * @param progress Told about each import and each project brought up again
+     * @param errors Told about each import or `up` that failed
+     * */
+    public void watchComposeFile(String fileName, Set<String> excludedServices, boolean force, boolean up,
+                                 Consumer<String> progress, Consumer<ServiceError> errors) throws RegistryException{
+        Path path = ClientContext.workingDir().resolve(fileName).normalize();
+        validateFile(path);
+
+        //Watching before the first import, a save made while it runs would otherwise be missed
+        try(FileWatcher watcher = new FileWatcher(path, WATCH_QUIET_PERIOD)){
+            progress.accept(String.format("watching `%s` for changes, press Ctrl+C to stop", fileName));
+            do{
+                try{
+                    reloadIfChanged(); //Other commands may have written to the registry since
+                    RegistryImport imported = importToRegistryFromYaml(fileName, excludedServices, force);
+                    progress.accept(imported.toString());
+                    if(up && !imported.changedServices().isEmpty()){
+                        upAffectedProjects(imported.changedServices(), progress, errors);
                     }
-                });
+                }catch (RegistryException e){
+                    errors.accept(e.serviceError());
+                }
+            }while(watcher.awaitChange());
+        }catch (IOException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("cannot watch `%s` for changes", path),
+                            "check that the directory exists and the system's limit on watched files isn't reached",
+                            e)
+            );
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt(); //Stopped
+        }
+    }
+
+    //Brings up again the projects `qs up` started that run any of the services, in their own project so docker-compose
+    //recreates only the containers whose service changed. Profiles are left alone, they run their own compose file
+    private void upAffectedProjects(Collection<String> services, Consumer<String> progress, Consumer<ServiceError> errors){
+        for(ComposeProject project : ComposeProjects.recorded()){
+            if(Collections.disjoint(project.services(), services) || Files.exists(PROFILE_BASE_PATH.resolve(project.name() + YML_EXTENSION))){
+                continue;
             }
 
-            writeToRegistry(jsonMapper, servicesMap);
-            return new RegistryImport(existingServices);
+            try{
+                UpOptions options = new UpOptions(project.name(), false, false, 0);
+                RegistryExport export = buildFromRegistryAndRun(new TreeSet<>(project.services()), options, progress);
+                progress.accept(export.unchanged()
+                        ? String.format("`%s` is up to date", project.name())
+                        : String.format("brought `%s` up again", project.name()));
+            }catch (RegistryException e){
+                errors.accept(e.serviceError());
+            }
+        }
+    }
 
-        }catch(IOException e){
+    /**
+     * Imports every compose file in a directory in a single registry write. The files are parsed side by side, then
+     * merged in the order of their paths as if each was imported with `qs add -f` one after the other: without force a
+     * service found in several files comes from the first of them, with force from the last
+     * @param directory The directory, relative to the working directory
+     * @param glob Picks the files by their path relative to the directory, null for every `.yml` and `.yaml` file at its
+     *             top level
+     * @param excludedServices The services to leave out of every file
+     * @param force Overwrites already existing services
+     * @return what was imported, skipped and found invalid in each file
+     * */
+    public DirectoryImport importToRegistryFromDirectory(String directory, String glob, Set<String> excludedServices, boolean force) throws RegistryException{
+        long start = System.nanoTime();
+        Path dir = ClientContext.workingDir().resolve(directory).normalize();
+        String pattern = glob == null ? DEFAULT_IMPORT_GLOB : glob;
+        List<Path> files = composeFiles(dir, pattern);
+
+        if(files.isEmpty()){
             throw new RegistryException(
                     new ServiceError(
-                            String.format("cannot read file `%s`", path),
-                            "check if the file exists and is readable"
+                            String.format("no files in `%s` match `%s`", dir, pattern),
+                            "pass a different pattern to `--glob`, i.e. `'**.yml'` to include subdirectories"
                     )
             );
         }
+
+        List<ParsedComposeFile> parsed;
+        try(Timings.Phase ignored = Timings.start("yaml parse")){
+            parsed = parseComposeFiles(dir, files, excludedServices);
+        }
+
+        //Which services already exist decides what gets written, so plan again if another process writes in between
+        if(force){
+            DirectoryImportPlan plan = planDirectoryImport(parsed, true);
+            writeToRegistry(store, nameIndex, serviceIndex, importSources, plan.services());
+            return new DirectoryImport(plan.files(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        DirectoryImportPlan committed = retryOnConflict(store, version -> {
+            DirectoryImportPlan plan = planDirectoryImport(parsed, false);
+            return writeToRegistry(store, nameIndex, serviceIndex, importSources, plan.services(), version) ? plan : null;
+        });
+        return new DirectoryImport(committed.files(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
-    /**
-     * Export services from the registry as text
-     * @param services The list of services given by the use
-     * @return an export class containing a yaml string of all the services found, and a string of those not found in the registry
-     * */
-    public RegistryExport exportFromRegistryAsText(Set<String> services) throws RegistryException{
-        if(services == null || services.isEmpty()){
+    //The files in a directory matching a glob, sorted by their relative path so every run merges them the same way
+    private static List<Path> composeFiles(Path dir, String glob) throws RegistryException{
+        if(!Files.isDirectory(dir)){
             throw new RegistryException(
-                    new ServiceError("no services specified", "provide at least one service name")
+                    new ServiceError(
+                            String.format("directory `%s` not found", dir),
+                            "check the directory path and try again"
+                    )
             );
         }
 
-        if(registryRootNode == null || registryRootNode.isEmpty()){
+        PathMatcher matcher;
+        try{
+            matcher = dir.getFileSystem().getPathMatcher("glob:" + glob);
+        }catch (IllegalArgumentException e){
             throw new RegistryException(
-                    new ServiceError("no services found in registry", "use 'qs add -f <file>' to import services from a compose file")
+                    new ServiceError(String.format("invalid glob `%s`", glob), "use a pattern like `'*.yml'`", e)
             );
         }
 
-        @SuppressWarnings("unchecked")
-        Map<String, JsonNode> registryServices = jsonMapper.convertValue(registryRootNode, Map.class);
+        try(Stream<Path> paths = Files.walk(dir)){
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(dir.relativize(path)))
+                    .sorted(Comparator.comparing(path -> dir.relativize(path).toString()))
+                    .toList();
+        }catch (IOException | UncheckedIOException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("cannot list directory `%s`", dir),
+                            "check the directory permissions",
+                            e)
+            );
+        }
+    }
 
+    //Parses the files on virtual threads, at most one per core as parsing is CPU bound. A file that can't be read is
+    //reported rather than failing the others
+    private List<ParsedComposeFile> parseComposeFiles(Path dir, List<Path> files, Set<String> excludedServices) throws RegistryException{
+        Semaphore permits = new Semaphore(Runtime.getRuntime().availableProcessors());
 
-        ServiceExport export =
-                readFromRegistry(registryRootNode, registryServices  ,services);
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()){
+            List<Future<ParsedComposeFile>> futures = new ArrayList<>();
+            for(Path file : files){
+                futures.add(executor.submit(ClientContext.propagate(() -> {
+                    permits.acquire();
+                    try{
+                        return parseComposeFile(dir.relativize(file).toString(), file, excludedServices);
+                    }finally {
+                        permits.release();
+                    }
+                })));
+            }
 
-        Map<String, Object> serviceMap = export.composeMap(); //Get the service map
+            List<ParsedComposeFile> parsed = new ArrayList<>();
+            for(Future<ParsedComposeFile> future : futures){
+                parsed.add(future.get());
+            }
+            return parsed;
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RegistryException(
+                    new ServiceError("importing the directory was interrupted", "try running the command again", e)
+            );
+        }catch (ExecutionException e){
+            throw new RegistryException(
+                    new ServiceError("cannot parse the compose files", "run with `--verbose` to see what went wrong", e.getCause())
+            );
+        }
+    }
+
+    private ParsedComposeFile parseComposeFile(String name, Path file, Set<String> excludedServices) {
+        Map<String, JsonNode> services = new LinkedHashMap<>();
+        Map<String, String> invalid = new LinkedHashMap<>();
 
         try{
+            ComposeServiceReader.Outcome outcome = ComposeServiceReader.read(file, composeMapper,
+                    service -> !excludedServices.contains(service),
+                    (service, node) -> {
+                        if(node != null && node.isObject()){
+                            services.put(service, node);
+                        }else{
+                            invalid.put(service, "not a mapping of service options");
+                        }
+                    });
+
+            return switch (outcome){
+                case EMPTY -> ParsedComposeFile.failed(name, "empty YAML file");
+                case NO_SERVICES -> ParsedComposeFile.failed(name, "no 'services' section found");
+                case READ -> new ParsedComposeFile(name, services, invalid, null);
+            };
+        }catch (JsonProcessingException e){
+            return ParsedComposeFile.failed(name, syntaxError(e));
+        }catch (IOException e){
+            return ParsedComposeFile.failed(name, String.format("cannot read file: %s", e.getMessage()));
+        }
+    }
+
+    //Where and why a compose file couldn't be parsed, on one line
+    private static String syntaxError(JsonProcessingException e) {
+        //The parser's message spans several lines, only the unindented ones say what's wrong, the rest quote the file
+        String reason = e.getOriginalMessage().lines()
+                .filter(line -> !line.isBlank() && !Character.isWhitespace(line.charAt(0)))
+                .collect(Collectors.joining(", "));
+        return e.getLocation() == null
+                ? String.format("invalid YAML syntax: %s", reason)
+                : String.format("invalid YAML syntax at line %d: %s", e.getLocation().getLineNr(), reason);
+    }
+
+    //Merges the parsed files in order against the registry as it is now
+    private DirectoryImportPlan planDirectoryImport(List<ParsedComposeFile> parsed, boolean force) throws RegistryException{
+        Map<String, JsonNode> services = new LinkedHashMap<>();
+        Map<String, Integer> owners = new HashMap<>();
+        List<List<String>> imported = new ArrayList<>();
+        List<Map<String, String>> skipped = new ArrayList<>();
+
+        for(int i = 0; i < parsed.size(); i++){
+            ParsedComposeFile file = parsed.get(i);
+            imported.add(new ArrayList<>());
+            skipped.add(new LinkedHashMap<>());
+
+            for(Map.Entry<String, JsonNode> entry : file.services().entrySet()){
+                String service = entry.getKey();
+                Integer owner = owners.get(service);
+
+                if(!force && store.contains(service)){
+                    skipped.get(i).put(service, FileImport.EXISTING);
+                }else if(owner != null && !force){
+                    skipped.get(i).put(service, String.format("also in `%s`", parsed.get(owner).name()));
+                }else{
+                    if(owner != null){
+                        imported.get(owner).remove(service);
+                        skipped.get(owner).put(service, String.format("overridden by `%s`", file.name()));
+                    }
+                    services.put(service, entry.getValue());
+                    owners.put(service, i);
+                    imported.get(i).add(service);
+                }
+            }
+        }
+
+        List<FileImport> files = new ArrayList<>();
+        for(int i = 0; i < parsed.size(); i++){
+            ParsedComposeFile file = parsed.get(i);
+            files.add(file.error() != null
+                    ? FileImport.failed(file.name(), file.error())
+                    : new FileImport(file.name(), imported.get(i), skipped.get(i), file.invalid(), null));
+        }
+        return new DirectoryImportPlan(services, files);
+    }
+
+    /**
+     * A compose file's services, those that aren't valid, or why the file couldn't be read
+     * */
+    private record ParsedComposeFile(String name, Map<String, JsonNode> services, Map<String, String> invalid, String error) {
+        static ParsedComposeFile failed(String name, String error) {
+            return new ParsedComposeFile(name, Map.of(), Map.of(), error);
+        }
+    }
+
+    /**
+     * What a directory import writes and what it reports for each file
+     * */
+    private record DirectoryImportPlan(Map<String, JsonNode> services, List<FileImport> files) {}
+
+    /**
+     * Writes one batch of imported services
+     * @param file The compose file, services the registry still holds from its last import are updated even without force
+     * @return the services of the batch that already existed and were skipped, none when forcing
+     * */
+    private List<String> writeImportBatch(Map<String, JsonNode> batch, boolean force, Path file) throws RegistryException{
+        if(force){
+            writeToRegistry(store, nameIndex, serviceIndex, importSources, batch);
+            return List.of();
+        }
+
+        //Existing services are skipped, so plan again if another process adds some before we write
+        return retryOnConflict(store, version -> {
+            //Read on every attempt, a service another process wrote in the meantime is no longer ours to overwrite
+            ImportSource source = importSources.get(file);
+            Set<String> owned = source == null ? Set.of() : source.services().keySet();
+            Map<String, JsonNode> servicesMap = new LinkedHashMap<>();
+            List<String> existingServices = new ArrayList<>();
+            batch.forEach((service, node) -> {
+                if(!owned.contains(service) && store.contains(service)){
+                    existingServices.add(service);
+                }else{
+                    servicesMap.put(service, node);
+                }
+            });
+
+            return writeToRegistry(store, nameIndex, serviceIndex, importSources, servicesMap, version) ? existingServices : null;
+        });
+    }
+
+    /**
+     * Export services from the registry as text
+     * @param services The list of services given by the use
+     * @return an export class containing a yaml string of all the services found, and a string of those not found in the registry
+     * */
+    public RegistryExport exportFromRegistryAsText(Set<String> services) throws RegistryException{
+        return exportAsText(exportFromRegistry(services));
+    }
+
+    private RegistryExport exportAsText(ServiceExport export) throws RegistryException{
+        Map<String, Object> serviceMap = export.composeMap(); //Get the service map
+
+        try(Timings.Phase ignored = Timings.start("yaml serialization")){
             String yamlString = yamlMapper.writeValueAsString(serviceMap);
             return new RegistryExport(yamlString, export.absentServices());
         }catch(Exception e){
+            throw yamlError(e);
+        }
+
+    }
+
+    /**
+     * Export services from the registry and runs them under a project named after the services, see
+     * {@link ComposeProjects}. Nothing is run if the project was last brought up with the same compose document and all
+     * of its services are still running
+     * @param services The list of services given by the use
+     * @param options The project, whether to use a temp file, skip the up to date check or pull images first
+     * @param progress Told about each image pulled ahead of docker-compose
+     * @return an export class containing a string of those not found in the registry, the yaml string is only
+     * included when a temp file was used
+     * */
+    public RegistryExport buildFromRegistryAndRun(Set<String> services, UpOptions options, Consumer<String> progress) throws RegistryException{
+        String projectName = projectName(services, options.project());
+        if(options.useTempFile()){
+            return buildTempFileAndRun(services, projectName, options, progress);
+        }
+
+        ServiceExport export = exportFromRegistry(services);
+        Set<String> present = composeServices(export.composeMap());
+
+        try{
+            //The generator writes into the pipe as it goes, the document never exists as a whole, not even to hash it
+            ProcessStarter.InputWriter document = stdin -> writeYaml(stdin, export.composeMap());
+            String hash = ComposeProjects.hash(document::writeTo);
+            if(!options.force() && ComposeProjects.isUpToDate(projectName, hash, present, () -> ComposeFile.runningServices(projectName, document))){
+                return new RegistryExport("", export.absentServices(), true, projectName, null);
+            }
+
+            prePull(export.composeMap(), options, progress);
+            ProcessResult result = ComposeFile.runFromStdin(projectName, document);
+            if(!result.succeeded()){
+                throw composeFailed(projectName, present, result, "");
+            }
+            ComposeProjects.record(projectName, hash, present);
+            return new RegistryExport("", export.absentServices(), false, projectName, result);
+        }catch (JsonProcessingException e){
+            throw yamlError(e);
+        }catch (IOException e){
             throw new RegistryException(
                     new ServiceError(
-                            "failed to generate YAML output",
-                            "check service configurations for invalid syntax",
+                            "cannot stream the compose file to docker-compose",
+                            "check that docker-compose is installed and on your PATH, or run with `--temp-file`",
+                            e)
+            );
+        }catch (InterruptedException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            "docker command was interrupted",
+                            "try running the command again",
                             e)
             );
         }
-
     }
 
     /**
-     * Export services from the registry into a temp yaml file, then runs it
-     * @param services The list of services given by the use
-     * @return an export class containing a yaml string of all the services found, and a string of those not found in the registry
+     * Starts services level by level in `depends_on` order. Dependencies that weren't asked for are pulled in from the
+     * registry, the services of a level start at the same time, and a level only starts once every service before it is
+     * running, or healthy for services with a health check
+     * @param services The list of services given by the user
+     * @param options The project, whether to skip the up to date check or pull images first. Temp files aren't used
+     * @param progress Told about each image pulled ahead of docker-compose and each level before it starts
+     * @return an export class containing a string of the services not found, dependency cycles and the services that
+     * couldn't start because of them
      * */
-    public RegistryExport buildFromRegistryAndRun(Set<String> services) throws RegistryException{
-        RegistryExport export = exportFromRegistryAsText(services);
+    public RegistryExport buildFromRegistryAndRunInOrder(Set<String> services, UpOptions options, Consumer<String> progress) throws RegistryException{
+        String projectName = projectName(services, options.project());
+        ensureExportable(services);
+
+        DependencyGraph graph;
+        try(Timings.Phase ignored = Timings.start("registry read")){
+            graph = DependencyGraph.resolve(services, store::read);
+        }
+
+        ComposeBuilder builder;
+        try(Timings.Phase ignored = Timings.start("compose build")){
+            builder = ComposeBuilder.create().buildServices(graph);
+        }
+        if(!builder.absentServices().isEmpty()){
+            builder.mapAbsentServicesToSimilarServices(similarServices(store, nameIndex));
+        }
+
+        //Every level runs against the whole document under one project, so dependencies resolve to the same containers
+        Map<String, Object> composeMap = composeMap(builder);
+        Set<String> present = graph.services().keySet();
+        List<List<String>> levels = graph.levels();
+
+        try{
+            ProcessStarter.InputWriter document = stdin -> writeYaml(stdin, composeMap);
+            String hash = ComposeProjects.hash(document::writeTo);
+            if(!options.force() && ComposeProjects.isUpToDate(projectName, hash, present, () -> ComposeFile.runningServices(projectName, document))){
+                return new RegistryExport("", builder.absentServicesToString(), true, projectName, null);
+            }
 
-        try(ComposeFile composeFile = new ComposeFile(export.yamlString(), UUID.randomUUID().toString())){
-            composeFile.runTempFile();
-            return export;
+            prePull(composeMap, options, progress);
+            long millis = 0;
+            ProcessResult result = null;
+            for(int i = 0; i < levels.size(); i++){
+                List<String> level = levels.get(i);
+                progress.accept(String.format("starting level %d/%d: %s", i + 1, levels.size(), String.join(", ", level)));
+
+                result = ComposeFile.runServicesFromStdin(projectName, document, level);
+                millis += result.millis();
+                if(!result.succeeded()){
+                    throw composeFailed(projectName, level, result, "services in later levels were not started, ");
+                }
+            }
+            ComposeProjects.record(projectName, hash, present);
+
+            //One result for the whole run, with the output of the last level
+            ProcessResult run = result == null ? null : new ProcessResult(0, false, millis, result.stdoutTail(), result.stderrTail());
+            return new RegistryExport("", builder.absentServicesToString(), false, projectName, run);
+        }catch (JsonProcessingException e){
+            throw yamlError(e);
+        }catch (IOException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot stream the compose file to docker-compose",
+                            "check that docker-compose v2 is installed and on your PATH, `--ordered` relies on `up --wait`",
+                            e)
+            );
+        }catch (InterruptedException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            "docker command was interrupted",
+                            "try running the command again",
+                            e)
+            );
+        }
+    }
+
+    //Export services from the registry into a temp yaml file, then runs it
+    private RegistryExport buildTempFileAndRun(Set<String> services, String projectName, UpOptions options, Consumer<String> progress) throws RegistryException{
+        ServiceExport serviceExport = exportFromRegistry(services);
+        RegistryExport export = exportAsText(serviceExport);
+        Set<String> present = composeServices(serviceExport.composeMap());
+
+        //The same bytes as the piped document, so switching between the two doesn't count as a change
+        byte[] yaml = export.yamlString().getBytes(StandardCharsets.UTF_8);
+        String hash = ComposeProjects.hash(out -> out.write(yaml));
+        if(!options.force() && ComposeProjects.isUpToDate(projectName, hash, present, () -> ComposeFile.runningServices(projectName, stdin -> stdin.write(yaml)))){
+            return new RegistryExport(export.yamlString(), export.absentServices(), true, projectName, null);
+        }
+
+        prePull(serviceExport.composeMap(), options, progress);
+
+        //The temp file keeps a random name, two runs of the same project at once would otherwise fight over it
+        try(ComposeFile composeFile = new ComposeFile(export.yamlString(), UUID.randomUUID().toString(), projectName)){
+            ProcessResult result = composeFile.runTempFile();
+            if(!result.succeeded()){
+                throw composeFailed(projectName, present, result, "");
+            }
+            ComposeProjects.record(projectName, hash, present);
+            return new RegistryExport(export.yamlString(), export.absentServices(), false, projectName, result);
         }catch (IOException e){
             throw new RegistryException(
                     new ServiceError(
@@ -212,6 +844,155 @@ public final class RegistryHandler {
         }
     }
 
+    /**
+     * Stops and removes the containers and networks of compose projects started by `qs up` or `qs profile up`, and
+     * forgets what they were brought up with. Exactly one way of picking the projects must be given
+     * @param services Stops the project `qs up` runs these services under, empty to pick the projects another way
+     * @param project Stops the project with this name, i.e. one given to `qs up --project` or a profile name
+     * @param all Stops every project `qs up` and `qs profile up` started
+     * @param removeVolumes Also removes the named volumes of the projects
+     * @return the projects that were stopped and those docker-compose failed to stop
+     * */
+    public ComposeDown stopProjects(Set<String> services, String project, boolean all, boolean removeVolumes) throws RegistryException{
+        int selectors = (services.isEmpty() ? 0 : 1) + (project == null ? 0 : 1) + (all ? 1 : 0);
+        if(selectors != 1){
+            throw new RegistryException(
+                    new ServiceError(
+                            selectors == 0 ? "no project specified" : "more than one way of picking projects given",
+                            "pass either the services you started, `--project <name>` or `--all`"
+                    )
+            );
+        }
+
+        List<String> projects = all
+                ? ComposeProjects.recorded().stream().map(ComposeProject::name).toList()
+                : List.of(projectName(services, project));
+
+        List<String> stopped = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        try{
+            for(String name : projects){
+                if(ComposeFile.down(name, removeVolumes) == 0){
+                    ComposeProjects.forget(name);
+                    stopped.add(name);
+                }else{
+                    failed.add(name);
+                }
+            }
+            return new ComposeDown(stopped, failed);
+        }catch (IOException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot run docker-compose",
+                            "check that docker-compose is installed and on your PATH",
+                            e)
+            );
+        }catch (InterruptedException e){
+            throw new RegistryException(
+                    new ServiceError(
+                            "docker command was interrupted",
+                            "try running the command again",
+                            e)
+            );
+        }
+    }
+
+    //The project the user named, or the one the services run under
+    private static String projectName(Set<String> services, String project) throws RegistryException{
+        if(project == null){
+            return ComposeProjects.projectName(services);
+        }
+
+        if(!ComposeProjects.isValidName(project)){
+            throw new RegistryException(
+                    new ServiceError(
+                            String.format("invalid project name '%s'", project),
+                            "use lowercase letters, digits, `-` and `_`, starting with a letter or digit"
+                    )
+            );
+        }
+        return project;
+    }
+
+    //Reads the requested services as a compose map, only the requested services are read
+    private ServiceExport exportFromRegistry(Set<String> services) throws RegistryException{
+        ensureExportable(services);
+
+        //The rest of the registry is only needed by name for suggestions
+        return readFromRegistry(store, nameIndex, services);
+    }
+
+    private void ensureExportable(Set<String> services) throws RegistryException{
+        if(services == null || services.isEmpty()){
+            throw new RegistryException(
+                    new ServiceError("no services specified", "provide at least one service name")
+            );
+        }
+
+        if(store.isEmpty()){
+            throw new RegistryException(
+                    new ServiceError("no services found in registry", "use 'qs add -f <file>' to import services from a compose file")
+            );
+        }
+    }
+
+    //Pulls the missing images of a compose map ahead of docker-compose when asked to
+    private static void prePull(Map<String, Object> composeMap, UpOptions options, Consumer<String> progress){
+        if(options.pullParallelism() < 1){
+            return;
+        }
+
+        List<JsonNode> services = new ArrayList<>();
+        if(composeMap.get("services") instanceof Map<?, ?> map){
+            map.values().forEach(service -> {
+                if(service instanceof JsonNode node){
+                    services.add(node);
+                }
+            });
+        }
+        progress.accept(ImagePuller.pullMissing(services, options.pullParallelism(), progress).toString());
+    }
+
+    //The services a compose map will start
+    private static Set<String> composeServices(Map<String, Object> composeMap){
+        Set<String> services = new LinkedHashSet<>();
+        if(composeMap.get("services") instanceof Map<?, ?> map){
+            map.keySet().forEach(service -> services.add(String.valueOf(service)));
+        }
+        return services;
+    }
+
+    //Streams a compose document into docker-compose, the time docker takes to read it is part of this phase
+    private void writeYaml(OutputStream stdin, Map<String, Object> composeMap) throws IOException{
+        try(Timings.Phase ignored = Timings.start("yaml serialization")){
+            yamlMapper.writeValue(stdin, composeMap);
+        }
+    }
+
+    //docker-compose already showed its output, its tail is repeated so the error can be read on its own
+    private static ComposeException composeFailed(String projectName, Collection<String> services, ProcessResult result, String consequence){
+        String hint = result.timedOut()
+                ? String.format("%sraise `%s` or unset it to wait for docker-compose however long it takes", consequence, ProcessStarter.TIMEOUT_ENV)
+                : String.format("%sfix what docker-compose reports below and run the command again", consequence);
+        return new ComposeException(
+                new ServiceError(
+                        String.format("cannot start %s, docker-compose %s", String.join(", ", services), result),
+                        hint,
+                        result.tail()),
+                projectName,
+                result
+        );
+    }
+
+    private RegistryException yamlError(Exception e){
+        return new RegistryException(
+                new ServiceError(
+                        "failed to generate YAML output",
+                        "check service configurations for invalid syntax",
+                        e)
+        );
+    }
+
 
     /**
      * Export services from the registry to a yaml file
@@ -220,7 +1001,7 @@ public final class RegistryHandler {
      * @return an export class containing a yaml string of all the services found, and a string of those not found in the registry
      * */
     public RegistryExport exportFromRegistryToFile(Set<String> services, String fileName) throws RegistryException{
-        Path userPath = Path.of(USER_DIR.toString(), fileName);
+        Path userPath = Path.of(ClientContext.workingDir().toString(), fileName);
         validateFile(userPath);
         RegistryExport registryExport = exportFromRegistryAsText(services);
         try{
@@ -246,57 +1027,46 @@ public final class RegistryHandler {
             return new RegistryExport("", "");
         }
 
-        @SuppressWarnings("unchecked")
-        Map<String, JsonNode> registryMap = jsonMapper.convertValue(registryRootNode, Map.class);
+        //Plan against the registry as it is now, not as it was when this handler was created, and plan again if another
+        //process writes before we delete
+        return retryOnConflict(store, version -> {
+            Set<String> registryServices = store.serviceNames();
 
-        if(registryRootNode.isEmpty()){
-            return new RegistryExport("", "no services found in the registry to delete");
-        }
+            if(registryServices.isEmpty()){
+                return new RegistryExport("", "no services found in the registry to delete");
+            }
 
-        try{
             ComposeBuilder builder = ComposeBuilder
                     .create()
-                    .delete(registryMap, servicesToDelete)
-                    .mapAbsentServicesToSimilarServices(registryMap.keySet());
+                    .delete(registryServices, servicesToDelete)
+                    .mapAbsentServicesToSimilarServices(similarServices(store, nameIndex));
 
-            String modifiedRegistryString = jsonMapper.writeValueAsString(builder.presentServices());
-            Files.writeString(REGISTRY_PATH, modifiedRegistryString);
+            if(!deleteFromRegistry(store, nameIndex, serviceIndex, importSources, builder.deletedServices(), version)){
+                return null;
+            }
 
-            //We don't need to return a string of what was written to the json node,
+            //We don't need to return a string of what was written to the registry,
             // but we need to return absent services (services not found) as a string
             return new RegistryExport("", builder.absentServicesToString());
-        }catch (IOException e){
-            throw new RegistryException(String.format("Failed to write registry to file %s.", registryMap));
-        }
+        });
     }
 
     /**
      * Deletes all services from the registry
      * */
     public void deleteAllServicesFromTheRegistry() throws RegistryException {
-        try{
-            String jsonString = jsonMapper.writeValueAsString(new HashMap<>());
-            Files.writeString(REGISTRY_PATH, jsonString, StandardOpenOption.TRUNCATE_EXISTING);
-        }catch (IOException e){
-            throw new RegistryException(
-                    new ServiceError(
-                            "cannot clear registry",
-                            "check file permissions for ~/.quickstart/registry.yaml",
-                            e)
-            );
-        }
+        store.clear();
     }
 
     //Checks if a service exists
     public boolean doesServiceExist(String serviceName){
-        return registryRootNode.has(serviceName);
+        return store.contains(serviceName);
     }
 
 
     //List all services in the registry
     public String listAllServicesInRegistry(){
-        List<String> services =
-                registryRootNode.propertyStream().map(Map.Entry::getKey).toList();
+        List<String> services = List.copyOf(store.serviceNames());
 
         if(services.isEmpty()){
             return "no services in registry\nhint: use `qs add -f <file>` to import services";
@@ -313,18 +1083,77 @@ public final class RegistryHandler {
         return sb.toString().trim();
     }
 
-    //Get registry root node
-    private JsonNode registryRootNode() throws RegistryException{
-        try{
-            return jsonMapper.readTree(REGISTRY_PATH.toFile());
-        }catch(IOException e){
+    /**
+     * Finds the services whose image, tag, host ports, env keys, labels or volume names match every query, through the
+     * search index rather than by reading every service
+     * @param queries Each either `<field>:<value>` or a value to look up in every field, a trailing `*` matches any end
+     * @return a dto with the matching services and the terms they matched
+     * */
+    public SearchResult searchServices(List<String> queries) throws RegistryException{
+        if(queries == null || queries.isEmpty() || queries.stream().anyMatch(String::isBlank)){
+            throw new RegistryException(
+                    new ServiceError("no search terms given", "pass at least one term, i.e. `qs search postgres:15 port:5432`")
+            );
+        }
+
+        try(Timings.Phase ignored = Timings.start("search")){
+            return new SearchResult(queries, searchIndex(store, serviceIndex, queries));
+        }
+    }
+
+    /**
+     * Measures what keeping the blocks services have in common once saves, on disk and in memory, see
+     * {@link SharedSubtrees}
+     * @return a dto with the sizes of the registry in full and with shared blocks
+     * */
+    public RegistryStats registryStats() throws RegistryException{
+        Map<String, JsonNode> services;
+        try(Timings.Phase ignored = Timings.start("registry read")){
+            services = store.readAll();
+        }
+
+        try(Timings.Phase ignored = Timings.start("registry dedup")){
+            SharedSubtrees.Shared shared = SharedSubtrees.share(services);
+            ObjectNode full = jsonMapper.createObjectNode().setAll(services);
+            ObjectNode stored = jsonMapper.createObjectNode();
+            stored.set(SharedSubtrees.BLOCKS_FIELD, shared.blocksNode());
+            stored.setAll(shared.services());
+
+            return new RegistryStats(
+                    services.size(),
+                    shared.blocks().size(),
+                    shared.references(),
+                    compactSize(full),
+                    compactSize(stored),
+                    SharedSubtrees.containers(services.values(), false),
+                    SharedSubtrees.containers(services.values(), true),
+                    store.sharesBlocksOnDisk(),
+                    RegistryConfig.load(jsonMapper).describe()
+            );
+        }catch (IOException e){
             throw new RegistryException(
-                    new ServiceError("cannot read registry file",
-                            "run `quickstart init` to create it or ensure the registry isn't corrupted", e)
+                    new ServiceError("cannot measure the registry", "check that `qs ls` can read the registry", e)
             );
         }
     }
 
+    //The size of a tree written out as json without indentation
+    private long compactSize(JsonNode node) throws IOException{
+        long[] bytes = new long[1];
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytes[0] += len;
+            }
+        };
+        jsonMapper.writer().without(SerializationFeature.INDENT_OUTPUT).writeValue(counter, node);
+        return bytes[0];
+    }
 
     private void validateFile(Path userPath) throws RegistryException{
         if(!Files.exists(userPath)){
@@ -1,73 +1,218 @@
 package org.quickstart.registry;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.quickstart.compose.ComposeBuilder;
 import org.quickstart.dtos.ServiceExport;
 import org.quickstart.exceptions.RegistryException;
 import org.quickstart.exceptions.ServiceError;
+import org.quickstart.search.ServiceIndex;
+import org.quickstart.similarity.NameIndex;
+import org.quickstart.timings.Timings;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ThreadLocalRandom;
 
-import static org.quickstart.constants.QuickStartConstants.REGISTRY_PATH;
+import static org.quickstart.constants.QuickStartConstants.SIMILARITY_DISTANCE;
 
 class RegistryIOUtils {
 
+    //Conflicts only happen when another process commits between our read and our write, after a few the write is
+    //planned under the lock instead
+    private static final int OPTIMISTIC_WRITE_ATTEMPTS = 4;
+
     private RegistryIOUtils() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
     }
 
-    protected static void writeToRegistry(ObjectMapper jsonMapper, Map<String, JsonNode> mapToMerge) throws RegistryException {
-
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, JsonNode> registryFileMap = jsonMapper.readValue(REGISTRY_PATH.toFile(), Map.class);
-            if (registryFileMap == null || registryFileMap.isEmpty()) {
-                registryFileMap = new HashMap<>();
-            }
+    protected static void writeToRegistry(RegistryStore store, NameIndex nameIndex, ServiceIndex serviceIndex, ImportSources sources, Map<String, JsonNode> mapToMerge) throws RegistryException {
+        writeToRegistry(store, nameIndex, serviceIndex, sources, mapToMerge, RegistryLock.ANY_VERSION);
+    }
 
-            registryFileMap.putAll(mapToMerge);
-            jsonMapper.writeValue(REGISTRY_PATH.toFile(), registryFileMap);
+    /**
+     * @param sources Told the written services no longer hold what was imported from their compose file, an import
+     *                records them again once it's done
+     * @param expectedVersion The registry version the services were picked against
+     * @return false if another process wrote to the registry since that version, nothing is written then
+     * */
+    protected static boolean writeToRegistry(RegistryStore store, NameIndex nameIndex, ServiceIndex serviceIndex, ImportSources sources, Map<String, JsonNode> mapToMerge, long expectedVersion) throws RegistryException {
+        if (mapToMerge == null || mapToMerge.isEmpty()) {
+            return true;
+        }
 
-        } catch (IOException e) {
+        if (mapToMerge.containsKey(SharedSubtrees.BLOCKS_FIELD)) {
             throw new RegistryException(
                     new ServiceError(
-                            "cannot write to registry file",
-                            "check if another process is using the file or run `ls -la ~/.quickstart/`",
-                            e)
+                            String.format("`%s` is reserved and can't name a service", SharedSubtrees.BLOCKS_FIELD),
+                            "rename the service")
             );
+        }
+
+        //Under the lock so the stamps taken around the write are those of this write alone
+        try (Timings.Phase ignored = Timings.start("registry write"); RegistryLock lock = RegistryLock.acquire()) {
+            String stamp = store.stamp();
+            String contentStamp = contentStamp(store, stamp);
+            if (!store.write(mapToMerge, expectedVersion)) {
+                return false;
+            }
+            String written = store.stamp();
+            nameIndex.added(mapToMerge.keySet(), stamp, written, store::serviceNames);
+            serviceIndex.written(mapToMerge, contentStamp, contentStamp(store, written));
+            sources.released(mapToMerge.keySet());
+            return true;
+        } catch (RegistryException e) {
+            throw e;
         } catch (Exception e) {
             throw new RegistryException(
                     new ServiceError(
                             "registry file is corrupted",
-                            "backup and delete `~/.quickstart/registry.yaml`, then run `quickstart init`",
+                            "backup and delete `~/.quickstart/registry.json`, then run `quickstart init`",
                             e),e
             );
         }
     }
 
-    protected static ServiceExport readFromRegistry(JsonNode rootNode, Map<String, JsonNode> registryServices , Set<String> services)
+    /**
+     * @param expectedVersion The registry version the services were picked against
+     * @return false if another process wrote to the registry since that version, nothing is deleted then
+     * */
+    protected static boolean deleteFromRegistry(RegistryStore store, NameIndex nameIndex, ServiceIndex serviceIndex, ImportSources sources, Set<String> servicesToDelete, long expectedVersion) throws RegistryException {
+        if (servicesToDelete == null || servicesToDelete.isEmpty()) {
+            return true;
+        }
+
+        try (Timings.Phase ignored = Timings.start("registry write"); RegistryLock lock = RegistryLock.acquire()) {
+            String stamp = store.stamp();
+            String contentStamp = contentStamp(store, stamp);
+            if (!store.delete(servicesToDelete, expectedVersion)) {
+                return false;
+            }
+            String deleted = store.stamp();
+            nameIndex.removed(servicesToDelete, stamp, deleted, store::serviceNames);
+            serviceIndex.removed(servicesToDelete, contentStamp, contentStamp(store, deleted));
+            sources.released(servicesToDelete);
+            return true;
+        }
+    }
+
+    /**
+     * Identifies the content of the registry for the {@link ServiceIndex}. The store's stamp alone may not change when a
+     * service is overwritten, the version changes with every write and the stamp with edits made by hand
+     * @param stamp The store's current stamp
+     * */
+    protected static String contentStamp(RegistryStore store, String stamp) {
+        return stamp == null ? null : store.version() + ":" + stamp;
+    }
+
+    /**
+     * Searches the services through the service index instead of reading every service in the registry, the index is
+     * rebuilt from the registry if it's missing or out of date
+     * */
+    protected static SortedMap<String, SortedSet<String>> searchIndex(RegistryStore store, ServiceIndex serviceIndex, List<String> queries) {
+        return serviceIndex.search(queries, contentStamp(store, store.stamp()), store::readAll);
+    }
+
+    /**
+     * Runs a write that depends on what's in the registry, i.e. only importing services that don't exist yet. The write
+     * is planned without holding the registry lock and only commits if no other process wrote in between, otherwise
+     * it's planned again against the new registry. Writers that keep losing plan their last attempt under the lock,
+     * which can't conflict, so a busy registry slows writes down but never fails them
+     * @param attempt Plans the write against the current registry and commits it with the given version
+     * @return what the attempt returned once it committed
+     * */
+    protected static <T> T retryOnConflict(RegistryStore store, VersionedWrite<T> attempt) throws RegistryException {
+        for (int i = 0; i < OPTIMISTIC_WRITE_ATTEMPTS; i++) {
+            T result = attemptAt(store, attempt);
+            if (result != null) {
+                return result;
+            }
+
+            //Writers that collided would otherwise collide again on their retries
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(1, 2L << i));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        try (RegistryLock ignored = RegistryLock.acquire()) {
+            T result = attemptAt(store, attempt);
+            if (result == null) {
+                throw new IllegalStateException("registry write conflicted while holding the registry lock");
+            }
+            return result;
+        }
+    }
+
+    private static <T> T attemptAt(RegistryStore store, VersionedWrite<T> attempt) throws RegistryException {
+        //Read the version before the names, names newer than the version only cost a retry
+        long version = store.version();
+        store.refresh();
+        return attempt.commit(version);
+    }
+
+    /**
+     * A write planned against a registry version
+     * */
+    @FunctionalInterface
+    protected interface VersionedWrite<T> {
+
+        /**
+         * @return the result of the write, or null if the registry changed since the version and nothing was written
+         * */
+        T commit(long version) throws RegistryException;
+    }
+
+    /**
+     * Looks up similar service names through the name index instead of comparing against every service in the registry,
+     * the index is rebuilt from the registry's names if it's missing or out of date
+     * */
+    protected static ComposeBuilder.SimilarServices similarServices(RegistryStore store, NameIndex nameIndex) {
+        return (service, limit) -> nameIndex.similarTo(service, SIMILARITY_DISTANCE, limit, store.stamp(), store::serviceNames);
+    }
+
+    //Lays out the present services and their volumes as a compose document
+    protected static Map<String, Object> composeMap(ComposeBuilder builder) {
+        Map<String, Object> composeMap = new LinkedHashMap<>();
+        composeMap.put("services", builder.presentServices());
+
+        //Ensure there are actually volumes to be mounted
+        if(!builder.serviceVolumes().isEmpty()){
+            composeMap.put("volumes", builder.serviceVolumes());
+        }
+        return composeMap;
+    }
+
+    protected static ServiceExport readFromRegistry(RegistryStore store, NameIndex nameIndex, Set<String> services)
             throws RegistryException {
         try {
+            Map<String, JsonNode> found;
+            try (Timings.Phase ignored = Timings.start("registry read")) {
+                found = store.read(services);
+            }
 
-            ComposeBuilder builder = ComposeBuilder
-                    .create()
-                    .buildServices(rootNode, services)
-                    .mapAbsentServicesToSimilarServices(registryServices.keySet());
-
-            Map<String, Object> composeMap = new LinkedHashMap<>();
-            composeMap.put("services", builder.presentServices());
+            ComposeBuilder builder;
+            try (Timings.Phase ignored = Timings.start("compose build")) {
+                builder = ComposeBuilder.create().buildServices(found, services);
+            }
 
-            //Ensure there are actually volumes to be mounted
-            if(!builder.serviceVolumes().isEmpty()){
-                composeMap.put("volumes", builder.serviceVolumes());
+            //Service names are only needed to suggest alternatives for services that weren't found
+            if (!builder.absentServices().isEmpty()) {
+                try (Timings.Phase ignored = Timings.start("similar names")) {
+                    builder.mapAbsentServicesToSimilarServices(similarServices(store, nameIndex));
+                }
             }
-            return new ServiceExport(composeMap, builder.absentServicesToString());
 
+            return new ServiceExport(composeMap(builder), builder.absentServicesToString());
+
+        } catch (RegistryException e) {
+            throw e;
         } catch (IOException e) {
             throw new RegistryException(
                     new ServiceError(
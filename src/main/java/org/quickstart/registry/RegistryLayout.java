@@ -0,0 +1,170 @@
+package org.quickstart.registry;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.quickstart.constants.QuickStartConstants.BASE_PATH;
+import static org.quickstart.constants.QuickStartConstants.REGISTRY_DIR_PATH;
+import static org.quickstart.constants.QuickStartConstants.REGISTRY_JOURNAL_DIR_PATH;
+
+/**
+ * How registry entries are laid out on disk
+ * */
+public enum RegistryLayout {
+
+    /**
+     * Every service in ~/.quickstart/registry.json (or registry.smile)
+     * */
+    FILE {
+        @Override
+        RegistryStore open(RegistryFormat format, boolean sharedBlocks) {
+            return new SingleFileRegistryStore(format.mapper(), location(format), sharedBlocks);
+        }
+
+        @Override
+        void create(RegistryFormat format) throws IOException {
+            Path registry = location(format);
+            if (!Files.exists(registry)) {
+                format.mapper().writeValue(registry.toFile(), format.mapper().createObjectNode());
+            }
+        }
+
+        @Override
+        void remove(RegistryFormat format) throws IOException {
+            Files.deleteIfExists(location(format));
+        }
+
+        @Override
+        Path location(RegistryFormat format) {
+            return BASE_PATH.resolve(REGISTRY_FILE_NAME + format.extension());
+        }
+    },
+
+    /**
+     * One file per service in ~/.quickstart/registry/services/ and an index of names in ~/.quickstart/registry/
+     * */
+    DIRECTORY {
+        @Override
+        RegistryStore open(RegistryFormat format, boolean sharedBlocks) {
+            return new DirectoryRegistryStore(format.mapper(), REGISTRY_DIR_PATH, format.extension());
+        }
+
+        @Override
+        boolean canShareBlocks() {
+            return false; //A service file holds one service, there's nothing to share it with
+        }
+
+        @Override
+        void create(RegistryFormat format) throws IOException {
+            Files.createDirectories(REGISTRY_DIR_PATH.resolve(DirectoryRegistryStore.SERVICES_FOLDER));
+            Path index = DirectoryRegistryStore.indexPath(REGISTRY_DIR_PATH, format.extension());
+            if (!Files.exists(index)) {
+                format.mapper().writeValue(index.toFile(), format.mapper().createArrayNode());
+            }
+        }
+
+        @Override
+        void remove(RegistryFormat format) throws IOException {
+            //Only remove files in this format, the same directory might already hold the registry in another format
+            Path services = REGISTRY_DIR_PATH.resolve(DirectoryRegistryStore.SERVICES_FOLDER);
+            if (Files.exists(services)) {
+                try (Stream<Path> files = Files.list(services)) {
+                    for (Path file : files.toList()) {
+                        if (file.getFileName().toString().endsWith(format.extension())) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+            Files.deleteIfExists(DirectoryRegistryStore.indexPath(REGISTRY_DIR_PATH, format.extension()));
+
+            try {
+                Files.deleteIfExists(services);
+                Files.deleteIfExists(REGISTRY_DIR_PATH);
+            } catch (DirectoryNotEmptyException ignored) {
+
+            }
+        }
+
+        @Override
+        Path location(RegistryFormat format) {
+            return REGISTRY_DIR_PATH;
+        }
+    },
+
+    /**
+     * A snapshot of every service in ~/.quickstart/journal/registry.json (or .smile) and a journal of the changes made
+     * since, see {@link JournalRegistryStore}
+     * */
+    JOURNAL {
+        @Override
+        RegistryStore open(RegistryFormat format, boolean sharedBlocks) {
+            return new JournalRegistryStore(format.mapper(), snapshotPath(format), sharedBlocks);
+        }
+
+        @Override
+        void create(RegistryFormat format) throws IOException {
+            Files.createDirectories(REGISTRY_JOURNAL_DIR_PATH);
+            Path snapshot = snapshotPath(format);
+            if (!Files.exists(snapshot)) {
+                format.mapper().writeValue(snapshot.toFile(), format.mapper().createObjectNode());
+            }
+        }
+
+        @Override
+        void remove(RegistryFormat format) throws IOException {
+            Path snapshot = snapshotPath(format);
+            Files.deleteIfExists(JournalRegistryStore.journalPath(snapshot));
+            Files.deleteIfExists(snapshot);
+
+            try {
+                Files.deleteIfExists(REGISTRY_JOURNAL_DIR_PATH);
+            } catch (DirectoryNotEmptyException ignored) {
+
+            }
+        }
+
+        @Override
+        Path location(RegistryFormat format) {
+            return REGISTRY_JOURNAL_DIR_PATH;
+        }
+
+        private Path snapshotPath(RegistryFormat format) {
+            return REGISTRY_JOURNAL_DIR_PATH.resolve(REGISTRY_FILE_NAME + format.extension());
+        }
+    };
+
+    private final static String REGISTRY_FILE_NAME = "registry";
+
+    /**
+     * Opens the store for this layout, nothing is read until an entry is needed
+     * @param sharedBlocks Whether to write blocks several services have in common once, ignored by layouts that
+     *                     can't share blocks
+     * */
+    abstract RegistryStore open(RegistryFormat format, boolean sharedBlocks);
+
+    /**
+     * @return true if this layout can store blocks several services have in common once, see {@link SharedSubtrees}
+     * */
+    boolean canShareBlocks() {
+        return true;
+    }
+
+    /**
+     * Creates an empty registry in this layout, an existing registry is left untouched
+     * */
+    abstract void create(RegistryFormat format) throws IOException;
+
+    /**
+     * Deletes the registry files of this layout
+     * */
+    abstract void remove(RegistryFormat format) throws IOException;
+
+    /**
+     * @return where the registry lives on disk in this layout
+     * */
+    abstract Path location(RegistryFormat format);
+}
@@ -0,0 +1,149 @@
+package org.quickstart.registry;
+
+import org.quickstart.FileUtils;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.exceptions.ServiceError;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.quickstart.constants.QuickStartConstants.REGISTRY_LOCK_PATH;
+import static org.quickstart.constants.QuickStartConstants.REGISTRY_VERSION_PATH;
+
+/**
+ * Serialises registry writes across processes with an exclusive lock on ~/.quickstart/registry.lock. The registry files
+ * are replaced by atomic moves so they can't carry a lock themselves, and readers never need one since they only ever
+ * see complete files.
+ * Every commit bumps the registry's version in ~/.quickstart/registry.version. Callers that plan a write from what they
+ * read earlier pass the version they read, and the write is refused if someone committed in between.
+ * The version can't live in the lock file, closing any other handle to a locked file releases the process's lock on it.
+ * Within a process the lock comes before the monitors of the stores and indexes: writers hold it while they call into
+ * them, so code that synchronizes on one of them first must not acquire the lock inside
+ * */
+final class RegistryLock implements AutoCloseable {
+
+    /**
+     * Passed as the expected version by writes that don't depend on what was read before
+     * */
+    static final long ANY_VERSION = -1;
+
+    //File locks belong to the whole JVM and can't be taken twice, so threads of this process queue up here first
+    private static final ReentrantLock LOCAL = new ReentrantLock();
+    private static RegistryLock held;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private int holds = 1;
+
+    private RegistryLock(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Blocks until no other process or thread is writing to the registry. A thread already holding the lock gets it
+     * again, i.e. a migration writing to the new store
+     * */
+    static RegistryLock acquire() throws RegistryException {
+        LOCAL.lock();
+        if (held != null) {
+            held.holds++;
+            return held;
+        }
+
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(REGISTRY_LOCK_PATH, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            held = new RegistryLock(channel, channel.lock());
+            return held;
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            LOCAL.unlock();
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot lock the registry",
+                            String.format("check the permissions of `%s`", REGISTRY_LOCK_PATH),
+                            e)
+            );
+        }
+    }
+
+    /**
+     * Reads the version without locking, the version file is replaced atomically so it's never read half written
+     * @return the number of commits made to the registry, 0 before the first one
+     * */
+    static long currentVersion() {
+        try {
+            return parse(Files.readString(REGISTRY_VERSION_PATH, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param expectedVersion The version the caller's plan was made against, or {@link #ANY_VERSION}
+     * @return true if nothing was committed since that version
+     * */
+    boolean isAt(long expectedVersion) {
+        return expectedVersion == ANY_VERSION || expectedVersion == currentVersion();
+    }
+
+    /**
+     * Records a commit, call it once the registry files are in place
+     * */
+    void bump() throws RegistryException {
+        byte[] next = Long.toString(currentVersion() + 1).getBytes(StandardCharsets.UTF_8);
+        try {
+            FileUtils.writeAtomically(REGISTRY_VERSION_PATH, out -> out.write(next));
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot update the registry version",
+                            String.format("check the permissions of `%s`", REGISTRY_VERSION_PATH),
+                            e)
+            );
+        }
+    }
+
+    private static long parse(String content) {
+        try {
+            return content.isBlank() ? 0 : Long.parseLong(content.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (--holds == 0) {
+                held = null;
+                try {
+                    lock.release();
+                } catch (IOException ignored) {
+                    //Closing the channel releases it too
+                }
+                closeQuietly(channel);
+            }
+        } finally {
+            LOCAL.unlock();
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+
+        }
+    }
+}
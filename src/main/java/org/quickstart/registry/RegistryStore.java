@@ -0,0 +1,146 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.quickstart.exceptions.RegistryException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persists registry entries (key -> service name, value -> service config). Implementations decide how entries are laid
+ * out on disk, but must only read the entries they're asked for and only write the entries that changed whenever their
+ * layout allows it
+ * */
+interface RegistryStore {
+
+    /**
+     * @return the names of all services in the registry, in the order they were added
+     * */
+    Set<String> serviceNames() throws RegistryException;
+
+    /**
+     * Identifies the current set of service names, used to tell whether indexes built from the registry are still valid.
+     * It must change whenever a service is added or removed, it may also change when a service is only overwritten
+     * @return the stamp, or null if the registry doesn't exist
+     * */
+    String stamp();
+
+    /**
+     * @param service The name of the service
+     * @return true if the service exists in the registry
+     * */
+    boolean contains(String service) throws RegistryException;
+
+    /**
+     * @param service The name of the service
+     * @return the service's config or null if it doesn't exist
+     * */
+    JsonNode read(String service) throws RegistryException;
+
+    /**
+     * @return the number of writes committed to the registry by any process, see {@link RegistryLock}
+     * */
+    default long version() {
+        return RegistryLock.currentVersion();
+    }
+
+    /**
+     * Writes a set of services to the registry, overwriting the services which already exist
+     * @param services Maps each service name to its config
+     * */
+    default void write(Map<String, JsonNode> services) throws RegistryException {
+        write(services, RegistryLock.ANY_VERSION);
+    }
+
+    /**
+     * Writes a set of services to the registry under the registry lock, unless another write was committed since the
+     * caller read the registry
+     * @param services Maps each service name to its config
+     * @param expectedVersion The {@link #version()} the caller read before deciding what to write
+     * @return false if the registry changed since that version, nothing is written then
+     * */
+    boolean write(Map<String, JsonNode> services, long expectedVersion) throws RegistryException;
+
+    /**
+     * @return true if every write rewrites the whole registry whatever it changes, writers should then put as much as
+     * they can in each write
+     * */
+    default boolean rewritesOnWrite() {
+        return false;
+    }
+
+    /**
+     * @return true if blocks several services have in common are stored once, see {@link SharedSubtrees}
+     * */
+    default boolean sharesBlocksOnDisk() {
+        return false;
+    }
+
+    /**
+     * Deletes a set of services from the registry, services which don't exist are ignored
+     * @param services The services to delete
+     * */
+    default void delete(Set<String> services) throws RegistryException {
+        delete(services, RegistryLock.ANY_VERSION);
+    }
+
+    /**
+     * Deletes a set of services from the registry under the registry lock, unless another write was committed since the
+     * caller read the registry
+     * @param services The services to delete
+     * @param expectedVersion The {@link #version()} the caller read before deciding what to delete
+     * @return false if the registry changed since that version, nothing is deleted then
+     * */
+    boolean delete(Set<String> services, long expectedVersion) throws RegistryException;
+
+    /**
+     * Deletes all services from the registry
+     * */
+    void clear() throws RegistryException;
+
+    /**
+     * Folds the changes written since into the registry's main file, for stores that keep them apart at first
+     * */
+    default void compact() throws RegistryException {
+
+    }
+
+    /**
+     * Drops anything cached from disk if the registry was modified by another process since it was read
+     * */
+    default void refresh() throws RegistryException {
+
+    }
+
+    /**
+     * @return true if the registry has no services
+     * */
+    default boolean isEmpty() throws RegistryException {
+        return serviceNames().isEmpty();
+    }
+
+    /**
+     * Reads a set of services from the registry
+     * @param services The services to read
+     * @return the services found in the registry mapped to their configs, services not found are left out
+     * */
+    default Map<String, JsonNode> read(Set<String> services) throws RegistryException {
+        Map<String, JsonNode> found = new LinkedHashMap<>();
+        for (String service : services) {
+            JsonNode node = read(service);
+            if (node != null) {
+                found.put(service, node);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return every service in the registry mapped to its config, blocks several services have in common are the same
+     * instance, see {@link SharedSubtrees}
+     * */
+    default Map<String, JsonNode> readAll() throws RegistryException {
+        return SharedSubtrees.intern(read(serviceNames()));
+    }
+}
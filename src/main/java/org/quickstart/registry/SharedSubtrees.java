@@ -0,0 +1,320 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content-addressed sharing of the blocks services have in common, i.e. the same environment, logging or healthcheck
+ * config pasted into many services. Every object and array below a service is identified by a hash of its content, and
+ * a block found in more than one place is kept once: on disk the services point to it with `{"$block": "<id>"}` and the
+ * blocks are written ahead of the services under `$blocks`, in memory every service holds the same instance.
+ * Blocks are only written to disk when the registry was migrated with `--shared-blocks`, and `$blocks` is refused as a
+ * service name so it can't clash with one.
+ * Shared instances are never modified, nothing modifies a service tree once it's read
+ * */
+final class SharedSubtrees {
+
+    /**
+     * The registry field holding the shared blocks, mapped by their id
+     * */
+    static final String BLOCKS_FIELD = "$blocks";
+
+    /**
+     * The only field of an object standing for a shared block
+     * */
+    static final String REFERENCE_FIELD = "$block";
+
+    //A reference costs about 30 bytes, sharing anything smaller would grow the registry
+    private static final long MIN_BLOCK_BYTES = 64;
+
+    private SharedSubtrees() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Replaces every block found in more than one place with a reference to a single copy. The services passed in are
+     * left untouched, subtrees without a shared block are reused rather than copied
+     * @param services Maps each service name to its config, without references
+     * @return the services with references and the blocks they point to
+     * */
+    static Shared share(Map<String, JsonNode> services) {
+        Digests digests = new Digests();
+        services.values().forEach(service -> service.forEach(digests::add));
+
+        Map<String, JsonNode> blocks = new LinkedHashMap<>();
+        Map<String, JsonNode> shared = new LinkedHashMap<>();
+        int[] references = new int[1];
+        services.forEach((name, service) -> shared.put(name, digests.replaceShared(service, blocks, references)));
+        return new Shared(shared, blocks, references[0]);
+    }
+
+    /**
+     * Replaces the references in a tree read from disk with the blocks they point to, in place. Every reference to a
+     * block gets the same instance
+     * @param node A tree as read, modified in place
+     * @param blocks The shared blocks by id, see {@link #BLOCKS_FIELD}
+     * @return the tree, or the block it pointed to if the tree was a reference itself
+     * */
+    static JsonNode expand(JsonNode node, Map<String, JsonNode> blocks) {
+        JsonNode block = referenced(node, blocks);
+        if (block != null) {
+            return block;
+        }
+
+        if (node instanceof ObjectNode object) {
+            List<String> fields = new ArrayList<>();
+            object.fieldNames().forEachRemaining(fields::add);
+            for (String field : fields) {
+                JsonNode child = object.get(field);
+                JsonNode expanded = expand(child, blocks);
+                if (expanded != child) {
+                    object.set(field, expanded);
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            for (int i = 0; i < array.size(); i++) {
+                JsonNode child = array.get(i);
+                JsonNode expanded = expand(child, blocks);
+                if (expanded != child) {
+                    array.set(i, expanded);
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @param blocks The `$blocks` object of a registry, null if it has none
+     * @return the blocks by id
+     * */
+    static Map<String, JsonNode> blocks(JsonNode blocks) {
+        Map<String, JsonNode> byId = new HashMap<>();
+        if (blocks != null) {
+            blocks.properties().forEach(e -> byId.put(e.getKey(), e.getValue()));
+        }
+        return byId;
+    }
+
+    /**
+     * Makes equal blocks of already read services the same instance, for services that weren't read from a single
+     * file, i.e. one file per service
+     * @return the services holding shared instances
+     * */
+    static Map<String, JsonNode> intern(Map<String, JsonNode> services) {
+        Shared shared = share(services);
+        if (shared.blocks().isEmpty()) {
+            return services;
+        }
+
+        //Only the objects and arrays leading to a reference were copied, so expanding in place leaves the originals alone
+        Map<String, JsonNode> interned = new LinkedHashMap<>();
+        shared.services().forEach((name, service) -> interned.put(name, expand(service, shared.blocks())));
+        return interned;
+    }
+
+    /**
+     * @param distinct Counts every instance once however many trees hold it
+     * @return the objects and arrays in the trees
+     * */
+    static long containers(Collection<JsonNode> trees, boolean distinct) {
+        Set<JsonNode> seen = distinct ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        long count = 0;
+        Deque<JsonNode> pending = new ArrayDeque<>(trees);
+        while (!pending.isEmpty()) {
+            JsonNode node = pending.pop();
+            if (!node.isContainerNode() || (seen != null && !seen.add(node))) {
+                continue;
+            }
+            count++;
+            node.forEach(pending::push);
+        }
+        return count;
+    }
+
+    private static JsonNode referenced(JsonNode node, Map<String, JsonNode> blocks) {
+        if (!node.isObject() || node.size() != 1) {
+            return null;
+        }
+
+        JsonNode id = node.get(REFERENCE_FIELD);
+        return id != null && id.isTextual() ? blocks.get(id.asText()) : null;
+    }
+
+    /**
+     * The services with references to the blocks they share
+     * @param services Maps each service name to its config, shared blocks replaced by references
+     * @param blocks The shared blocks by id
+     * @param references How many references point to the blocks
+     * */
+    record Shared(Map<String, JsonNode> services, Map<String, JsonNode> blocks, int references) {
+
+        /**
+         * @return the blocks as the `$blocks` object of a registry
+         * */
+        ObjectNode blocksNode() {
+            ObjectNode node = JsonNodeFactory.instance.objectNode();
+            node.setAll(blocks);
+            return node;
+        }
+    }
+
+    /**
+     * Hashes every object and array of the services bottom up, so each node's content is only read once however deep
+     * it is, and counts how often each content appears. The hash is only a hint, a block is compared with the first copy
+     * found before it's shared, so two contents with the same hash are never mixed up
+     * */
+    private static final class Digests {
+
+        private final Map<JsonNode, Digest> digests = new IdentityHashMap<>();
+        private final Map<Long, Digest> byContent = new HashMap<>();
+        private final Map<Long, JsonNode> firstCopies = new HashMap<>();
+
+        //Returns the digest of a container, null for values, which are hashed into their parent
+        private Digest add(JsonNode node) {
+            if (!node.isContainerNode()) {
+                return null;
+            }
+
+            Digest known = digests.get(node);
+            if (known == null) {
+                known = hash(node);
+                digests.put(node, known);
+            }
+            known.count++;
+            return known;
+        }
+
+        //Field order counts, the same fields in another order are written out differently
+        private Digest hash(JsonNode node) {
+            long hash = node.isObject() ? '{' : '[';
+            long bytes = 2;
+            if (node.isObject()) {
+                for (Map.Entry<String, JsonNode> field : node.properties()) {
+                    hash = mix(hash, field.getKey().hashCode());
+                    hash = mix(hash, valueHash(field.getValue()));
+                    bytes += field.getKey().length() + 4 + size(field.getValue());
+                }
+            } else {
+                for (JsonNode element : node) {
+                    hash = mix(hash, valueHash(element));
+                    bytes += 1 + size(element);
+                }
+            }
+
+            Digest digest = byContent.computeIfAbsent(finish(hash), Digest::new);
+            digest.bytes = bytes;
+            return digest;
+        }
+
+        //Values are told apart by their type too, `3` and `"3"` aren't the same content
+        private long valueHash(JsonNode node) {
+            Digest digest = add(node);
+            return digest != null ? digest.hash : mix(node.getNodeType().ordinal(), node.hashCode());
+        }
+
+        private long size(JsonNode node) {
+            Digest digest = digests.get(node);
+            return digest != null ? digest.bytes : node.asText().length() + 2;
+        }
+
+        //The first copy with the hash, which becomes the block, or null if this copy holds other content after all
+        private JsonNode firstCopy(Digest digest, JsonNode copy) {
+            JsonNode first = firstCopies.putIfAbsent(digest.hash, copy);
+            if (first == null || first == copy || first.equals(copy)) {
+                return first == null ? copy : first;
+            }
+            return null;
+        }
+
+        private static long mix(long hash, long value) {
+            return (hash ^ value) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        }
+
+        //Spreads the last fields over every bit of the id, murmur3's finalizer
+        private static long finish(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash ^= hash >>> 33;
+            hash *= 0xC4CEB9FE1A85EC53L;
+            return hash ^ (hash >>> 33);
+        }
+
+        //Top down, so the largest shared blocks are the ones kept
+        private JsonNode replaceShared(JsonNode node, Map<String, JsonNode> blocks, int[] references) {
+            if (node instanceof ObjectNode object) {
+                ObjectNode copy = null;
+                for (Map.Entry<String, JsonNode> field : object.properties()) {
+                    JsonNode replaced = replaceChild(field.getValue(), blocks, references);
+                    if (replaced != field.getValue() && copy == null) {
+                        copy = object.objectNode().setAll(object); //Only copied once something below it is shared
+                    }
+                    if (copy != null) {
+                        copy.set(field.getKey(), replaced);
+                    }
+                }
+                return copy == null ? node : copy;
+            }
+
+            if (node instanceof ArrayNode array) {
+                ArrayNode copy = null;
+                for (int i = 0; i < array.size(); i++) {
+                    JsonNode replaced = replaceChild(array.get(i), blocks, references);
+                    if (replaced != array.get(i) && copy == null) {
+                        copy = array.arrayNode().addAll(array);
+                    }
+                    if (copy != null) {
+                        copy.set(i, replaced);
+                    }
+                }
+                return copy == null ? node : copy;
+            }
+            return node;
+        }
+
+        private JsonNode replaceChild(JsonNode child, Map<String, JsonNode> blocks, int[] references) {
+            Digest digest = digests.get(child);
+            if (digest == null) {
+                return child;
+            }
+
+            JsonNode block = digest.count > 1 && digest.bytes >= MIN_BLOCK_BYTES ? firstCopy(digest, child) : null;
+            if (block == null) {
+                return replaceShared(child, blocks, references);
+            }
+
+            String id = HexFormat.of().toHexDigits(digest.hash);
+            blocks.putIfAbsent(id, block);
+            references[0]++;
+            return JsonNodeFactory.instance.objectNode().put(REFERENCE_FIELD, id);
+        }
+    }
+
+    /**
+     * A content and how often it appears
+     * */
+    private static final class Digest {
+
+        private final long hash;
+        private long bytes; //About how many bytes the content takes written out as compact json
+        private int count;
+
+        private Digest(long hash) {
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.quickstart.FileUtils;
+import org.quickstart.exceptions.RegistryException;
+import org.quickstart.exceptions.ServiceError;
+import org.quickstart.timings.Timings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The original layout, every service lives in a single json object in ~/.quickstart/registry.json.
+ * Reads stream over the file and only build trees for the services they were asked for, listing and existence checks
+ * read the top level keys and skip every service body, so they cost the same no matter how large the services are.
+ * When the registry was migrated with `--shared-blocks`, blocks several services have in common are stored once, ahead
+ * of the services, see {@link SharedSubtrees}. Files are read the same either way
+ * */
+final class SingleFileRegistryStore implements RegistryStore {
+
+    private final ObjectMapper jsonMapper;
+    private final Path registryPath;
+    private final boolean sharedBlocks;
+    private Set<String> names;
+    private long namesVersion;
+
+    SingleFileRegistryStore(ObjectMapper jsonMapper, Path registryPath, boolean sharedBlocks) {
+        this.jsonMapper = jsonMapper;
+        this.registryPath = registryPath;
+        this.sharedBlocks = sharedBlocks;
+    }
+
+    @Override
+    public synchronized Set<String> serviceNames() throws RegistryException {
+        if (names == null) {
+            long version = version();
+            names = Collections.unmodifiableSet(scan(Collections.emptySet(), null));
+            namesVersion = version;
+        }
+        return names;
+    }
+
+    @Override
+    public String stamp() {
+        return FileUtils.fileStamp(registryPath);
+    }
+
+    @Override
+    public boolean contains(String service) throws RegistryException {
+        return serviceNames().contains(service);
+    }
+
+    @Override
+    public JsonNode read(String service) throws RegistryException {
+        return read(Set.of(service)).get(service);
+    }
+
+    @Override
+    public Map<String, JsonNode> read(Set<String> services) throws RegistryException {
+        Map<String, JsonNode> found = new LinkedHashMap<>();
+        if (!services.isEmpty()) {
+            scan(services, found);
+        }
+        return found;
+    }
+
+    @Override
+    public boolean write(Map<String, JsonNode> services, long expectedVersion) throws RegistryException {
+        return commit(expectedVersion, registry -> registry.setAll(services));
+    }
+
+    @Override
+    public boolean delete(Set<String> services, long expectedVersion) throws RegistryException {
+        return commit(expectedVersion, registry -> registry.remove(services));
+    }
+
+    @Override
+    public boolean rewritesOnWrite() {
+        return true;
+    }
+
+    @Override
+    public boolean sharesBlocksOnDisk() {
+        return sharedBlocks;
+    }
+
+    @Override
+    public void clear() throws RegistryException {
+        commit(RegistryLock.ANY_VERSION, ObjectNode::removeAll);
+    }
+
+    @Override
+    public synchronized void refresh() {
+        if (names != null && namesVersion != version()) {
+            names = null;
+        }
+    }
+
+    //Read-modify-write under the registry lock. The file is read again once locked, not taken from our snapshot, so we
+    //never drop what others wrote since we last read it. Locked before synchronizing, see RegistryLock
+    private boolean commit(long expectedVersion, Consumer<ObjectNode> change) throws RegistryException {
+        try (RegistryLock lock = RegistryLock.acquire()) {
+            synchronized (this) {
+                if (!lock.isAt(expectedVersion)) {
+                    return false;
+                }
+
+                ObjectNode fresh = load();
+                change.accept(fresh);
+                save(fresh);
+                lock.bump();
+                namesVersion = version();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Streams over the top level of the registry without building its tree
+     * @param wanted The services to build trees for, every other service body is skipped
+     * @param found Collects the trees of the wanted services, may be null when nothing is wanted
+     * @return the names of every service seen, which is all of them unless every wanted service was found early
+     * */
+    Set<String> scan(Set<String> wanted, Map<String, JsonNode> found) throws RegistryException {
+        Set<String> seen = new LinkedHashSet<>();
+        Map<String, JsonNode> blocks = Map.of();
+
+        try (JsonParser parser = jsonMapper.createParser(registryPath.toFile())) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return seen; //Empty file
+            }
+
+            if (token != JsonToken.START_OBJECT) {
+                throw corrupted(null);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String service = parser.currentName();
+                parser.nextToken(); //Move to the service body
+
+                //Written first, so they're known by the time a service points to them
+                if (SharedSubtrees.BLOCKS_FIELD.equals(service)) {
+                    if (wanted.isEmpty()) {
+                        parser.skipChildren();
+                    } else {
+                        blocks = SharedSubtrees.blocks(jsonMapper.readTree(parser));
+                    }
+                    continue;
+                }
+
+                seen.add(service);
+                if (wanted.contains(service)) {
+                    found.put(service, SharedSubtrees.expand(jsonMapper.readTree(parser), blocks));
+                    if (found.size() == wanted.size()) {
+                        break;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return seen;
+        } catch (JsonProcessingException e) {
+            throw corrupted(e);
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError("cannot read registry file",
+                            "run `quickstart init` to create it or ensure the registry isn't corrupted", e)
+            );
+        }
+    }
+
+    ObjectNode load() throws RegistryException {
+        try {
+            JsonNode node = jsonMapper.readTree(registryPath.toFile());
+            if (node == null || node.isMissingNode() || node.isNull()) {
+                return jsonMapper.createObjectNode();
+            }
+
+            if (!node.isObject()) {
+                throw corrupted(null);
+            }
+
+            ObjectNode registry = (ObjectNode) node;
+            Map<String, JsonNode> blocks = SharedSubtrees.blocks(registry.remove(SharedSubtrees.BLOCKS_FIELD));
+            if (!blocks.isEmpty()) {
+                List<String> services = new ArrayList<>();
+                registry.fieldNames().forEachRemaining(services::add);
+                services.forEach(service -> registry.set(service, SharedSubtrees.expand(registry.get(service), blocks)));
+            }
+            return registry;
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError("cannot read registry file",
+                            "run `quickstart init` to create it or ensure the registry isn't corrupted", e)
+            );
+        }
+    }
+
+    /**
+     * Replaces the registry file, blocks found in several services are written once if this store shares blocks
+     * @param node The services, without references to shared blocks
+     * */
+    void save(ObjectNode node) throws RegistryException {
+        ObjectNode stored = sharedBlocks ? share(node) : node;
+
+        try {
+            FileUtils.writeAtomically(registryPath, out -> jsonMapper.writeValue(out, stored));
+            Set<String> written = new LinkedHashSet<>();
+            node.fieldNames().forEachRemaining(written::add);
+            names = Collections.unmodifiableSet(written);
+        } catch (IOException e) {
+            throw new RegistryException(
+                    new ServiceError(
+                            "cannot write to registry file",
+                            "check if another process is using the file or run `ls -la ~/.quickstart/`",
+                            e)
+            );
+        }
+    }
+
+    private ObjectNode share(ObjectNode node) {
+        Map<String, JsonNode> services = new LinkedHashMap<>();
+        node.properties().forEach(e -> services.put(e.getKey(), e.getValue()));
+
+        ObjectNode stored = jsonMapper.createObjectNode();
+        try (Timings.Phase ignored = Timings.start("registry dedup")) {
+            SharedSubtrees.Shared shared = SharedSubtrees.share(services);
+            if (!shared.blocks().isEmpty()) {
+                stored.set(SharedSubtrees.BLOCKS_FIELD, shared.blocksNode());
+            }
+            stored.setAll(shared.services());
+        }
+        return stored;
+    }
+
+    private RegistryException corrupted(Exception cause) {
+        return new RegistryException(
+                new ServiceError(
+                        "registry file is corrupted",
+                        "backup and delete `~/.quickstart/registry.json`, then run `quickstart init`",
+                        cause)
+        );
+    }
+}
@@ -0,0 +1,262 @@
+package org.quickstart.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * The terms of the index in case insensitive order, each with the ids of the services holding it in ascending order.
+ * Everything is kept in flat arrays written to and read from disk as they are, and a term is only decoded when a
+ * lookup compares against it, so loading the index costs about as much as reading its file.
+ * Postings are never modified, a change produces new postings by merging the old ones with the changed services
+ * */
+final class Postings {
+
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    static final Postings EMPTY = new Postings(new String[0], new int[1], new byte[0], new int[1], new int[0]);
+
+    private final String[] services;
+    private final int[] termOffsets;
+    private final byte[] terms;
+    private final int[] postingOffsets;
+    private final int[] postings;
+
+    private Postings(String[] services, int[] termOffsets, byte[] terms, int[] postingOffsets, int[] postings) {
+        this.services = services;
+        this.termOffsets = termOffsets;
+        this.terms = terms;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * Calls back with every service holding a term, once per term it holds
+     * @param term The term to find, matched ignoring case
+     * @param prefix Matches every term starting with the term instead
+     * @param found Takes the service and the term it holds, as written in the service
+     * */
+    void find(String term, boolean prefix, BiConsumer<String, String> found) {
+        for (int i = lowerBound(term); i < termCount(); i++) {
+            String candidate = term(i);
+            boolean matches = prefix
+                    ? candidate.regionMatches(true, 0, term, 0, term.length())
+                    : ORDER.compare(candidate, term) == 0;
+            if (!matches) {
+                return;
+            }
+            for (int p = postingOffsets[i]; p < postingOffsets[i + 1]; p++) {
+                found.accept(services[postings[p]], candidate);
+            }
+        }
+    }
+
+    /**
+     * @param written The services written since, mapped to their terms, replacing whatever they held before
+     * @param removed The services deleted since
+     * @return the postings with the changes applied
+     * */
+    Postings patch(Map<String, ? extends Collection<String>> written, Collection<String> removed) {
+        //Services keep their order, the ones written are moved to the end so every posting stays in ascending order
+        Set<String> dropped = new HashSet<>(removed);
+        dropped.addAll(written.keySet());
+        int[] ids = new int[services.length];
+        List<String> kept = new ArrayList<>(services.length + written.size());
+        for (int i = 0; i < services.length; i++) {
+            ids[i] = dropped.contains(services[i]) ? -1 : kept.size();
+            if (ids[i] >= 0) {
+                kept.add(services[i]);
+            }
+        }
+
+        TreeMap<String, List<Integer>> added = new TreeMap<>(ORDER);
+        written.forEach((service, serviceTerms) -> {
+            int id = kept.size();
+            kept.add(service);
+            serviceTerms.forEach(term -> added.computeIfAbsent(term, ignored -> new ArrayList<>()).add(id));
+        });
+
+        //Both sides are in order, so one pass merges them
+        Builder builder = new Builder(termCount() + added.size(), postings.length + added.size());
+        int i = 0;
+        String current = termCount() > 0 ? term(0) : null;
+        for (Map.Entry<String, List<Integer>> entry : added.entrySet()) {
+            int order = -1;
+            while (current != null && (order = ORDER.compare(current, entry.getKey())) < 0) {
+                builder.addTerm(terms, termOffsets[i], termOffsets[i + 1], ids, postings, postingOffsets[i], postingOffsets[i + 1], List.of());
+                current = ++i < termCount() ? term(i) : null;
+            }
+
+            if (current != null && order == 0) {
+                builder.addTerm(terms, termOffsets[i], termOffsets[i + 1], ids, postings, postingOffsets[i], postingOffsets[i + 1], entry.getValue());
+                current = ++i < termCount() ? term(i) : null;
+            } else {
+                byte[] term = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                builder.addTerm(term, 0, term.length, ids, postings, 0, 0, entry.getValue());
+            }
+        }
+        for (; i < termCount(); i++) {
+            builder.addTerm(terms, termOffsets[i], termOffsets[i + 1], ids, postings, postingOffsets[i], postingOffsets[i + 1], List.of());
+        }
+        return builder.build(kept.toArray(String[]::new));
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(services.length);
+        for (String service : services) {
+            out.writeUTF(service);
+        }
+        writeInts(out, termOffsets);
+        out.write(terms, 0, termOffsets[termOffsets.length - 1]);
+        writeInts(out, postingOffsets);
+        writeInts(out, postings);
+    }
+
+    static Postings readFrom(DataInputStream in) throws IOException {
+        String[] services = new String[in.readInt()];
+        for (int i = 0; i < services.length; i++) {
+            services[i] = in.readUTF();
+        }
+        int[] termOffsets = readInts(in);
+        byte[] terms = new byte[termOffsets[termOffsets.length - 1]];
+        in.readFully(terms);
+        int[] postingOffsets = readInts(in);
+        int[] postings = readInts(in);
+        if (postingOffsets.length != termOffsets.length || postingOffsets[postingOffsets.length - 1] != postings.length) {
+            throw new IOException("inconsistent search index");
+        }
+        return new Postings(services, termOffsets, terms, postingOffsets, postings);
+    }
+
+    private int termCount() {
+        return termOffsets.length - 1;
+    }
+
+    private String term(int i) {
+        return new String(terms, termOffsets[i], termOffsets[i + 1] - termOffsets[i], StandardCharsets.UTF_8);
+    }
+
+    //The first term not before the given one
+    private int lowerBound(String term) {
+        int low = 0;
+        int high = termCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ORDER.compare(term(middle), term) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Integer.BYTES);
+        bytes.asIntBuffer().put(values);
+        out.writeInt(values.length);
+        out.write(bytes.array());
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt() * Integer.BYTES];
+        in.readFully(bytes);
+        int[] values = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Lays out postings term by term, in order
+     * */
+    private static final class Builder {
+
+        private final IntList termOffsets;
+        private final IntList postingOffsets;
+        private final IntList postings;
+        private byte[] terms;
+
+        private Builder(int terms, int postings) {
+            this.termOffsets = new IntList(terms + 1);
+            this.postingOffsets = new IntList(terms + 1);
+            this.postings = new IntList(postings);
+            this.terms = new byte[terms * 16];
+            this.termOffsets.add(0);
+            this.postingOffsets.add(0);
+        }
+
+        //Keeps the old postings of the term that survived, renumbered, followed by the added ones. A term left without
+        //any service is dropped
+        private void addTerm(byte[] term, int termFrom, int termTo, int[] ids, int[] oldPostings, int from, int to, List<Integer> added) {
+            int start = postings.size();
+            for (int p = from; p < to; p++) {
+                int id = ids[oldPostings[p]];
+                if (id >= 0) {
+                    postings.add(id);
+                }
+            }
+            added.forEach(postings::add);
+            if (postings.size() == start) {
+                return;
+            }
+
+            int length = termOffsets.last();
+            if (length + termTo - termFrom > terms.length) {
+                terms = Arrays.copyOf(terms, Math.max(terms.length * 2, length + termTo - termFrom));
+            }
+            System.arraycopy(term, termFrom, terms, length, termTo - termFrom);
+            termOffsets.add(length + termTo - termFrom);
+            postingOffsets.add(postings.size());
+        }
+
+        private Postings build(String[] services) {
+            int[] offsets = termOffsets.toArray();
+            return new Postings(services, offsets, Arrays.copyOf(terms, offsets[offsets.length - 1]),
+                    postingOffsets.toArray(), postings.toArray());
+        }
+    }
+
+    /**
+     * A growable list of ints, the postings of a large registry would be millions of boxed integers otherwise
+     * */
+    private static final class IntList {
+
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            this.values = new int[Math.max(capacity, 1)];
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int last() {
+            return values[size - 1];
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
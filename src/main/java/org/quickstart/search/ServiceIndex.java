@@ -0,0 +1,193 @@
+package org.quickstart.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.quickstart.FileUtils;
+import org.quickstart.timings.Timings;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An inverted index of what services are made of, i.e. their images, host ports and env keys (see {@link ServiceTerms}),
+ * persisted to disk so a search doesn't read every service. Terms are matched ignoring case.
+ * Like {@link org.quickstart.similarity.NameIndex} the index records a stamp of the registry it was built from, and is
+ * updated in place by writes to the registry it still matches. A write to a registry the index doesn't match leaves it
+ * alone rather than reading every service, the next search rebuilds it
+ * */
+public final class ServiceIndex {
+
+    private static final int VERSION = 1;
+
+    private final Path indexPath;
+    private Postings postings;
+    private String stamp;
+
+    public ServiceIndex(Path indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * Finds the services matching every query. A query is `<field>:<value>`, with a field of {@link ServiceTerms#FIELDS},
+     * or a value alone to look it up in every field. A value ending in `*` matches every value it starts
+     * @param sourceStamp The current stamp of the registry
+     * @param source Supplies every service in the registry if the index has to be rebuilt
+     * @return the matching services in alphabetical order, mapped to the terms they matched
+     * */
+    public synchronized SortedMap<String, SortedSet<String>> search(List<String> queries, String sourceStamp, ServiceSource source) {
+        sync(sourceStamp, source);
+
+        SortedMap<String, SortedSet<String>> matches = null;
+        for (String query : queries) {
+            Map<String, SortedSet<String>> queryMatches = matches(query);
+            if (matches == null) {
+                matches = new TreeMap<>(queryMatches);
+            } else {
+                matches.keySet().retainAll(queryMatches.keySet());
+                matches.forEach((service, terms) -> terms.addAll(queryMatches.get(service)));
+            }
+        }
+        return matches == null ? new TreeMap<>() : matches;
+    }
+
+    /**
+     * Indexes services after they were written to the registry, replacing what was indexed for those that were
+     * overwritten
+     * @param stampBefore The stamp of the registry before the services were written
+     * @param stampAfter The stamp of the registry after the services were written
+     * */
+    public synchronized void written(Map<String, JsonNode> services, String stampBefore, String stampAfter) {
+        if (patchable(stampBefore)) {
+            Map<String, Set<String>> terms = new LinkedHashMap<>();
+            services.forEach((name, service) -> terms.put(name, ServiceTerms.of(service)));
+            postings = postings.patch(terms, List.of());
+            stamp = stampAfter;
+            save();
+        }
+    }
+
+    /**
+     * Removes services from the index after they were deleted from the registry
+     * @param stampBefore The stamp of the registry before the services were deleted
+     * @param stampAfter The stamp of the registry after the services were deleted
+     * */
+    public synchronized void removed(Collection<String> services, String stampBefore, String stampAfter) {
+        if (patchable(stampBefore)) {
+            postings = postings.patch(Map.of(), services);
+            stamp = stampAfter;
+            save();
+        }
+    }
+
+    //Whether the index matches the registry as it was right before a change, only then can it be patched
+    private boolean patchable(String stampBefore) {
+        if (postings == null || !Objects.equals(stamp, stampBefore)) {
+            load();
+        }
+        return postings != null && Objects.equals(stamp, stampBefore);
+    }
+
+    private Map<String, SortedSet<String>> matches(String query) {
+        String field = null;
+        String value = query;
+        int colon = query.indexOf(':');
+        if (colon > 0 && ServiceTerms.FIELDS.contains(query.substring(0, colon).toLowerCase())) {
+            field = query.substring(0, colon).toLowerCase();
+            value = query.substring(colon + 1);
+        }
+
+        boolean prefix = value.endsWith("*");
+        if (prefix) {
+            value = value.substring(0, value.length() - 1);
+        }
+
+        Map<String, SortedSet<String>> matches = new HashMap<>();
+        for (String searched : field == null ? ServiceTerms.FIELDS : List.of(field)) {
+            postings.find(searched + ":" + value, prefix,
+                    (service, term) -> matches.computeIfAbsent(service, ignored -> new TreeSet<>()).add(term));
+        }
+        return matches;
+    }
+
+    private void sync(String sourceStamp, ServiceSource source) {
+        if (postings == null || !Objects.equals(stamp, sourceStamp)) {
+            load();
+        }
+
+        if (postings == null || !Objects.equals(stamp, sourceStamp)) {
+            rebuild(sourceStamp, source);
+        }
+    }
+
+    private void rebuild(String sourceStamp, ServiceSource source) {
+        try (Timings.Phase ignored = Timings.start("search index rebuild")) {
+            Map<String, Set<String>> terms = new LinkedHashMap<>();
+            source.services().forEach((name, service) -> terms.put(name, ServiceTerms.of(service)));
+            postings = Postings.EMPTY.patch(terms, List.of());
+            stamp = sourceStamp;
+            save();
+        }
+    }
+
+    //Reads the index from disk, a missing or unreadable index is left null so it gets rebuilt
+    private void load() {
+        postings = null;
+        stamp = null;
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+
+        try (Timings.Phase ignored = Timings.start("search index read");
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            String storedStamp = in.readUTF();
+            postings = Postings.readFrom(in);
+            stamp = storedStamp;
+        } catch (IOException | RuntimeException e) {
+            postings = null;
+            stamp = null;
+        }
+    }
+
+    private void save() {
+        if (stamp == null) {
+            return; //Nothing to tie the index to, the registry doesn't exist
+        }
+
+        try {
+            FileUtils.writeAtomically(indexPath, out -> {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(VERSION);
+                data.writeUTF(stamp);
+                postings.writeTo(data);
+                data.flush();
+            });
+        } catch (IOException | RuntimeException e) {
+            //The index is only a cache, the copy on disk keeps its old stamp and gets rebuilt the next time it's searched
+        }
+    }
+
+    /**
+     * Supplies every service in the registry the index is built from
+     * */
+    @FunctionalInterface
+    public interface ServiceSource {
+        Map<String, JsonNode> services();
+    }
+}
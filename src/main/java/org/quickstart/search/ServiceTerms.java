@@ -0,0 +1,169 @@
+package org.quickstart.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls the searchable terms out of a service's config, each as `<field>:<value>`. Both the short and the long syntax
+ * of compose are understood, and anything that isn't written the way compose expects is skipped rather than reported,
+ * the registry holds whatever was imported
+ * */
+final class ServiceTerms {
+
+    static final String IMAGE = "image";
+    static final String TAG = "tag";
+    static final String PORT = "port";
+    static final String ENV = "env";
+    static final String LABEL = "label";
+    static final String VOLUME = "volume";
+
+    /**
+     * Every field a term can have, in the order they're listed
+     * */
+    static final List<String> FIELDS = List.of(IMAGE, TAG, PORT, ENV, LABEL, VOLUME);
+
+    //A range wider than this only gets its bounds indexed, i.e. `30000-32767:30000-32767`
+    private static final int MAX_RANGE_PORTS = 100;
+
+    private static final Pattern PORT_RANGE = Pattern.compile("(\\d+)(?:-(\\d+))?");
+
+    private ServiceTerms() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @param service A service's config as stored in the registry
+     * @return the terms of the service, without duplicates
+     * */
+    static Set<String> of(JsonNode service) {
+        Set<String> terms = new LinkedHashSet<>();
+        JsonNode image = service.get("image");
+        if (image != null && image.isTextual()) {
+            addImage(image.asText(), terms);
+        }
+
+        service.path("ports").forEach(port -> addPort(port, terms));
+        addKeys(ENV, service.path("environment"), terms);
+        addKeys(LABEL, service.path("labels"), terms);
+        service.path("volumes").forEach(volume -> addVolume(volume, terms));
+        return terms;
+    }
+
+    //`registry:5000/team/api:1.2@sha256:...` is found as `image:registry:5000/team/api:1.2`, `image:registry:5000/team/api`,
+    //`image:api` and `tag:1.2`
+    private static void addImage(String image, Set<String> terms) {
+        int digest = image.indexOf('@');
+        String reference = digest < 0 ? image : image.substring(0, digest);
+        if (reference.isBlank()) {
+            return;
+        }
+
+        //A colon before the last slash belongs to the registry's port, not to the tag
+        int tagColon = reference.lastIndexOf(':');
+        String repository = tagColon > reference.lastIndexOf('/') ? reference.substring(0, tagColon) : reference;
+        terms.add(IMAGE + ":" + reference);
+        terms.add(IMAGE + ":" + repository);
+        terms.add(IMAGE + ":" + repository.substring(repository.lastIndexOf('/') + 1));
+        if (repository.length() < reference.length()) {
+            terms.add(TAG + ":" + reference.substring(tagColon + 1));
+        }
+    }
+
+    //Only host ports are indexed, a port published to whatever the host picks can't clash with anything
+    private static void addPort(JsonNode port, Set<String> terms) {
+        if (port.isObject()) {
+            JsonNode published = port.get("published");
+            if (published != null && published.isValueNode()) {
+                addPortRange(published.asText(), terms);
+            }
+            return;
+        }
+        if (!port.isTextual()) {
+            return; //A bare number is a container port
+        }
+
+        //`[ip:]host:container[/protocol]`, ip being `[::1]` style for IPv6
+        String mapping = port.asText();
+        int protocol = mapping.indexOf('/');
+        if (protocol >= 0) {
+            mapping = mapping.substring(0, protocol);
+        }
+        if (mapping.startsWith("[")) {
+            int end = mapping.indexOf("]:");
+            mapping = end < 0 ? mapping : mapping.substring(end + 2);
+        }
+
+        String[] parts = mapping.split(":", -1);
+        if (parts.length >= 2) {
+            addPortRange(parts[parts.length - 2], terms);
+        }
+    }
+
+    private static void addPortRange(String ports, Set<String> terms) {
+        Matcher range = PORT_RANGE.matcher(ports.trim());
+        if (!range.matches()) {
+            return; //Empty, or a variable compose substitutes
+        }
+
+        int first = Integer.parseInt(range.group(1));
+        int last = range.group(2) == null ? first : Integer.parseInt(range.group(2));
+        if (last < first || last - first >= MAX_RANGE_PORTS) {
+            terms.add(PORT + ":" + first);
+            terms.add(PORT + ":" + last);
+            return;
+        }
+        for (int port = first; port <= last; port++) {
+            terms.add(PORT + ":" + port);
+        }
+    }
+
+    //Keys of a mapping, or of a list of `KEY=value` entries
+    private static void addKeys(String field, JsonNode entries, Set<String> terms) {
+        if (entries.isObject()) {
+            entries.fieldNames().forEachRemaining(key -> terms.add(field + ":" + key));
+            return;
+        }
+
+        for (JsonNode entry : entries) {
+            if (!entry.isTextual()) {
+                continue;
+            }
+            String text = entry.asText();
+            int equals = text.indexOf('=');
+            String key = (equals < 0 ? text : text.substring(0, equals)).trim();
+            if (!key.isEmpty()) {
+                terms.add(field + ":" + key);
+            }
+        }
+    }
+
+    //Named volumes only, bind mounts and anonymous volumes have no name to search for
+    private static void addVolume(JsonNode volume, Set<String> terms) {
+        String source = null;
+        if (volume.isObject()) {
+            String type = volume.path("type").asText("volume");
+            source = "volume".equals(type) ? volume.path("source").asText(null) : null;
+        } else if (volume.isTextual()) {
+            String[] parts = volume.asText().split(":");
+            source = parts.length >= 2 ? parts[0] : null;
+        }
+
+        if (source != null && isVolumeName(source)) {
+            terms.add(VOLUME + ":" + source);
+        }
+    }
+
+    private static boolean isVolumeName(String source) {
+        return !source.isEmpty()
+                && source.indexOf('/') < 0
+                && source.indexOf('\\') < 0
+                && source.charAt(0) != '.'
+                && source.charAt(0) != '~'
+                && source.charAt(0) != '$';
+    }
+}
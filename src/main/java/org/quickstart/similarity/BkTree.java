@@ -0,0 +1,276 @@
+package org.quickstart.similarity;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BK-tree of names keyed by Levenshtein distance. Every child sits at an exact distance from its parent, so by the
+ * triangle inequality a lookup with tolerance k only has to visit children at distance [d - k, d + k] of each node it
+ * reaches instead of comparing against every name.
+ * Names are removed by marking them as deleted since a BK-tree can't drop a node without re-inserting its subtree,
+ * the tree is rebuilt once deleted names outnumber the live ones.
+ * Every walk is iterative, names like `service-1 ... service-9999` sit at tiny distances from each other and build deep trees
+ * */
+public final class BkTree {
+
+    private Node root;
+    private int live;
+    private int deleted;
+
+    /**
+     * Adds a name to the tree, adding a name twice does nothing
+     * */
+    public void add(String name) {
+        if (root == null) {
+            root = new Node(name);
+            live++;
+            return;
+        }
+
+        Node node = root;
+        while (true) {
+            int distance = Levenshtein.distance(node.name, name);
+            if (distance == 0) {
+                if (node.deleted) {
+                    node.deleted = false;
+                    deleted--;
+                    live++;
+                }
+                return;
+            }
+
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(name));
+                live++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Removes a name from the tree, names that aren't in the tree are ignored
+     * */
+    public void remove(String name) {
+        Node node = find(name);
+        if (node == null || node.deleted) {
+            return;
+        }
+
+        node.deleted = true;
+        live--;
+        deleted++;
+
+        if (deleted > live) {
+            compact();
+        }
+    }
+
+    public boolean contains(String name) {
+        Node node = find(name);
+        return node != null && !node.deleted;
+    }
+
+    /**
+     * @return the number of names in the tree
+     * */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * Finds the names within a given distance of a name, closest first
+     * @param name The name to look up
+     * @param maxDistance The largest distance a match may have
+     * @param limit The maximum number of matches to return
+     * @return the matching names ordered by distance, then alphabetically
+     * */
+    public List<String> search(String name, int maxDistance, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null || limit <= 0) {
+            return List.of();
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+
+            //No child can match once the name is further than maxDistance past the furthest child
+            int distance = Levenshtein.distance(node.name, name, maxDistance + node.furthestChild());
+            if (distance < 0) {
+                continue;
+            }
+
+            if (distance <= maxDistance && !node.deleted) {
+                matches.add(new Match(node.name, distance));
+            }
+
+            for (int d = Math.max(1, distance - maxDistance); d <= distance + maxDistance; d++) {
+                Node child = node.children.get(d);
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingInt(Match::distance).thenComparing(Match::name))
+                .limit(limit)
+                .map(Match::name)
+                .toList();
+    }
+
+    /**
+     * Writes the tree in pre-order, so reading it back restores the same shape without recomputing any distance
+     * */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(live);
+        out.writeInt(deleted);
+        out.writeBoolean(root != null);
+        if (root == null) {
+            return;
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            out.writeUTF(node.name);
+            out.writeBoolean(node.deleted);
+            out.writeInt(node.children.size());
+
+            //Pushed in reverse so they're popped, and written, in the same order as their distances
+            List<Map.Entry<Integer, Node>> children = new ArrayList<>(node.children.entrySet());
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i).getValue());
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                out.writeInt(child.getKey());
+            }
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #writeTo(DataOutput)}
+     * */
+    public static BkTree readFrom(DataInput in) throws IOException {
+        BkTree tree = new BkTree();
+        tree.live = in.readInt();
+        tree.deleted = in.readInt();
+        if (!in.readBoolean()) {
+            return tree;
+        }
+
+        //Each frame is a node still waiting for some of its children, along with the distances of those children
+        Deque<Pending> parents = new ArrayDeque<>();
+        Pending rootFrame = readNode(in);
+        tree.root = rootFrame.node;
+        if (rootFrame.remaining() > 0) {
+            parents.push(rootFrame);
+        }
+
+        while (!parents.isEmpty()) {
+            Pending parent = parents.peek();
+            Pending child = readNode(in);
+            parent.node.children.put(parent.distances[parent.next++], child.node);
+
+            if (parent.remaining() == 0) {
+                parents.pop();
+            }
+            if (child.remaining() > 0) {
+                parents.push(child);
+            }
+        }
+
+        return tree;
+    }
+
+    private static Pending readNode(DataInput in) throws IOException {
+        Node node = new Node(in.readUTF());
+        node.deleted = in.readBoolean();
+        int[] distances = new int[in.readInt()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = in.readInt();
+        }
+        return new Pending(node, distances);
+    }
+
+    private Node find(String name) {
+        Node node = root;
+        while (node != null) {
+            int distance = Levenshtein.distance(node.name, name);
+            if (distance == 0) {
+                return node;
+            }
+            node = node.children.get(distance);
+        }
+        return null;
+    }
+
+    //Rebuilds the tree from its live names, dropping every deleted node
+    private void compact() {
+        List<String> names = new ArrayList<>(live);
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            if (!node.deleted) {
+                names.add(node.name);
+            }
+            node.children.values().forEach(pending::push);
+        }
+
+        root = null;
+        live = 0;
+        deleted = 0;
+        names.forEach(this::add);
+    }
+
+    private static final class Node {
+        private final String name;
+        private final Map<Integer, Node> children = new HashMap<>(4);
+        private boolean deleted;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private int furthestChild() {
+            int furthest = 0;
+            for (int d : children.keySet()) {
+                furthest = Math.max(furthest, d);
+            }
+            return furthest;
+        }
+    }
+
+    private static final class Pending {
+        private final Node node;
+        private final int[] distances;
+        private int next;
+
+        private Pending(Node node, int[] distances) {
+            this.node = node;
+            this.distances = distances;
+        }
+
+        private int remaining() {
+            return distances.length - next;
+        }
+    }
+
+    private record Match(String name, int distance) {
+
+    }
+}
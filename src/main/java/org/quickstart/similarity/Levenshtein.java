@@ -0,0 +1,67 @@
+package org.quickstart.similarity;
+
+/**
+ * Levenshtein distance that gives up as soon as the distance is known to exceed a threshold. Names that are far apart
+ * are rejected after a row or two of the table instead of filling all of it
+ * */
+public final class Levenshtein {
+
+    private Levenshtein() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * @return the exact distance between two names
+     * */
+    public static int distance(CharSequence left, CharSequence right) {
+        return distance(left, right, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param threshold The largest distance worth computing
+     * @return the distance between two names, or -1 if it's larger than the threshold
+     * */
+    public static int distance(CharSequence left, CharSequence right, int threshold) {
+        //Keep the shorter name in the rows so they stay small
+        if (left.length() > right.length()) {
+            CharSequence swap = left;
+            left = right;
+            right = swap;
+        }
+
+        int n = left.length();
+        int m = right.length();
+        if (m - n > threshold) {
+            return -1;
+        }
+
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            previous[i] = i;
+        }
+
+        for (int j = 1; j <= m; j++) {
+            char c = right.charAt(j - 1);
+            current[0] = j;
+            int rowMin = j;
+
+            for (int i = 1; i <= n; i++) {
+                int cost = left.charAt(i - 1) == c ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+
+            //Distances never shrink from one row to the next
+            if (rowMin > threshold) {
+                return -1;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[n] > threshold ? -1 : previous[n];
+    }
+}
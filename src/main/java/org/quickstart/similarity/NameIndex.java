@@ -0,0 +1,156 @@
+package org.quickstart.similarity;
+
+import org.quickstart.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link BkTree} of names persisted to disk, used to suggest what the user meant when a name isn't found.
+ * The index records a stamp of the source it was built from (i.e. the registry file) and is rebuilt from scratch when
+ * the source changed behind its back, otherwise it's updated in place as names are added and removed
+ * */
+public final class NameIndex {
+
+    private static final int VERSION = 1;
+
+    private final Path indexPath;
+    private BkTree tree;
+    private String stamp;
+
+    public NameIndex(Path indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * Finds the names similar to a name
+     * @param name The name to look up
+     * @param maxDistance The largest Levenshtein distance a suggestion may have
+     * @param limit The maximum number of suggestions
+     * @param sourceStamp The current stamp of the source
+     * @param source Supplies every name in the source if the index has to be rebuilt
+     * @return the similar names, closest first
+     * */
+    public synchronized List<String> similarTo(String name, int maxDistance, int limit, String sourceStamp, NameSource source) {
+        sync(sourceStamp, source);
+        return tree.search(name, maxDistance, limit);
+    }
+
+    /**
+     * Adds names to the index after they were added to the source
+     * @param stampBefore The stamp of the source before the names were added
+     * @param stampAfter The stamp of the source after the names were added
+     * @param source Supplies every name in the source if the index has to be rebuilt
+     * */
+    public synchronized void added(Collection<String> names, String stampBefore, String stampAfter, NameSource source) {
+        update(names, true, stampBefore, stampAfter, source);
+    }
+
+    /**
+     * Removes names from the index after they were removed from the source
+     * @param stampBefore The stamp of the source before the names were removed
+     * @param stampAfter The stamp of the source after the names were removed
+     * @param source Supplies every name in the source if the index has to be rebuilt
+     * */
+    public synchronized void removed(Collection<String> names, String stampBefore, String stampAfter, NameSource source) {
+        update(names, false, stampBefore, stampAfter, source);
+    }
+
+    private void update(Collection<String> names, boolean add, String stampBefore, String stampAfter, NameSource source) {
+        if (Objects.equals(stampBefore, stampAfter)) {
+            return; //The set of names didn't change
+        }
+
+        //Only patch an index that matched the source right before this change, anything else is rebuilt
+        if (tree == null || !Objects.equals(stamp, stampBefore)) {
+            load();
+        }
+
+        if (tree == null || !Objects.equals(stamp, stampBefore)) {
+            rebuild(stampAfter, source);
+            return;
+        }
+
+        for (String name : names) {
+            if (add) {
+                tree.add(name);
+            } else {
+                tree.remove(name);
+            }
+        }
+        stamp = stampAfter;
+        save();
+    }
+
+    private void sync(String sourceStamp, NameSource source) {
+        if (tree == null || !Objects.equals(stamp, sourceStamp)) {
+            load();
+        }
+
+        if (tree == null || !Objects.equals(stamp, sourceStamp)) {
+            rebuild(sourceStamp, source);
+        }
+    }
+
+    private void rebuild(String sourceStamp, NameSource source) {
+        BkTree rebuilt = new BkTree();
+        source.names().forEach(rebuilt::add);
+        tree = rebuilt;
+        stamp = sourceStamp;
+        save();
+    }
+
+    //Reads the index from disk, a missing or unreadable index is left null so it gets rebuilt
+    private void load() {
+        tree = null;
+        stamp = null;
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            String storedStamp = in.readUTF();
+            tree = BkTree.readFrom(in);
+            stamp = storedStamp;
+        } catch (IOException | RuntimeException e) {
+            tree = null;
+            stamp = null;
+        }
+    }
+
+    private void save() {
+        if (stamp == null) {
+            return; //Nothing to tie the index to, the source doesn't exist
+        }
+
+        try {
+            FileUtils.writeAtomically(indexPath, out -> {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(VERSION);
+                data.writeUTF(stamp);
+                tree.writeTo(data);
+                data.flush();
+            });
+        } catch (IOException e) {
+            //The index is only a cache, the copy on disk keeps its old stamp and gets rebuilt the next time it's read
+        }
+    }
+
+    /**
+     * Supplies every name in the source the index is built from
+     * */
+    @FunctionalInterface
+    public interface NameSource {
+        Collection<String> names();
+    }
+}
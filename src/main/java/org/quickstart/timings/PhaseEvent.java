@@ -0,0 +1,26 @@
+package org.quickstart.timings;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event per timed phase, so phases line up with GC, I/O and thread activity when a run is recorded with
+ * `-XX:StartFlightRecording`. Costs next to nothing when no recording is running
+ * */
+@Name("org.quickstart.Phase")
+@Label("QuickStart Phase")
+@Category("QuickStart")
+@Description("A phase of a QuickStart command, i.e. reading the registry or running docker-compose")
+@StackTrace(false)
+final class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Command")
+    String command;
+}
@@ -0,0 +1,172 @@
+package org.quickstart.timings;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.quickstart.configurations.ObjectMapperConfig;
+import org.quickstart.dtos.CommandTimings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the phases of a command, i.e. reading the registry, building the compose file or running docker-compose.
+ * Phases are always recorded since they cost a couple of clock reads, `--timings` only decides whether they're printed.
+ * Every phase is also committed as a {@link PhaseEvent} for JFR.
+ * A process running a single command has a single recording. The daemon serves several commands at once, so each
+ * starts its own with {@link #reset()}, and the threads a command starts inherit it
+ * */
+public final class Timings {
+
+    private static final Recording PROCESS = new Recording();
+    private static final InheritableThreadLocal<Recording> recording = new InheritableThreadLocal<>() {
+        @Override
+        protected Recording initialValue() {
+            return PROCESS;
+        }
+    };
+    private static final ThreadLocal<Integer> depth = ThreadLocal.withInitial(() -> 0);
+
+    private Timings() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Starts a new recording for the command about to run on this thread, leaving the phases of other commands alone
+     * */
+    public static void reset() {
+        recording.set(new Recording());
+    }
+
+    /**
+     * Records the time between the JVM being launched and now as the first phase, and moves the start of the command
+     * back to the launch. Only meaningful in a process that runs a single command
+     * */
+    public static void recordStartup() {
+        Recording current = recording.get();
+        ProcessHandle.current().info().startInstant().ifPresent(start -> {
+            long nanos = Math.max(0, Duration.between(start, Instant.now()).toNanos());
+            current.origin -= nanos;
+            current.entries.add(new Entry("jvm startup", 0, current.origin, nanos));
+        });
+    }
+
+    /**
+     * @param name The command being timed, i.e. `up`, attached to every JFR event
+     * */
+    public static void command(String name) {
+        recording.get().command = name;
+    }
+
+    /**
+     * Starts timing a phase, close the returned phase to stop it. Phases started while another is open on the same
+     * thread are nested under it
+     * @param name The phase, phases with the same name are added up
+     * */
+    public static Phase start(String name) {
+        int level = depth.get();
+        depth.set(level + 1);
+        return new Phase(recording.get(), name, level);
+    }
+
+    /**
+     * @param exitCode The command's exit code
+     * @return the phases recorded since the last reset, added up by name in the order they first started
+     * */
+    public static CommandTimings summary(int exitCode) {
+        Recording current = recording.get();
+        long total = System.nanoTime() - current.origin;
+        Map<String, CommandTimings.PhaseTiming> phases = new LinkedHashMap<>();
+
+        List<Entry> started;
+        synchronized (current.entries) {
+            started = new ArrayList<>(current.entries);
+        }
+        //Entries are added as phases end, which puts nested phases before the phase they're nested in
+        started.sort(Comparator.comparingLong(Entry::start));
+
+        for (Entry entry : started) {
+            phases.merge(
+                    entry.name(),
+                    new CommandTimings.PhaseTiming(entry.name(), entry.level(), millis(entry.nanos()), 1),
+                    (a, b) -> new CommandTimings.PhaseTiming(a.name(), a.level(), a.millis() + b.millis(), a.count() + 1)
+            );
+        }
+
+        return new CommandTimings(Instant.now().toString(), current.command, exitCode, millis(total), List.copyOf(phases.values()));
+    }
+
+    /**
+     * Appends the timings to a metrics file as a single json line, so runs can be compared over time
+     * @param metricsFile The file to append to, created if it doesn't exist
+     * @param timings The timings of a command
+     * */
+    public static void append(Path metricsFile, CommandTimings timings) throws IOException {
+        String line = ObjectMapperConfig.getJsonMapper()
+                .writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .writeValueAsString(timings);
+
+        //One write per line, appends of concurrent commands don't interleave
+        Files.writeString(metricsFile, line + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private record Entry(String name, int level, long start, long nanos) {}
+
+    /**
+     * The phases of one command
+     * */
+    private static final class Recording {
+
+        private final List<Entry> entries = Collections.synchronizedList(new ArrayList<>());
+        private volatile long origin = System.nanoTime();
+        private volatile String command = "";
+    }
+
+    /**
+     * A running phase
+     * */
+    public static final class Phase implements AutoCloseable {
+
+        private final Recording recording;
+        private final String name;
+        private final int level;
+        private final long start;
+        private final PhaseEvent event;
+
+        private Phase(Recording recording, String name, int level) {
+            this.recording = recording;
+            this.name = name;
+            this.level = level;
+            this.event = new PhaseEvent();
+            this.event.phase = name;
+            this.event.command = recording.command;
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            //Phases are recorded from worker threads too, i.e. profiles started in parallel
+            recording.entries.add(new Entry(name, level, start, nanos));
+            depth.set(level);
+        }
+    }
+}
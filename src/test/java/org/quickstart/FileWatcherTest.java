@@ -0,0 +1,93 @@
+package org.quickstart;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A burst of writes is one change, and other files of the directory aren't changes at all
+ */
+public class FileWatcherTest
+    extends TestCase
+{
+    private static final Duration QUIET = Duration.ofMillis( 200 );
+
+    private Path file;
+    private FileWatcher watcher;
+
+    protected void setUp() throws Exception
+    {
+        file = Files.createTempDirectory( "qs-watch" ).resolve( "compose.yml" );
+        Files.writeString( file, "services: {}\n" );
+        watcher = new FileWatcher( file, QUIET );
+    }
+
+    protected void tearDown() throws Exception
+    {
+        watcher.close();
+    }
+
+    public void testBurstOfWritesIsOneChange() throws Exception
+    {
+        CompletableFuture<Boolean> change = awaitChange();
+        for ( int i = 0; i < 5; i++ )
+        {
+            Files.writeString( file, "services: {web: {image: nginx:" + i + "}}\n" );
+            Thread.sleep( 50 );
+        }
+
+        assertTrue( change.get( 10, TimeUnit.SECONDS ) );
+        assertPending( awaitChange() );
+    }
+
+    public void testOtherFilesAreIgnored() throws Exception
+    {
+        CompletableFuture<Boolean> change = awaitChange();
+        Files.writeString( file.resolveSibling( "notes.txt" ), "not watched\n" );
+        assertPending( change );
+
+        Files.writeString( file, "services: {web: {image: nginx}}\n" );
+        assertTrue( change.get( 10, TimeUnit.SECONDS ) );
+    }
+
+    public void testClosingStopsTheWait() throws Exception
+    {
+        CompletableFuture<Boolean> change = awaitChange();
+        watcher.close();
+
+        assertFalse( change.get( 10, TimeUnit.SECONDS ) );
+    }
+
+    private CompletableFuture<Boolean> awaitChange()
+    {
+        return CompletableFuture.supplyAsync( () -> {
+            try
+            {
+                return watcher.awaitChange();
+            }
+            catch ( InterruptedException e )
+            {
+                throw new IllegalStateException( e );
+            }
+        } );
+    }
+
+    //Nothing is reported for a while, well past the quiet period
+    private static void assertPending( CompletableFuture<Boolean> change ) throws InterruptedException, ExecutionException
+    {
+        try
+        {
+            fail( "unexpected change: " + change.get( 1, TimeUnit.SECONDS ) );
+        }
+        catch ( TimeoutException expected )
+        {
+            //No change
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.quickstart;
+
+import junit.framework.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs `qs` in its own process against a throwaway home directory, the way a user would from that directory, so
+ * tests never touch the real `~/.quickstart`. The daemon is never used, call {@link #delete()} from `tearDown`
+ */
+public class QsProcess
+{
+    private static final String QS_MAIN = "org.quickstart.commands.QuickStartCommand";
+    private static final long TIMEOUT_MINUTES = 2;
+
+    private final Path home;
+    private final Map<String, String> environment = new HashMap<>();
+
+    public QsProcess( String prefix ) throws IOException
+    {
+        home = Files.createTempDirectory( prefix );
+        environment.put( "QS_NO_DAEMON", "1" );
+    }
+
+    public Path home()
+    {
+        return home;
+    }
+
+    public QsProcess environment( String name, String value )
+    {
+        environment.put( name, value );
+        return this;
+    }
+
+    /**
+     * Puts a directory first on the PATH of every process started after, i.e. for stand-in `docker` scripts
+     */
+    public QsProcess pathFirst( Path bin )
+    {
+        return environment( "PATH", bin + File.pathSeparator + System.getenv( "PATH" ) );
+    }
+
+    /**
+     * Runs `qs` with the arguments and fails unless it exits with 0
+     * @return what it printed to stdout and stderr
+     */
+    public String qs( String... args ) throws Exception
+    {
+        return awaitSuccess( start( QS_MAIN, args ) );
+    }
+
+    /**
+     * Starts `qs` with the arguments without waiting for it, i.e. for commands that run until they're stopped
+     */
+    public Process startQs( String... args ) throws IOException
+    {
+        return start( QS_MAIN, args );
+    }
+
+    /**
+     * Starts the main class of the test classpath with the arguments without waiting for it
+     */
+    public Process start( Class<?> mainClass, String... args ) throws IOException
+    {
+        return start( mainClass.getName(), args );
+    }
+
+    private Process start( String mainClass, String... args ) throws IOException
+    {
+        List<String> command = new ArrayList<>( List.of(
+                Path.of( System.getProperty( "java.home" ), "bin", "java" ).toString(),
+                "-Duser.home=" + home,
+                "-cp", System.getProperty( "java.class.path" ),
+                mainClass ) );
+        command.addAll( List.of( args ) );
+
+        ProcessBuilder builder = new ProcessBuilder( command )
+                .directory( home.toFile() )
+                .redirectErrorStream( true )
+                .redirectInput( ProcessBuilder.Redirect.from( new File( "/dev/null" ) ) );
+        builder.environment().putAll( environment );
+        return builder.start();
+    }
+
+    /**
+     * Fails unless the process exits with 0
+     * @return what it printed to stdout and stderr
+     */
+    public static String awaitSuccess( Process process ) throws Exception
+    {
+        String output = new String( process.getInputStream().readAllBytes(), StandardCharsets.UTF_8 );
+        Assert.assertTrue( "process timed out", process.waitFor( TIMEOUT_MINUTES, TimeUnit.MINUTES ) );
+        Assert.assertEquals( output, 0, process.exitValue() );
+        return output;
+    }
+
+    /**
+     * Deletes the home directory and everything the processes left in it
+     */
+    public void delete() throws IOException
+    {
+        if ( !Files.exists( home ) )
+        {
+            return;
+        }
+
+        try ( Stream<Path> paths = Files.walk( home ) )
+        {
+            for ( Path path : paths.sorted( Comparator.reverseOrder() ).toList() )
+            {
+                Files.delete( path );
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * `qs up` skips docker-compose when the document hashes the same as last time, which only works if the same services
+ * always get the same project and render to the same bytes
+ */
+public class ComposeProjectsTest
+    extends TestCase
+{
+    public void testProjectNameIgnoresOrder()
+    {
+        assertEquals( ComposeProjects.projectName( List.of( "redis", "postgres" ) ),
+                ComposeProjects.projectName( List.of( "postgres", "redis" ) ) );
+        assertFalse( ComposeProjects.projectName( List.of( "postgres" ) )
+                .equals( ComposeProjects.projectName( List.of( "postgres", "redis" ) ) ) );
+    }
+
+    public void testProjectNameIsValidForCompose()
+    {
+        String name = ComposeProjects.projectName( List.of( "My.Service", "другой", "a-really-long-service-name-that-goes-on-and-on" ) );
+        assertTrue( name, name.matches( "qs-[a-z0-9_-]+" ) );
+    }
+
+    public void testDerivedNamesAreValidProjectNames()
+    {
+        assertTrue( ComposeProjects.isValidName( ComposeProjects.projectName( List.of( "Postgres", "redis" ) ) ) );
+        assertFalse( ComposeProjects.isValidName( "My_Stack" ) );
+        assertFalse( ComposeProjects.isValidName( "-stack" ) );
+    }
+
+    public void testSameServicesRenderToSameBytes() throws Exception
+    {
+        ObjectMapper json = ObjectMapperConfig.getJsonMapper();
+        JsonNode db = json.readTree( "{\"image\":\"postgres\",\"volumes\":[\"db_data:/var/lib/postgresql/data\"]}" );
+        JsonNode cache = json.readTree( "{\"image\":\"redis\",\"volumes\":[\"cache_data:/data\"]}" );
+
+        Map<String, JsonNode> registry = new LinkedHashMap<>();
+        registry.put( "db", db );
+        registry.put( "cache", cache );
+        Map<String, JsonNode> reversed = new LinkedHashMap<>();
+        reversed.put( "cache", cache );
+        reversed.put( "db", db );
+
+        assertEquals( render( registry, new LinkedHashSet<>( List.of( "db", "cache" ) ) ),
+                render( reversed, new LinkedHashSet<>( List.of( "cache", "db" ) ) ) );
+    }
+
+    public void testServicesAndVolumesAreSorted() throws Exception
+    {
+        ObjectMapper json = ObjectMapperConfig.getJsonMapper();
+        Map<String, JsonNode> registry = new LinkedHashMap<>();
+        for ( String service : List.of( "zookeeper", "kafka", "api", "mongo" ) )
+        {
+            registry.put( service, json.readTree( "{\"volumes\":[\"" + service + "_data:/data\"]}" ) );
+        }
+
+        ComposeBuilder builder = ComposeBuilder.create().buildServices( registry, registry.keySet() );
+        assertEquals( List.of( "api", "kafka", "mongo", "zookeeper" ), List.copyOf( builder.presentServices().keySet() ) );
+        assertEquals( List.of( "api_data", "kafka_data", "mongo_data", "zookeeper_data" ),
+                List.copyOf( builder.serviceVolumes().keySet() ) );
+    }
+
+    private String render( Map<String, JsonNode> registry, Set<String> services ) throws Exception
+    {
+        ComposeBuilder builder = ComposeBuilder.create().buildServices( registry, services );
+        Map<String, Object> compose = new LinkedHashMap<>();
+        compose.put( "services", builder.presentServices() );
+        compose.put( "volumes", builder.serviceVolumes() );
+        return ComposeProjects.hash( out -> ObjectMapperConfig.getYAMLMapper().writeValue( out, compose ) );
+    }
+}
@@ -0,0 +1,70 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import junit.framework.TestCase;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ComposeServiceReaderTest
+    extends TestCase
+{
+    private static final String COMPOSE = String.join( "\n",
+            "version: \"3.8\"",
+            "x-defaults:",
+            "  restart: always",
+            "services:",
+            "  web:",
+            "    image: nginx",
+            "    ports: [\"80:80\"]",
+            "  skipped:",
+            "    image: busybox",
+            "    environment: {A: \"1\", B: [x, y]}",
+            "  db:",
+            "    image: postgres",
+            "volumes:",
+            "  data: {}",
+            "" );
+
+    public void testReadsWantedServicesInFileOrder() throws IOException
+    {
+        Map<String, JsonNode> read = new LinkedHashMap<>();
+        List<String> asked = new ArrayList<>();
+
+        ComposeServiceReader.Outcome outcome = ComposeServiceReader.read( write( COMPOSE ), ObjectMapperConfig.getComposeYAMLMapper(),
+                service -> asked.add( service ) && !service.equals( "skipped" ), read::put );
+
+        assertEquals( ComposeServiceReader.Outcome.READ, outcome );
+        assertEquals( List.of( "web", "skipped", "db" ), asked );
+        assertEquals( List.of( "web", "db" ), new ArrayList<>( read.keySet() ) );
+        assertEquals( "80:80", read.get( "web" ).get( "ports" ).get( 0 ).asText() );
+        assertEquals( "postgres", read.get( "db" ).get( "image" ).asText() );
+    }
+
+    public void testTellsEmptyFilesFromFilesWithoutServices() throws IOException
+    {
+        assertEquals( ComposeServiceReader.Outcome.EMPTY, outcome( "" ) );
+        assertEquals( ComposeServiceReader.Outcome.EMPTY, outcome( "just a string\n" ) );
+        assertEquals( ComposeServiceReader.Outcome.NO_SERVICES, outcome( "volumes:\n  data: {}\n" ) );
+        assertEquals( ComposeServiceReader.Outcome.NO_SERVICES, outcome( "services: {}\n" ) );
+    }
+
+    private static ComposeServiceReader.Outcome outcome( String content ) throws IOException
+    {
+        return ComposeServiceReader.read( write( content ), ObjectMapperConfig.getComposeYAMLMapper(), service -> true, ( service, node ) -> { } );
+    }
+
+    private static Path write( String content ) throws IOException
+    {
+        Path file = Files.createTempFile( "compose", ".yml" );
+        file.toFile().deleteOnExit();
+        Files.writeString( file, content );
+        return file;
+    }
+}
@@ -0,0 +1,102 @@
+package org.quickstart.compose;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Services are pulled in and placed in levels after everything they depend on, those behind a missing dependency or
+ * a cycle are reported instead of started
+ */
+public class DependencyGraphTest
+    extends TestCase
+{
+    private final ObjectMapper json = ObjectMapperConfig.getJsonMapper();
+
+    private Map<String, JsonNode> registry;
+    private int loads;
+
+    protected void setUp()
+    {
+        registry = new LinkedHashMap<>();
+        loads = 0;
+    }
+
+    public void testLevelsFollowDependencies() throws Exception
+    {
+        service( "web", "{\"depends_on\":[\"api\",\"cache\"]}" );
+        service( "api", "{\"depends_on\":{\"db\":{\"condition\":\"service_healthy\"}}}" );
+        service( "worker", "{\"depends_on\":\"cache\"}" );
+        service( "cache", "{}" );
+        service( "db", "{}" );
+        service( "unused", "{}" );
+
+        DependencyGraph graph = resolve( "web", "worker" );
+
+        assertEquals( List.of( List.of( "cache", "db" ), List.of( "worker", "api" ), List.of( "web" ) ), graph.levels() );
+        assertEquals( Set.of( "web", "api", "worker", "cache", "db" ), graph.services().keySet() );
+        assertTrue( graph.missing().isEmpty() );
+        assertTrue( graph.cycles().isEmpty() );
+        assertTrue( graph.blocked().isEmpty() );
+
+        //One read per layer of dependencies, not one per service
+        assertEquals( 3, loads );
+    }
+
+    public void testMissingDependencyBlocksItsDependents() throws Exception
+    {
+        service( "web", "{\"depends_on\":[\"api\"]}" );
+        service( "api", "{\"depends_on\":[\"queue\"]}" );
+        service( "cache", "{}" );
+
+        DependencyGraph graph = resolve( "web", "cache", "ghost" );
+
+        Map<String, String> missing = new LinkedHashMap<>();
+        missing.put( "ghost", null );
+        missing.put( "queue", "api" );
+        assertEquals( missing, graph.missing() );
+        assertEquals( Map.of( "api", "queue", "web", "api" ), graph.blocked() );
+        assertEquals( List.of( List.of( "cache" ) ), graph.levels() );
+        assertEquals( Set.of( "cache" ), graph.services().keySet() );
+    }
+
+    public void testCyclesAreFoundAndWhatDependsOnThemIsBlocked() throws Exception
+    {
+        service( "entry", "{\"depends_on\":[\"a\"]}" );
+        service( "a", "{\"depends_on\":[\"b\"]}" );
+        service( "b", "{\"depends_on\":[\"c\"]}" );
+        service( "c", "{\"depends_on\":[\"a\"]}" );
+        service( "self", "{\"depends_on\":[\"self\"]}" );
+        service( "cache", "{}" );
+
+        DependencyGraph graph = resolve( "entry", "self", "cache" );
+
+        assertEquals( List.of( List.of( "a", "b", "c", "a" ), List.of( "self", "self" ) ), graph.cycles() );
+        assertEquals( Map.of( "entry", "a" ), graph.blocked() );
+        assertEquals( List.of( List.of( "cache" ) ), graph.levels() );
+        assertTrue( graph.missing().isEmpty() );
+    }
+
+    private void service( String name, String config ) throws Exception
+    {
+        registry.put( name, json.readTree( config ) );
+    }
+
+    private DependencyGraph resolve( String... requested )
+    {
+        Set<String> services = new LinkedHashSet<>( List.of( requested ) );
+        return DependencyGraph.resolve( services, names -> {
+            loads++;
+            Map<String, JsonNode> found = new LinkedHashMap<>();
+            names.stream().filter( registry::containsKey ).forEach( name -> found.put( name, registry.get( name ) ) );
+            return found;
+        } );
+    }
+}
@@ -0,0 +1,98 @@
+package org.quickstart.compose;
+
+import junit.framework.TestCase;
+import org.quickstart.QsProcess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Runs `qs up --pull` in its own process against stand-in `docker` and `docker-compose` scripts put first on its PATH,
+ * which log every image they're asked to pull and how many pulls were running at once
+ */
+public class ImagePullerTest
+    extends TestCase
+{
+    private static final String COMPOSE = String.join( "\n",
+            "services:",
+            "  web: {image: \"nginx:1\"}",
+            "  proxy: {image: \"nginx:1\"}",
+            "  cache: {image: \"redis:7\"}",
+            "  db: {image: \"postgres:16\"}",
+            "  queue: {image: \"rabbitmq:3\"}",
+            "  search: {image: \"elastic:8\"}",
+            "  app: {image: \"app:dev\", build: \".\"}",
+            "" );
+
+    private QsProcess process;
+    private Path bin;
+
+    protected void setUp() throws IOException
+    {
+        process = new QsProcess( "qs-pull" );
+        bin = Files.createDirectories( process.home().resolve( "bin" ) );
+        process.pathFirst( bin );
+
+        //redis:7 is present locally, every other image has to be pulled
+        script( "docker", String.join( "\n",
+                "#!/bin/bash",
+                "image=\"${@: -1}\"",
+                "if [[ \"$1 $2\" == \"image inspect\" ]]; then",
+                "  echo \"$image\" >> " + bin.resolve( "inspected.log" ),
+                "  [[ \"$image\" == \"redis:7\" ]] && exit 0 || exit 1",
+                "fi",
+                "if [[ \"$1\" == \"pull\" ]]; then",
+                "  touch " + bin.resolve( "running" ) + ".$$",
+                "  ls " + bin + " | grep -c '^running\\.' >> " + bin.resolve( "concurrency.log" ),
+                "  echo \"$image\" >> " + bin.resolve( "pulled.log" ),
+                "  sleep 0.3",
+                "  rm " + bin.resolve( "running" ) + ".$$",
+                "  exit 0",
+                "fi",
+                "exit 2",
+                "" ) );
+        script( "docker-compose", "#!/bin/bash\n[[ \" $* \" == *\" -f - \"* ]] && cat > /dev/null\nexit 0\n" );
+    }
+
+    protected void tearDown() throws IOException
+    {
+        process.delete();
+    }
+
+    public void testPullsMissingImagesWithinTheLimit() throws Exception
+    {
+        Files.writeString( process.home().resolve( "compose.yml" ), COMPOSE );
+        qs( "init" );
+        qs( "add", "-f", "compose.yml" );
+
+        String output = qs( "up", "--pull", "--pull-parallel", "2", "web", "proxy", "cache", "db", "queue", "search", "app" );
+
+        assertTrue( output, output.contains( "images: 4 pulled, 1 already present, 0 failed" ) );
+        assertEquals( List.of( "elastic:8", "nginx:1", "postgres:16", "rabbitmq:3" ), sortedLines( "pulled.log" ) );
+        assertFalse( "built images are left to docker-compose", sortedLines( "inspected.log" ).contains( "app:dev" ) );
+        for ( String running : sortedLines( "concurrency.log" ) )
+        {
+            assertTrue( "pulls running at once: " + running, Integer.parseInt( running.trim() ) <= 2 );
+        }
+    }
+
+    private void script( String name, String content ) throws IOException
+    {
+        Path script = bin.resolve( name );
+        Files.writeString( script, content );
+        assertTrue( script.toFile().setExecutable( true ) );
+    }
+
+    private List<String> sortedLines( String log ) throws IOException
+    {
+        Path file = bin.resolve( log );
+        return Files.exists( file ) ? Files.readAllLines( file ).stream().sorted().toList() : List.of();
+    }
+
+    private String qs( String... args ) throws Exception
+    {
+        return process.qs( args );
+    }
+}
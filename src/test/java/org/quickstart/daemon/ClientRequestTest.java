@@ -0,0 +1,36 @@
+package org.quickstart.daemon;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * A request reads back as it was sent, whatever the size of its arguments and environment
+ */
+public class ClientRequestTest
+    extends TestCase
+{
+    public void testReadBackRequestIsTheSame() throws Exception
+    {
+        //Past the 64 KiB writeUTF could hold, and more than one byte per character in utf-8
+        String large = "ü".repeat( 70_000 );
+        ClientRequest sent = new ClientRequest( Path.of( "/tmp/some dir" ), Map.of( "LARGE", large, "EMPTY", "" ),
+                new String[]{ "add", large, "" } );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sent.writeTo( new DataOutputStream( bytes ) );
+        ClientRequest read = ClientRequest.readFrom( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+
+        assertEquals( sent.workingDir(), read.workingDir() );
+        assertEquals( sent.environment(), read.environment() );
+        assertEquals( 3, read.args().length );
+        assertEquals( "add", read.args()[0] );
+        assertEquals( large, read.args()[1] );
+        assertEquals( "", read.args()[2] );
+    }
+}
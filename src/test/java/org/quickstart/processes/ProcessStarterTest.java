@@ -0,0 +1,64 @@
+package org.quickstart.processes;
+
+import junit.framework.TestCase;
+import org.quickstart.dtos.ProcessResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+public class ProcessStarterTest
+    extends TestCase
+{
+    public void testTailKeepsTheLastLines()
+    {
+        OutputTail tail = new OutputTail( 3, 5 );
+        tail.write( "one\ntwo\r\nthree\nfour\nfive and more\nsix".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertEquals( List.of( "three", "four", "five ", "six" ), tail.lines() );
+    }
+
+    public void testFailedProcessKeepsItsStderrTail() throws Exception
+    {
+        ProcessResult result = ProcessStarter.execute( "test | ", null, null,
+                "sh", "-c", "echo starting; echo 'no such image' >&2; exit 3" );
+
+        assertEquals( 3, result.exitCode() );
+        assertFalse( result.timedOut() );
+        assertEquals( List.of( "starting" ), result.stdoutTail() );
+        assertEquals( List.of( "no such image" ), result.tail() );
+    }
+
+    public void testResultRecordsHowLongTheProcessRan() throws Exception
+    {
+        ProcessResult result = ProcessStarter.execute( null, null, null, "sh", "-c", "sleep 0.3" );
+
+        assertTrue( result.succeeded() );
+        assertTrue( "ran for " + result.millis() + "ms", result.millis() >= 300 );
+    }
+
+    public void testTimeoutStopsTheWholeProcessTree() throws Exception
+    {
+        long start = System.nanoTime();
+        ProcessResult result = ProcessStarter.execute( null, null, Duration.ofMillis( 500 ),
+                "sh", "-c", "sleep 30 & echo $!; wait" );
+
+        assertTrue( result.timedOut() );
+        assertFalse( result.succeeded() );
+        assertTrue( "took too long to stop", System.nanoTime() - start < Duration.ofSeconds( 20 ).toNanos() );
+
+        //The child has been signalled, give it a moment to exit
+        long child = Long.parseLong( result.stdoutTail().get( 0 ).trim() );
+        long deadline = System.nanoTime() + Duration.ofSeconds( 5 ).toNanos();
+        while ( isAlive( child ) && System.nanoTime() < deadline )
+        {
+            Thread.sleep( 50 );
+        }
+        assertFalse( "the child was left running", isAlive( child ) );
+    }
+
+    private static boolean isAlive( long pid )
+    {
+        return ProcessHandle.of( pid ).map( ProcessHandle::isAlive ).orElse( false );
+    }
+}
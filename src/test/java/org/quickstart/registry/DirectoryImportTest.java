@@ -0,0 +1,62 @@
+package org.quickstart.registry;
+
+import junit.framework.TestCase;
+import org.quickstart.QsProcess;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs `qs add --dir` in its own process against a throwaway home, files are merged in path order whatever order
+ * they're parsed in
+ */
+public class DirectoryImportTest
+    extends TestCase
+{
+    private QsProcess process;
+
+    protected void setUp() throws Exception
+    {
+        process = new QsProcess( "qs-dir-import" );
+        Path compose = Files.createDirectories( process.home().resolve( "compose" ) );
+        Files.writeString( compose.resolve( "a.yml" ), "services:\n  web: {image: nginx}\n  db: {image: postgres}\n" );
+        Files.writeString( compose.resolve( "b.yml" ), "services:\n  db: {image: mysql}\n  cache: {image: redis}\n  bad: just-a-string\n" );
+        Files.writeString( compose.resolve( "notes.txt" ), "services:\n  ignored: {image: busybox}\n" );
+        qs( "init" );
+    }
+
+    protected void tearDown() throws Exception
+    {
+        process.delete();
+    }
+
+    public void testFirstFileWinsWithoutForce() throws Exception
+    {
+        String report = qs( "add", "--dir", "compose" );
+
+        assertTrue( report, report.contains( "a.yml: 2 imported, 0 skipped, 0 invalid" ) );
+        assertTrue( report, report.contains( "b.yml: 1 imported, 1 skipped, 1 invalid" ) );
+        assertTrue( report, report.contains( "skipped db (also in `a.yml`)" ) );
+        assertTrue( report, report.contains( "invalid bad" ) );
+        assertTrue( qs( "show", "db" ).contains( "postgres" ) );
+        assertFalse( qs( "ls" ).contains( "ignored" ) );
+
+        report = qs( "add", "--dir", "compose" );
+        assertTrue( report, report.contains( "imported 0 services from 2 files" ) );
+    }
+
+    public void testLastFileWinsWithForce() throws Exception
+    {
+        String report = qs( "add", "--dir", "compose", "--force", "-e", "cache" );
+
+        assertTrue( report, report.contains( "skipped db (overridden by `b.yml`)" ) );
+        assertTrue( report, report.contains( "imported 2 services from 2 files" ) );
+        assertTrue( qs( "show", "db" ).contains( "mysql" ) );
+        assertFalse( qs( "ls" ).contains( "cache" ) );
+    }
+
+    private String qs( String... args ) throws Exception
+    {
+        return process.qs( args );
+    }
+}
@@ -0,0 +1,72 @@
+package org.quickstart.registry;
+
+import junit.framework.TestCase;
+import org.quickstart.QsProcess;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Runs `qs add -f` on the same file again in its own process against a throwaway home, only what changed in the file
+ * is written
+ */
+public class IncrementalImportTest
+    extends TestCase
+{
+    private QsProcess process;
+    private Path compose;
+
+    protected void setUp() throws Exception
+    {
+        process = new QsProcess( "qs-incremental-import" );
+        compose = process.home().resolve( "compose.yml" );
+        Files.writeString( compose, "services:\n  web: {image: nginx}\n  db: {image: postgres}\n" );
+        qs( "init" );
+        assertTrue( qs( "add", "-f", "compose.yml" ).contains( "all services imported successfully" ) );
+    }
+
+    protected void tearDown() throws Exception
+    {
+        process.delete();
+    }
+
+    public void testUntouchedFileIsNotReadAgain() throws Exception
+    {
+        //Same size and modification time, only a file that's read again would notice
+        FileTime modified = Files.getLastModifiedTime( compose );
+        Files.writeString( compose, "services:\n  web: {image: httpd}\n  db: {image: postgres}\n" );
+        Files.setLastModifiedTime( compose, modified );
+
+        String report = qs( "add", "-f", "compose.yml" );
+
+        assertTrue( report, report.contains( "nothing changed, 2 services up to date" ) );
+        assertTrue( qs( "show", "web" ).contains( "nginx" ) );
+    }
+
+    public void testOnlyChangedServicesAreUpdated() throws Exception
+    {
+        Files.writeString( compose, "services:\n  web: {image: nginx}\n  db: {image: mysql}\n  cache: {image: redis}\n" );
+
+        String report = qs( "add", "-f", "compose.yml" );
+
+        assertTrue( report, report.contains( "1 imported, 1 updated, 1 unchanged" ) );
+        assertTrue( qs( "show", "db" ).contains( "mysql" ) );
+    }
+
+    public void testServicesWrittenElsewhereAreNoLongerUpdated() throws Exception
+    {
+        Files.writeString( process.home().resolve( "other.yml" ), "services:\n  web: {image: caddy}\n" );
+        qs( "add", "-f", "other.yml", "--force" );
+
+        String report = qs( "add", "-f", "compose.yml" );
+
+        assertTrue( report, report.contains( "skipped 1 existing service: web" ) );
+        assertTrue( qs( "show", "web" ).contains( "caddy" ) );
+    }
+
+    private String qs( String... args ) throws Exception
+    {
+        return process.qs( args );
+    }
+}
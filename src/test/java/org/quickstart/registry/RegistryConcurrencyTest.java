@@ -0,0 +1,138 @@
+package org.quickstart.registry;
+
+import junit.framework.TestCase;
+import org.quickstart.QsProcess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs several writer processes against one home directory at the same time, the way parallel CI jobs do, and checks
+ * that no write was lost and the registry is still readable
+ */
+public class RegistryConcurrencyTest
+    extends TestCase
+{
+    private static final int WRITERS = 6;
+    private static final int SERVICES_PER_WRITER = 12;
+
+    private QsProcess process;
+    private Path home;
+
+    protected void setUp() throws IOException
+    {
+        process = new QsProcess( "qs-concurrency" );
+        home = process.home();
+    }
+
+    protected void tearDown() throws IOException
+    {
+        process.delete();
+    }
+
+    public void testConcurrentWritersOnSingleFile() throws Exception
+    {
+        assertNoLostWrites( RegistryLayout.FILE );
+    }
+
+    public void testConcurrentWritersOnDirectory() throws Exception
+    {
+        assertNoLostWrites( RegistryLayout.DIRECTORY );
+    }
+
+    public void testConcurrentWritersOnJournal() throws Exception
+    {
+        //Small enough that the writers compact the journal while the others keep appending to it
+        process.environment( JournalRegistryStore.MAX_BYTES_ENV, "512" );
+        assertNoLostWrites( RegistryLayout.JOURNAL );
+    }
+
+    public void testClearWhileWritingOnSingleFile() throws Exception
+    {
+        assertNoDeadlock( RegistryLayout.FILE );
+    }
+
+    public void testClearWhileWritingOnDirectory() throws Exception
+    {
+        assertNoDeadlock( RegistryLayout.DIRECTORY );
+    }
+
+    public void testClearWhileWritingOnJournal() throws Exception
+    {
+        assertNoDeadlock( RegistryLayout.JOURNAL );
+    }
+
+    public void testJournalRecoversFromTornWrite() throws Exception
+    {
+        run( "init", RegistryLayout.JOURNAL.name() );
+        run( "write", "0", "3" );
+
+        //A record cut short by a crash, the next writer has to cut it off or every later record would be unreadable
+        Path journal = home.resolve( ".quickstart" ).resolve( "journal" ).resolve( "registry.json.journal" );
+        Files.write( journal, new byte[]{ 0x51, 0x4A, 0x52, 0x4E, 0, 0, 0, 64, 1, 2 }, StandardOpenOption.APPEND );
+        assertEquals( Set.of( "svc-0-0", "svc-0-1", "svc-0-2" ), new HashSet<>( run( "list" ) ) );
+
+        run( "write", "1", "3" );
+        assertEquals( Set.of( "svc-0-0", "svc-0-1", "svc-0-2", "svc-1-0", "svc-1-1", "svc-1-2" ),
+                new HashSet<>( run( "list" ) ) );
+    }
+
+    private void assertNoLostWrites( RegistryLayout layout ) throws Exception
+    {
+        run( "init", layout.name() );
+
+        List<Process> writers = new ArrayList<>();
+        for ( int id = 0; id < WRITERS; id++ )
+        {
+            writers.add( start( "write", String.valueOf( id ), String.valueOf( SERVICES_PER_WRITER ) ) );
+        }
+        for ( Process writer : writers )
+        {
+            awaitSuccess( writer );
+        }
+
+        Set<String> expected = new HashSet<>();
+        for ( int id = 0; id < WRITERS; id++ )
+        {
+            for ( int i = 0; i < SERVICES_PER_WRITER; i++ )
+            {
+                expected.add( "svc-" + id + "-" + i );
+            }
+        }
+        assertEquals( expected, new HashSet<>( run( "list" ) ) );
+
+        //Every import and every scratch add and delete is one commit, a lost update would leave the version short
+        int scratch = ( SERVICES_PER_WRITER + RegistryWriterProcess.SCRATCH_EVERY - 1 ) / RegistryWriterProcess.SCRATCH_EVERY;
+        long commits = (long) WRITERS * ( SERVICES_PER_WRITER + 2 * scratch );
+        String version = Files.readString( home.resolve( ".quickstart" ).resolve( "registry.version" ) ).trim();
+        assertEquals( commits, Long.parseLong( version ) );
+    }
+
+    //Writes hold the registry lock while they enter the store, clearing must take them in the same order
+    private void assertNoDeadlock( RegistryLayout layout ) throws Exception
+    {
+        run( "init", layout.name() );
+        run( "clear-race", "200" );
+    }
+
+    private Process start( String... args ) throws IOException
+    {
+        return process.start( RegistryWriterProcess.class, args );
+    }
+
+    private List<String> run( String... args ) throws Exception
+    {
+        return awaitSuccess( start( args ) );
+    }
+
+    private List<String> awaitSuccess( Process writer ) throws Exception
+    {
+        return QsProcess.awaitSuccess( writer ).lines().toList();
+    }
+}
@@ -0,0 +1,88 @@
+package org.quickstart.registry;
+
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A separate `qs` process for {@link RegistryConcurrencyTest}, run with its own `-Duser.home`
+ *
+ * init &lt;layout&gt;        creates the registry
+ * write &lt;id&gt; &lt;count&gt;  imports `count` services through the handler, adding and removing a scratch service every few
+ * list                lists the registry's services, one per line
+ * clear-race &lt;count&gt;  imports `count` services on one thread while another clears the registry, like `qs add` and
+ *                     `qs rm --all` served by the daemon at the same time, and exits with 1 if they deadlock
+ */
+public class RegistryWriterProcess
+{
+    static final int SCRATCH_EVERY = 5;
+
+    public static void main( String[] args ) throws Exception
+    {
+        switch ( args[0] )
+        {
+            case "init" -> QuickStartInitializer.initQuickStart( RegistryLayout.valueOf( args[1] ), RegistryFormat.JSON );
+            case "write" -> write( args[1], Integer.parseInt( args[2] ) );
+            case "clear-race" -> clearWhileWriting( Integer.parseInt( args[1] ) );
+            case "list" -> RegistryConfig.load( ObjectMapperConfig.getJsonMapper() )
+                    .openStore()
+                    .serviceNames()
+                    .forEach( System.out::println );
+            default -> throw new IllegalArgumentException( args[0] );
+        }
+    }
+
+    private static void clearWhileWriting( int count ) throws Exception
+    {
+        RegistryHandler handler = RegistryHandler.getInstance();
+        ExecutorService threads = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            Future<?> writer = threads.submit( () -> {
+                for ( int i = 0; i < count; i++ )
+                {
+                    handler.importToRegistryFromText( Map.of( "svc-race-" + i, "image: \"nginx:" + i + "\"" ) );
+                }
+            } );
+            Future<?> clearer = threads.submit( () -> {
+                for ( int i = 0; i < count; i++ )
+                {
+                    handler.deleteAllServicesFromTheRegistry();
+                }
+            } );
+            writer.get( 1, TimeUnit.MINUTES );
+            clearer.get( 1, TimeUnit.MINUTES );
+        }
+        catch ( TimeoutException e )
+        {
+            System.out.println( "writing and clearing the registry deadlocked" );
+            Runtime.getRuntime().halt( 1 );
+        }
+        finally
+        {
+            threads.shutdown();
+        }
+    }
+
+    private static void write( String id, int count )
+    {
+        RegistryHandler handler = RegistryHandler.getInstance();
+        for ( int i = 0; i < count; i++ )
+        {
+            handler.importToRegistryFromText( Map.of( "svc-" + id + "-" + i, "image: \"nginx:" + i + "\"" ) );
+
+            if ( i % SCRATCH_EVERY == 0 )
+            {
+                String scratch = "scratch-" + id + "-" + i;
+                handler.importToRegistryFromText( Map.of( scratch, "image: \"busybox\"" ) );
+                handler.deleteServicesFromRegistry( Set.of( scratch ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.quickstart.registry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Services sharing a block must read back exactly as they were written, hold the same instance of it in memory, and
+ * small blocks are left inline since a reference would cost more than they do
+ */
+public class SharedSubtreesTest
+    extends TestCase
+{
+    private static final String ENVIRONMENT = "{\"SPRING_PROFILES_ACTIVE\":\"prod\",\"JAVA_OPTS\":\"-Xmx512m -XX:+UseG1GC\",\"LOG_LEVEL\":\"info\"}";
+
+    private final ObjectMapper json = ObjectMapperConfig.getJsonMapper();
+
+    public void testSharedBlocksReadBackAsWritten() throws Exception
+    {
+        Map<String, JsonNode> services = services();
+        SharedSubtrees.Shared shared = SharedSubtrees.share( services );
+        assertEquals( 1, shared.blocks().size() );
+        assertEquals( 2, shared.references() );
+
+        //Written out and read back the way the registry stores them
+        JsonNode blocks = json.readTree( json.writeValueAsString( shared.blocksNode() ) );
+        Map<String, JsonNode> byId = SharedSubtrees.blocks( blocks );
+        for ( Map.Entry<String, JsonNode> service : shared.services().entrySet() )
+        {
+            JsonNode read = json.readTree( json.writeValueAsString( service.getValue() ) );
+            assertEquals( services.get( service.getKey() ), SharedSubtrees.expand( read, byId ) );
+        }
+    }
+
+    public void testServicesHoldTheSameInstance() throws Exception
+    {
+        Map<String, JsonNode> interned = SharedSubtrees.intern( services() );
+        assertSame( interned.get( "orders" ).get( "environment" ), interned.get( "billing" ).get( "environment" ) );
+        assertEquals( SharedSubtrees.containers( interned.values(), false ) - 1,
+                SharedSubtrees.containers( interned.values(), true ) );
+    }
+
+    public void testSmallBlocksStayInline() throws Exception
+    {
+        Map<String, JsonNode> services = new LinkedHashMap<>();
+        services.put( "a", json.readTree( "{\"image\":\"redis\",\"ports\":[\"6379\"]}" ) );
+        services.put( "b", json.readTree( "{\"image\":\"valkey\",\"ports\":[\"6379\"]}" ) );
+
+        SharedSubtrees.Shared shared = SharedSubtrees.share( services );
+        assertTrue( shared.blocks().isEmpty() );
+        assertSame( services.get( "a" ), shared.services().get( "a" ) );
+    }
+
+    private Map<String, JsonNode> services() throws Exception
+    {
+        Map<String, JsonNode> services = new LinkedHashMap<>();
+        services.put( "orders", json.readTree( "{\"image\":\"orders:1\",\"environment\":" + ENVIRONMENT + "}" ) );
+        services.put( "billing", json.readTree( "{\"image\":\"billing:1\",\"environment\":" + ENVIRONMENT + "}" ) );
+        return services;
+    }
+}
@@ -0,0 +1,135 @@
+package org.quickstart.registry;
+
+import junit.framework.TestCase;
+import org.quickstart.QsProcess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs `qs add -f --watch --up` in its own process against a stand-in `docker-compose` that logs how it's called, a
+ * save is imported again and only the `qs up` projects running a changed service are brought up again
+ */
+public class WatchImportTest
+    extends TestCase
+{
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private QsProcess process;
+    private Path bin;
+    private Path compose;
+    private Process watch;
+
+    protected void setUp() throws Exception
+    {
+        process = new QsProcess( "qs-watch-import" );
+        bin = Files.createDirectories( process.home().resolve( "bin" ) );
+        process.pathFirst( bin );
+        Path script = bin.resolve( "docker-compose" );
+        Files.writeString( script, String.join( "\n",
+                "#!/bin/bash",
+                "echo \"$*\" >> " + bin.resolve( "compose.log" ),
+                "[[ \" $* \" == *\" -f - \"* ]] && cat > /dev/null",
+                "exit 0",
+                "" ) );
+        assertTrue( script.toFile().setExecutable( true ) );
+
+        compose = process.home().resolve( "compose.yml" );
+        Files.writeString( compose, "services:\n  web: {image: \"nginx:1\"}\n  db: {image: postgres}\n  cache: {image: redis}\n" );
+        qs( "init" );
+        qs( "add", "-f", "compose.yml" );
+        qs( "up", "web", "db" );
+        qs( "up", "cache" );
+
+        //A profile runs its own copy of the service, a save to the compose file must not touch it
+        Files.writeString( process.home().resolve( "dev.yml" ), "services:\n  web: {image: \"nginx:1\"}\n" );
+        qs( "profile", "create", "dev" );
+        qs( "profile", "import", "dev", "-f", "dev.yml" );
+        qs( "profile", "up", "dev" );
+    }
+
+    protected void tearDown() throws Exception
+    {
+        if ( watch != null )
+        {
+            watch.destroy();
+            watch.waitFor( TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        }
+        process.delete();
+    }
+
+    public void testSaveIsImportedAndAffectedProjectsBroughtUpAgain() throws Exception
+    {
+        watch = process.startQs( "add", "-f", "compose.yml", "--watch", "--up" );
+        BlockingQueue<String> output = lines( watch );
+        awaitLine( output, "nothing changed" );
+        Files.delete( bin.resolve( "compose.log" ) );
+
+        Files.writeString( compose, "services:\n  web: {image: \"nginx:1.27\"}\n  db: {image: postgres}\n  cache: {image: redis}\n" );
+
+        //Projects are gone through by name, `dev` and `qs-cache-...` come before the project running web
+        String upAgain = awaitLine( output, "brought `qs-db-web-" );
+        assertTrue( upAgain, upAgain.endsWith( "up again" ) );
+        watch.destroy();
+
+        List<String> calls = Files.readAllLines( bin.resolve( "compose.log" ) );
+        assertEquals( calls.toString(), 1, calls.size() );
+        assertTrue( calls.get( 0 ), calls.get( 0 ).contains( "-p qs-db-web-" ) );
+        assertTrue( calls.get( 0 ), calls.get( 0 ).contains( " up " ) );
+        assertTrue( qs( "show", "web" ).contains( "nginx:1.27" ) );
+    }
+
+    private String qs( String... args ) throws Exception
+    {
+        return process.qs( args );
+    }
+
+    //Reads what the process prints on a thread of its own, so a line that never comes fails the test instead of hanging it
+    private static BlockingQueue<String> lines( Process running )
+    {
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread reader = new Thread( () -> {
+            try ( BufferedReader in = new BufferedReader( new InputStreamReader( running.getInputStream(), StandardCharsets.UTF_8 ) ) )
+            {
+                in.lines().forEach( lines::add );
+            }
+            catch ( IOException | RuntimeException ignored )
+            {
+                //The process was stopped
+            }
+        } );
+        reader.setDaemon( true );
+        reader.start();
+        return lines;
+    }
+
+    private static String awaitLine( BlockingQueue<String> lines, String expected ) throws InterruptedException
+    {
+        List<String> seen = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( TIMEOUT_SECONDS );
+        while ( System.nanoTime() < deadline )
+        {
+            String line = lines.poll( 100, TimeUnit.MILLISECONDS );
+            if ( line == null )
+            {
+                continue;
+            }
+            if ( line.contains( expected ) )
+            {
+                return line;
+            }
+            seen.add( line );
+        }
+        fail( "no line containing `" + expected + "` in " + seen );
+        return null;
+    }
+}
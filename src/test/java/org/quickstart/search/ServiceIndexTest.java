@@ -0,0 +1,93 @@
+package org.quickstart.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.quickstart.configurations.ObjectMapperConfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Terms are found in both compose syntaxes, and an index patched by writes and deletes answers like one rebuilt from
+ * the registry, which it only is when it no longer matches the registry's stamp
+ */
+public class ServiceIndexTest
+    extends TestCase
+{
+    private final ObjectMapper json = ObjectMapperConfig.getJsonMapper();
+
+    private Map<String, JsonNode> registry;
+    private int rebuilds;
+
+    protected void setUp() throws Exception
+    {
+        registry = new LinkedHashMap<>();
+        registry.put( "db", json.readTree( "{\"image\":\"postgres:15\",\"ports\":[\"5432:5432\"],\"volumes\":[\"db_data:/var/lib/postgresql/data\"]}" ) );
+        registry.put( "cache", json.readTree( "{\"image\":\"redis:7-alpine\",\"environment\":{\"REDIS_URL\":\"redis://cache\"}}" ) );
+        rebuilds = 0;
+    }
+
+    public void testTermsOfBothSyntaxes() throws Exception
+    {
+        JsonNode service = json.readTree( "{\"image\":\"registry:5000/team/api:1.2@sha256:ab\","
+                + "\"ports\":[\"127.0.0.1:8080:80/tcp\",\"3000\",{\"target\":80,\"published\":\"9000-9001\"}],"
+                + "\"environment\":[\"REDIS_URL=redis://cache\",\"DEBUG\"],"
+                + "\"labels\":{\"com.example.team\":\"core\"},"
+                + "\"volumes\":[\"./conf:/etc/app\",\"logs:/var/log\",{\"type\":\"volume\",\"source\":\"data\",\"target\":\"/data\"}]}" );
+
+        assertEquals( Set.of( "image:registry:5000/team/api:1.2", "image:registry:5000/team/api", "image:api", "tag:1.2",
+                "port:8080", "port:9000", "port:9001", "env:REDIS_URL", "env:DEBUG", "label:com.example.team",
+                "volume:logs", "volume:data" ), ServiceTerms.of( service ) );
+    }
+
+    public void testPatchedIndexAnswersLikeARebuiltOne() throws Exception
+    {
+        Path path = Files.createTempDirectory( "qs-search" ).resolve( "search.idx" );
+        ServiceIndex index = new ServiceIndex( path );
+        assertEquals( Set.of( "db" ), search( index, "1", "postgres" ).keySet() );
+
+        //Overwrites one service, adds another and deletes a third
+        Map<String, JsonNode> written = new LinkedHashMap<>();
+        written.put( "db", json.readTree( "{\"image\":\"postgres:16\",\"ports\":[\"5433:5432\"]}" ) );
+        written.put( "queue", json.readTree( "{\"image\":\"rabbitmq:3\",\"environment\":[\"REDIS_URL=redis://cache\"]}" ) );
+        registry.putAll( written );
+        index.written( written, "1", "2" );
+        registry.remove( "cache" );
+        index.removed( List.of( "cache" ), "2", "3" );
+
+        SortedMap<String, SortedSet<String>> patched = search( new ServiceIndex( path ), "3", "*" );
+        assertEquals( 1, rebuilds );
+        assertEquals( search( new ServiceIndex( Files.createTempDirectory( "qs-search" ).resolve( "search.idx" ) ), "3", "*" ), patched );
+        assertEquals( Set.of( "db", "queue" ), patched.keySet() );
+        assertTrue( patched.get( "db" ).contains( "port:5433" ) );
+        assertFalse( patched.get( "db" ).contains( "port:5432" ) );
+    }
+
+    public void testQueriesAreCaseInsensitiveAndMustAllMatch() throws Exception
+    {
+        ServiceIndex index = new ServiceIndex( Files.createTempDirectory( "qs-search" ).resolve( "search.idx" ) );
+        assertEquals( Set.of( "cache" ), search( index, "1", "env:redis_*" ).keySet() );
+        assertEquals( Set.of( "db" ), search( index, "1", "IMAGE:Postgres", "5432" ).keySet() );
+        assertTrue( search( index, "1", "postgres", "env:REDIS_URL" ).isEmpty() );
+
+        //A registry changed behind the index's back is read again
+        registry.put( "web", json.readTree( "{\"image\":\"nginx\",\"ports\":[\"80:80\"]}" ) );
+        assertEquals( Set.of( "web" ), search( index, "2", "port:80" ).keySet() );
+        assertEquals( 2, rebuilds );
+    }
+
+    private SortedMap<String, SortedSet<String>> search( ServiceIndex index, String stamp, String... queries )
+    {
+        return index.search( List.of( queries ), stamp, () -> {
+            rebuilds++;
+            return registry;
+        } );
+    }
+}
@@ -0,0 +1,102 @@
+package org.quickstart.similarity;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lookups find what comparing against every name would, closest first, whatever names were removed or whether the
+ * tree was read back from disk
+ */
+public class BkTreeTest
+    extends TestCase
+{
+    private static final List<String> QUERIES = List.of( "service-42", "servce-7", "postgre", "redis", "x", "" );
+
+    private BkTree tree;
+    private List<String> names;
+
+    protected void setUp()
+    {
+        tree = new BkTree();
+        names = new ArrayList<>();
+        for ( int i = 0; i < 300; i++ )
+        {
+            names.add( "service-" + i );
+        }
+        names.addAll( List.of( "postgres", "postgis", "postgres-replica", "redis", "redis-cache", "mysql", "mongo", "web" ) );
+        names.forEach( tree::add );
+    }
+
+    public void testSearchIsClosestFirstThenAlphabetical()
+    {
+        assertEquals( List.of( "postgres", "postgis" ), tree.search( "postgre", 2, 10 ) );
+        assertEquals( List.of( "postgres" ), tree.search( "postgre", 2, 1 ) );
+        assertEquals( List.of( "service-42", "service-12", "service-142", "service-2" ), tree.search( "service-42", 1, 4 ) );
+        assertEquals( List.of(), tree.search( "postgre", 2, 0 ) );
+        assertEquals( List.of(), new BkTree().search( "postgre", 2, 10 ) );
+    }
+
+    public void testSearchFindsWhatComparingEveryNameFinds()
+    {
+        assertMatchesEveryName();
+
+        //Enough removals to compact the tree
+        for ( int i = 0; i < 200; i++ )
+        {
+            tree.remove( "service-" + i );
+            names.remove( "service-" + i );
+        }
+        tree.remove( "not-in-the-tree" );
+        assertEquals( names.size(), tree.size() );
+        assertFalse( tree.contains( "service-0" ) );
+        assertTrue( tree.contains( "service-200" ) );
+        assertMatchesEveryName();
+
+        tree.add( "service-0" );
+        tree.add( "service-0" );
+        names.add( "service-0" );
+        assertEquals( names.size(), tree.size() );
+        assertMatchesEveryName();
+    }
+
+    public void testReadBackTreeIsTheSame() throws Exception
+    {
+        tree.remove( "postgis" );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tree.writeTo( new DataOutputStream( bytes ) );
+        BkTree read = BkTree.readFrom( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+
+        assertEquals( tree.size(), read.size() );
+        assertFalse( read.contains( "postgis" ) );
+        for ( String query : QUERIES )
+        {
+            assertEquals( query, tree.search( query, 3, 20 ), read.search( query, 3, 20 ) );
+        }
+    }
+
+    private void assertMatchesEveryName()
+    {
+        for ( String query : QUERIES )
+        {
+            for ( int maxDistance = 0; maxDistance <= 3; maxDistance++ )
+            {
+                int max = maxDistance;
+                List<String> expected = names.stream()
+                        .filter( name -> Levenshtein.distance( name, query ) <= max )
+                        .sorted( Comparator.<String>comparingInt( name -> Levenshtein.distance( name, query ) )
+                                .thenComparing( Comparator.naturalOrder() ) )
+                        .limit( 20 )
+                        .toList();
+                assertEquals( query + " within " + max, expected, tree.search( query, max, 20 ) );
+            }
+        }
+    }
+}
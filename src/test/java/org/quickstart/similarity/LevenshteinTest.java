@@ -0,0 +1,37 @@
+package org.quickstart.similarity;
+
+import junit.framework.TestCase;
+
+/**
+ * Exact distances, and distances past a threshold given up on whether they're caught by the lengths or by a row
+ */
+public class LevenshteinTest
+    extends TestCase
+{
+    public void testExactDistances()
+    {
+        assertEquals( 0, Levenshtein.distance( "", "" ) );
+        assertEquals( 3, Levenshtein.distance( "", "abc" ) );
+        assertEquals( 3, Levenshtein.distance( "abc", "" ) );
+        assertEquals( 0, Levenshtein.distance( "postgres", "postgres" ) );
+        assertEquals( 3, Levenshtein.distance( "kitten", "sitting" ) );
+        assertEquals( 3, Levenshtein.distance( "sitting", "kitten" ) );
+        assertEquals( 2, Levenshtein.distance( "flaw", "lawn" ) );
+        assertEquals( 1, Levenshtein.distance( "Web", "web" ) );
+    }
+
+    public void testThreshold()
+    {
+        assertEquals( 3, Levenshtein.distance( "kitten", "sitting", 3 ) );
+        assertEquals( -1, Levenshtein.distance( "kitten", "sitting", 2 ) );
+        assertEquals( 0, Levenshtein.distance( "web", "web", 0 ) );
+        assertEquals( -1, Levenshtein.distance( "web", "wab", 0 ) );
+
+        //Too far apart in length to compare at all
+        assertEquals( -1, Levenshtein.distance( "a", "abcdef", 2 ) );
+        assertEquals( 5, Levenshtein.distance( "a", "abcdef", 5 ) );
+
+        //Same length, given up on once a whole row is past the threshold
+        assertEquals( -1, Levenshtein.distance( "aaaaaaaa", "bbbbbbbb", 3 ) );
+    }
+}
@@ -0,0 +1,97 @@
+package org.quickstart.similarity;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The index is read from disk while its stamp matches the source, patched by changes made to the source it matched
+ * and rebuilt from the source otherwise
+ */
+public class NameIndexTest
+    extends TestCase
+{
+    private Path dir;
+    private Path path;
+    private Set<String> source;
+    private int rebuilds;
+
+    protected void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory( "qs-names" );
+        path = dir.resolve( "services.idx" );
+        source = new TreeSet<>( List.of( "postgres", "redis", "web" ) );
+        rebuilds = 0;
+    }
+
+    protected void tearDown() throws Exception
+    {
+        Files.deleteIfExists( path );
+        Files.deleteIfExists( dir );
+    }
+
+    public void testReadFromDiskWhileTheStampMatches()
+    {
+        NameIndex index = new NameIndex( path );
+        assertEquals( List.of( "postgres" ), similarTo( index, "postgre", "1" ) );
+        assertEquals( List.of( "redis" ), similarTo( index, "rediss", "1" ) );
+        assertEquals( List.of( "postgres" ), similarTo( new NameIndex( path ), "postgre", "1" ) );
+        assertEquals( 1, rebuilds );
+    }
+
+    public void testRebuiltWhenTheStampChanged()
+    {
+        NameIndex index = new NameIndex( path );
+        similarTo( index, "postgre", "1" );
+
+        //Changed behind the index's back, i.e. the registry was edited by hand
+        source.add( "postgis" );
+        assertEquals( List.of( "postgres", "postgis" ), similarTo( index, "postgre", "2" ) );
+        assertEquals( 2, rebuilds );
+        assertEquals( List.of( "postgres", "postgis" ), similarTo( new NameIndex( path ), "postgre", "2" ) );
+        assertEquals( 2, rebuilds );
+    }
+
+    public void testPatchedByChangesToTheSourceItMatched()
+    {
+        NameIndex index = new NameIndex( path );
+        similarTo( index, "postgre", "1" );
+
+        source.add( "postgis" );
+        index.added( List.of( "postgis" ), "1", "2", this::names );
+        source.remove( "postgres" );
+        new NameIndex( path ).removed( List.of( "postgres" ), "2", "3", this::names );
+        assertEquals( List.of( "postgis" ), similarTo( new NameIndex( path ), "postgre", "3" ) );
+        assertEquals( 1, rebuilds );
+
+        //A change to a source the index doesn't match can't be patched in
+        source.add( "mysql" );
+        index.added( List.of( "mysql" ), "4", "5", this::names );
+        assertEquals( 2, rebuilds );
+        assertEquals( List.of( "mysql" ), similarTo( new NameIndex( path ), "mysq", "5" ) );
+        assertEquals( 2, rebuilds );
+    }
+
+    public void testUnreadableIndexIsRebuilt() throws Exception
+    {
+        Files.writeString( path, "not an index" );
+        assertEquals( List.of( "web" ), similarTo( new NameIndex( path ), "wbe", "1" ) );
+        assertEquals( 1, rebuilds );
+    }
+
+    private List<String> similarTo( NameIndex index, String name, String stamp )
+    {
+        return index.similarTo( name, 2, 5, stamp, this::names );
+    }
+
+    private Collection<String> names()
+    {
+        rebuilds++;
+        return List.copyOf( source );
+    }
+}